@@ -24,6 +24,13 @@ base
 
 functionalExpression
     :   APPROX LEFTPAREN l=base COMMA r=base COMMA p=base RIGHTPAREN   # approxValue
+    |   ISNULL LEFTPAREN o=orExpression RIGHTPAREN                      # isNullValue
+    |   ISNOTNULL LEFTPAREN o=orExpression RIGHTPAREN                   # isNotNullValue
+    |   f=Identifier LEFTPAREN a=arguments RIGHTPAREN                   # functionValue
+    ;
+
+arguments
+    :   o+=orExpression (COMMA o+=orExpression)*
     ;
 
 baseExpression
@@ -56,6 +63,8 @@ relationalExpression
     |   r=relationalExpression LESS a=additiveExpression           # lessValue
     |   r=relationalExpression LESSEQUAL a=additiveExpression      # lessEqualValue
     |   r=relationalExpression GREATEREQUAL a=additiveExpression   # greaterEqualValue
+    |   r=relationalExpression IN a=additiveExpression             # inValue
+    |   r=relationalExpression NOTIN a=additiveExpression          # notInValue
     ;
 
 equalityExpression
@@ -74,9 +83,17 @@ orExpression
     |   o=orExpression OR a=andExpression  # orValue
     ;
 
+grouping
+    :   GROUPBY k=arguments
+    ;
+
+ordering
+    :   ORDERBY k=arguments
+    ;
+
 statement
-    :   o=orExpression                        # baseOrValue
-    |   o=orExpression WHERE j=orExpression   # joinValue
+    :   o=orExpression g=grouping? s=ordering?                        # baseOrValue
+    |   o=orExpression WHERE j=orExpression g=grouping? s=ordering?   # joinValue
     ;
 
 DOUBLEQUOTE          : '"';
@@ -103,6 +120,12 @@ TRUE                 : 'true';
 FALSE                : 'false';
 WHERE                : 'where';
 APPROX               : 'approx';
+ISNULL               : 'isnull';
+ISNOTNULL            : 'isnotnull';
+IN                   : 'in';
+NOTIN                : 'not' [ \t\r\n]+ 'in';
+GROUPBY              : 'group' [ \t\r\n]+ 'by';
+ORDERBY              : 'order' [ \t\r\n]+ 'by';
 
 Whitespace
     :   [ \t]+
@@ -33,6 +33,7 @@ public class App {
     public static final String PARAMETER = "parameter";
     public static final String PARAMETER_DELIMITER = "=";
     public static final String TEST_SUITE = "test-suite";
+    public static final String ASSERT_PARALLELISM = "assert-parallelism";
     public static final String HELP = "help";
     public static final String HELP_ABBREVIATED = "h";
 
@@ -49,6 +50,12 @@ public class App {
                 .required()
                 .ofType(File.class)
                 .describedAs("Test suite file/folder");
+            accepts(ASSERT_PARALLELISM, "The max number of tests whose assertions are checked concurrently. If 1 or " +
+                                        "less, the tests are checked one after another.")
+                .withRequiredArg()
+                .describedAs("Max assertion parallelism")
+                .ofType(Integer.class)
+                .defaultsTo(1);
             acceptsAll(asList(HELP_ABBREVIATED, HELP), "Shows help message.");
             allowsUnrecognizedOptions();
         }
@@ -100,6 +107,24 @@ public class App {
      */
     public static boolean run(File testSuite, Map<String, String> parameters, ParseManager parseManager,
                               EngineManager engineManager, FormatManager formatManager) throws IOException {
+        return run(testSuite, parameters, 1, parseManager, engineManager, formatManager);
+    }
+
+    /**
+     * Run the testSuite and parameters with the given Parse, Engine and Format Managers.
+     *
+     * @param testSuite The {@link File} where the TestSuite(s) are.
+     * @param parameters An optional {@link Map} of parameters to their values to expand.
+     * @param assertParallelism The max number of {@link Test} to check the assertions of at once.
+     * @param parseManager A {@link ParseManager} to use.
+     * @param engineManager A {@link EngineManager} to use.
+     * @param formatManager A {@link FormatManager} to use.
+     * @return A boolean denoting whether all {@link Query} or {@link Test} passed.
+     * @throws IOException if any.
+     */
+    public static boolean run(File testSuite, Map<String, String> parameters, int assertParallelism,
+                              ParseManager parseManager, EngineManager engineManager, FormatManager formatManager)
+                              throws IOException {
         // Load the test suite file(s)
         log.info("Parsing test files...");
         List<TestSuite> suites = parseManager.load(testSuite);
@@ -127,7 +152,7 @@ public class App {
 
         // Run the tests
         log.info("Running tests...");
-        Assertor.assertAll(data, tests);
+        Assertor.assertAll(data, tests, assertParallelism);
 
         // Write reports
         log.info("Writing reports...");
@@ -162,7 +187,10 @@ public class App {
         }
         Map<String, String> parameterMap = splitParameters(options, PARAMETER);
 
-        return run((File) options.valueOf(TEST_SUITE), parameterMap, parseManager, engineManager, formatManager);
+        int assertParallelism = (Integer) options.valueOf(ASSERT_PARALLELISM);
+
+        return run((File) options.valueOf(TEST_SUITE), parameterMap, assertParallelism, parseManager, engineManager,
+                   formatManager);
     }
 
     /**
@@ -4,35 +4,74 @@
  */
 package com.yahoo.validatar.assertion;
 
-import com.yahoo.validatar.assertion.Expression.BinaryColumnOperation;
-import com.yahoo.validatar.assertion.Expression.UnaryColumnOperation;
 import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Operations;
 import com.yahoo.validatar.common.Result;
 import com.yahoo.validatar.common.TypeSystem;
 import com.yahoo.validatar.common.TypedObject;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.apache.commons.lang3.StringEscapeUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
- * Handles evaluating the parsed Assertion parse tree generated by ANTLR. Evaluating it
+ * Plans the parsed Assertion parse tree generated by ANTLR into an {@link Expression}. Visiting a statement does not
+ * join or read any data. That is only done when the returned Expression is evaluated.
+ *
+ * The same visitor is used for all the assertions of a test. If it is told about all of them first with
+ * {@link #share(List)}, the sub-expressions and the where clauses that appear more than once are only planned once and
+ * their results are reused while the data they are evaluated with stays the same.
  */
 @Slf4j
 public class AssertVisitor extends GrammarBaseVisitor<Expression> {
+    private static final Map<String, Operations.AggregateOperation> AGGREGATES = new HashMap<>();
+    static {
+        AGGREGATES.put("count", Operations.AggregateOperation.COUNT);
+        AGGREGATES.put("countDistinct", Operations.AggregateOperation.COUNT_DISTINCT);
+        AGGREGATES.put("sum", Operations.AggregateOperation.SUM);
+        AGGREGATES.put("min", Operations.AggregateOperation.MIN);
+        AGGREGATES.put("max", Operations.AggregateOperation.MAX);
+        AGGREGATES.put("avg", Operations.AggregateOperation.AVG);
+        AGGREGATES.put("approxDistinct", Operations.AggregateOperation.APPROX_COUNT_DISTINCT);
+        AGGREGATES.put("exists", Operations.AggregateOperation.EXISTS);
+    }
+    private static final Map<String, Operations.WindowOperation> WINDOWS = new HashMap<>();
+    static {
+        WINDOWS.put("lag", Operations.WindowOperation.LAG);
+        WINDOWS.put("lead", Operations.WindowOperation.LEAD);
+        WINDOWS.put("delta", Operations.WindowOperation.DELTA);
+        WINDOWS.put("ratio", Operations.WindowOperation.RATIO);
+    }
+    private static final String QUANTILE = "quantile";
+    private static final String UNIQUE = "unique";
+    private static final String DUPLICATES = "duplicates";
+
     // These are read-only (including values)! Do not modify ever!
     private final Result allData;
-    private final List<Result> results;
+    private final ColumnIndex index;
+
+    // These are shared by the asserts.
+    private final Set<String> sharedExpressions = new HashSet<>();
+    private final Set<String> sharedJoins = new HashSet<>();
+    private final Map<String, Subexpression> subexpressions = new HashMap<>();
+    private final Map<String, Result> joins = new HashMap<>();
 
     // These can change per assert.
     @Getter
@@ -40,6 +79,12 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
     @Getter
     private Set<String> seenIdentifiers;
 
+    @RequiredArgsConstructor
+    private static class Subexpression {
+        private final Expression expression;
+        private final Set<String> identifiers;
+    }
+
     private Column getColumnValue(Result result, String name) {
         Map<String, Column> columns = result.getColumns();
         // Check for no mapping explicitly
@@ -47,40 +92,138 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
             log.error("Column not found: {}.\nAvailable Columns: {}", name, columns.keySet());
             throw new NoSuchElementException("Unable to find value for column: " + name + " in results");
         }
-        Column column = columns.get(name).copy();
-        return column;
+        // Copy on write, so this does not copy the data unless the column is extended later
+        return columns.get(name).copy();
     }
 
     private static String stripQuotes(String literal) {
         return literal.substring(1, literal.length() - 1);
     }
 
-    // This helper function matches the UnaryColumnOperation functional interface
-    private static Column negate(Column column) {
-        Column negativeOnes = TypeSystem.asColumn(TypeSystem.asTypedObject(-1L), column.size());
-        return TypeSystem.perform(Operations.BinaryOperation.MULTIPLY, negativeOnes, column);
+    // Helper to compose perform onto an expression and describe it for the ExpressionCompiler. Folds constants.
+    private static Expression compose(Operations.UnaryOperation operation, Expression expression) {
+        if (expression.isConstant()) {
+            Expression folded = fold(() -> TypeSystem.perform(operation, expression.getConstant()));
+            if (folded != null) {
+                return folded;
+            }
+        }
+        ExpressionCompiler.Node node = ExpressionCompiler.operation(operation, expression.getNode());
+        // If this has a node, its operand was compiled with it and is not compiled again
+        boolean compile = node == null;
+        return new Expression(data -> TypeSystem.perform(operation, expression.evaluate(data, compile)), node);
+    }
+
+    // Helper to compose perform onto two expressions and describe it for the ExpressionCompiler. Folds constants.
+    private static Expression compose(Operations.BinaryOperation operation, Expression a, Expression b) {
+        if (a.isConstant() && b.isConstant()) {
+            Expression folded = fold(() -> TypeSystem.perform(operation, a.getConstant(), b.getConstant()));
+            if (folded != null) {
+                return folded;
+            }
+        }
+        ExpressionCompiler.Node node = ExpressionCompiler.operation(operation, a.getNode(), b.getNode());
+        // If this has a node, its operands were compiled with it and are not compiled again
+        boolean compile = node == null;
+        return new Expression(data -> TypeSystem.perform(operation, a.evaluate(data, compile),
+                                                         b.evaluate(data, compile)), node);
+    }
+
+    // Helper to compose AND or OR onto two expressions, only evaluating the second one where it is still needed. The
+    // identifiers are the columns that the second one uses.
+    private static Expression shortCircuit(Operations.BinaryOperation operation, Expression a, Expression b,
+                                           Set<String> identifiers) {
+        Expression composed = compose(operation, a, b);
+        if (composed.isConstant()) {
+            return composed;
+        }
+        boolean decider = operation == Operations.BinaryOperation.OR;
+        boolean compile = composed.getNode() == null;
+        return new Expression(data -> {
+            Column first = a.evaluate(data, compile);
+            if (!canShortCircuit(first, data, identifiers)) {
+                return TypeSystem.perform(operation, first, b.evaluate(data, compile));
+            }
+            // Only the rows where the first is not false for an AND (not true for an OR) still need the second
+            int size = first.size();
+            Column undecided = new Column(TypeSystem.Type.BOOLEAN);
+            int[] positions = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; ++i) {
+                boolean isUndecided = first.isNull(i) || first.getBoolean(i) != decider;
+                undecided.add(isUndecided);
+                if (isUndecided) {
+                    positions[count++] = i;
+                }
+            }
+            if (count == size) {
+                return TypeSystem.perform(operation, first, b.evaluate(data, compile));
+            }
+            if (count == 0) {
+                return first;
+            }
+            positions = Arrays.copyOf(positions, count);
+            log.debug("Evaluating the rest of {} on {} of {} rows", operation, count, size);
+            Column second = b.evaluate(Result.join(Result.copy(data, identifiers), undecided));
+            Column decided = TypeSystem.perform(operation, first.select(positions), second);
+            Column result = new Column(TypeSystem.Type.BOOLEAN);
+            for (int i = 0, j = 0; i < size; ++i) {
+                result.add(j < count && positions[j] == i ? decided.get(j++) : first.get(i));
+            }
+            return result;
+        }, composed.getNode());
     }
 
-    // Helper to partially apply perform
-    private static UnaryColumnOperation curry(Operations.UnaryOperation operation) {
-        return input -> TypeSystem.perform(operation, input);
+    private static boolean canShortCircuit(Column first, Result data, Set<String> identifiers) {
+        // The rows can only be picked if the columns the second one uses have a row for each value. Other columns in
+        // the data, like the ones from other results when there is no where clause, do not matter.
+        if (data == null || first.isConstant() || first.getType() != TypeSystem.Type.BOOLEAN) {
+            return false;
+        }
+        int size = first.size();
+        Map<String, Column> columns = data.getColumns();
+        return size > 1 && identifiers.stream().allMatch(i -> columns.containsKey(i) && columns.get(i).size() == size);
     }
 
-    // Helper to partially apply perform
-    private static BinaryColumnOperation curry(Operations.BinaryOperation operation) {
-        return (a, b) -> TypeSystem.perform(operation, a, b);
+    private static Expression fold(Supplier<TypedObject> constant) {
+        try {
+            return Expression.wrap(constant.get());
+        } catch (RuntimeException re) {
+            // Leave it to be evaluated, which reports the error as usual
+            log.debug("Could not fold constant expression", re);
+            return null;
+        }
     }
 
-    private static List<Result> findDataSetsToJoin(Set<String> seenIdentifiers, List<Result> results) {
+    // Checks if a value is approximately equal to the constant b by comparing with the bounds computed once.
+    private static Expression approx(Expression a, Expression b, Expression percent) {
+        TypedObject[] bounds;
+        try {
+            bounds = TypeSystem.approxBounds(b.getConstant(), percent.getConstant());
+        } catch (RuntimeException re) {
+            log.debug("Could not find the bounds for approx", re);
+            return null;
+        }
+        Expression min = Expression.wrap(bounds[0]);
+        Expression max = Expression.wrap(bounds[1]);
+        // The value is only evaluated once even though it is compared twice
+        ExpressionCompiler.Node node = ExpressionCompiler.operation(Operations.BinaryOperation.AND,
+                ExpressionCompiler.operation(Operations.BinaryOperation.GREATER_EQUAL, a.getNode(), min.getNode()),
+                ExpressionCompiler.operation(Operations.BinaryOperation.LESS_EQUAL, a.getNode(), max.getNode()));
+        boolean compile = node == null;
+        return new Expression(data -> {
+            Column value = a.evaluate(data, compile);
+            Column aboveMin = TypeSystem.perform(Operations.BinaryOperation.GREATER_EQUAL, value, min.evaluate(data));
+            Column belowMax = TypeSystem.perform(Operations.BinaryOperation.LESS_EQUAL, value, max.evaluate(data));
+            return TypeSystem.perform(Operations.BinaryOperation.AND, aboveMin, belowMax);
+        }, node);
+    }
+
+    private static List<Result> findDataSetsToJoin(Set<String> seenIdentifiers, ColumnIndex index) {
         List<Result> datasets = new ArrayList<>();
         Set<String> resultSets = new HashSet<>();
         for (String identifier : seenIdentifiers) {
-            Optional<Result> result = results.stream().filter(r -> r.hasQualifiedColumn(identifier)).findFirst();
-            if (!result.isPresent()) {
-                log.error("Identifier {} used in join expression not found in results {}", identifier, datasets);
-                throw new RuntimeException("Could not find the result for " + identifier + " to perform the join.");
-            }
-            Result toAdd = result.get();
+            Result toAdd = index.getResult(identifier);
             String name = toAdd.getNamespace();
             if (!resultSets.contains(name)) {
                 resultSets.add(name);
@@ -90,19 +233,247 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
         return datasets;
     }
 
+    private Set<Result> findDataSets(ParseTree tree) {
+        return findIdentifiers(tree, new HashSet<>()).stream().map(index::getResult).collect(Collectors.toSet());
+    }
+
+    private static Set<String> findIdentifiers(ParseTree tree, Set<String> identifiers) {
+        if (tree instanceof GrammarParser.IdentifierContext) {
+            identifiers.add(tree.getText());
+        }
+        // The values looked up in are always from all the data, so their results are not joined
+        if (tree instanceof GrammarParser.InValueContext) {
+            return findIdentifiers(((GrammarParser.InValueContext) tree).r, identifiers);
+        }
+        if (tree instanceof GrammarParser.NotInValueContext) {
+            return findIdentifiers(((GrammarParser.NotInValueContext) tree).r, identifiers);
+        }
+        for (int i = 0; i < tree.getChildCount(); ++i) {
+            findIdentifiers(tree.getChild(i), identifiers);
+        }
+        return identifiers;
+    }
+
+    private static boolean hasAggregate(ParseTree tree) {
+        if (tree instanceof GrammarParser.FunctionValueContext) {
+            String name = ((GrammarParser.FunctionValueContext) tree).f.getText();
+            // Finding duplicates and comparing with other rows needs all the rows too
+            if (AGGREGATES.containsKey(name) || WINDOWS.containsKey(name) || QUANTILE.equals(name) ||
+                UNIQUE.equals(name) || DUPLICATES.equals(name)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < tree.getChildCount(); ++i) {
+            if (hasAggregate(tree.getChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Expression planLookup(ParseTree tree) {
+        // The values to look in are evaluated with all the data instead of the joined rows. So its identifiers are not
+        // seen and do not make their results be joined. The data is always the same, so the values are found once.
+        Set<String> seen = seenIdentifiers;
+        seenIdentifiers = new HashSet<>();
+        try {
+            return visit(tree).memoize();
+        } finally {
+            seenIdentifiers = seen;
+        }
+    }
+
+    private List<Expression> planGroups(GrammarParser.GroupingContext grouping) {
+        return grouping == null ? Collections.emptyList() : planKeys("group by", grouping, grouping.k.o);
+    }
+
+    private List<Expression> planOrder(GrammarParser.OrderingContext ordering) {
+        return ordering == null ? Collections.emptyList() : planKeys("order by", ordering, ordering.k.o);
+    }
+
+    private List<Expression> planKeys(String clause, ParseTree tree, List<GrammarParser.OrExpressionContext> keys) {
+        if (hasAggregate(tree)) {
+            log.error("Found an aggregate in the {} clause {}", clause, tree.getText());
+            throw new UnsupportedOperationException("Aggregates cannot be used in the " + clause + " clause");
+        }
+        return keys.stream().map(this::visit).collect(Collectors.toList());
+    }
+
+    private static Column evaluate(Expression assertion, List<Expression> keys, List<Expression> order, Result data) {
+        Function<Result, Column> check = assertion::evaluate;
+        if (!order.isEmpty()) {
+            // The rows are sorted once, within each group if there are groups, for the window functions to compare
+            check = rows -> Result.orderBy(rows, evaluate(order, rows), assertion::evaluate);
+        }
+        if (keys.isEmpty()) {
+            return check.apply(data);
+        }
+        // The assertion, including its aggregates, is evaluated on the rows of each group by themselves
+        return Result.groupBy(data, evaluate(keys, data), check);
+    }
+
+    private static List<Column> evaluate(List<Expression> expressions, Result data) {
+        return expressions.stream().map(e -> e.evaluate(data)).collect(Collectors.toList());
+    }
+
+    private static void checkArguments(String function, List<?> arguments, int expected) {
+        checkArguments(function, arguments, expected, expected);
+    }
+
+    private static void checkArguments(String function, List<?> arguments, int minimum, int maximum) {
+        if (arguments.size() < minimum || arguments.size() > maximum) {
+            String expected = minimum == maximum ? String.valueOf(minimum) : minimum + " to " + maximum;
+            throw new IllegalArgumentException("Expected " + expected + " argument(s) for " + function + " but found " +
+                                               arguments.size());
+        }
+    }
+
+    private static ParseTree unwrap(ParseTree tree) {
+        // Skip past the rules that just have one child, like an andExpression that is just an equalityExpression
+        while (tree.getChildCount() == 1 && tree.getChild(0) instanceof ParserRuleContext) {
+            tree = tree.getChild(0);
+        }
+        return tree;
+    }
+
+    private static List<ParseTree> findConjuncts(ParseTree tree, List<ParseTree> conjuncts) {
+        tree = unwrap(tree);
+        if (tree instanceof GrammarParser.ParenthesizedValueContext) {
+            return findConjuncts(((GrammarParser.ParenthesizedValueContext) tree).o, conjuncts);
+        }
+        if (tree instanceof GrammarParser.AndValueContext) {
+            GrammarParser.AndValueContext and = (GrammarParser.AndValueContext) tree;
+            findConjuncts(and.a, conjuncts);
+            return findConjuncts(and.e, conjuncts);
+        }
+        conjuncts.add(tree);
+        return conjuncts;
+    }
+
+    private JoinPlanner.Condition asCondition(ParseTree conjunct) {
+        ParseTree left = null;
+        ParseTree right = null;
+        Operations.BinaryOperation operation = null;
+        if (conjunct instanceof GrammarParser.EqualityValueContext) {
+            GrammarParser.EqualityValueContext equality = (GrammarParser.EqualityValueContext) conjunct;
+            left = equality.e;
+            right = equality.r;
+            operation = Operations.BinaryOperation.EQUAL;
+        } else if (conjunct instanceof GrammarParser.GreaterValueContext) {
+            GrammarParser.GreaterValueContext greater = (GrammarParser.GreaterValueContext) conjunct;
+            left = greater.r;
+            right = greater.a;
+            operation = Operations.BinaryOperation.GREATER;
+        } else if (conjunct instanceof GrammarParser.GreaterEqualValueContext) {
+            GrammarParser.GreaterEqualValueContext greaterEqual = (GrammarParser.GreaterEqualValueContext) conjunct;
+            left = greaterEqual.r;
+            right = greaterEqual.a;
+            operation = Operations.BinaryOperation.GREATER_EQUAL;
+        } else if (conjunct instanceof GrammarParser.LessValueContext) {
+            GrammarParser.LessValueContext less = (GrammarParser.LessValueContext) conjunct;
+            left = less.r;
+            right = less.a;
+            operation = Operations.BinaryOperation.LESS;
+        } else if (conjunct instanceof GrammarParser.LessEqualValueContext) {
+            GrammarParser.LessEqualValueContext lessEqual = (GrammarParser.LessEqualValueContext) conjunct;
+            left = lessEqual.r;
+            right = lessEqual.a;
+            operation = Operations.BinaryOperation.LESS_EQUAL;
+        }
+        if (operation != null) {
+            Set<Result> leftDatasets = findDataSets(left);
+            Set<Result> rightDatasets = findDataSets(right);
+            if (!leftDatasets.isEmpty() && !rightDatasets.isEmpty() && Collections.disjoint(leftDatasets, rightDatasets)) {
+                Expression leftExpression = visit(left);
+                Expression rightExpression = visit(right);
+                Expression expression = compose(operation, leftExpression, rightExpression);
+                return new JoinPlanner.Condition(expression, operation,
+                                                 new JoinPlanner.Operand(leftExpression, left.getText(), leftDatasets),
+                                                 new JoinPlanner.Operand(rightExpression, right.getText(), rightDatasets));
+            }
+        }
+        return new JoinPlanner.Condition(visit(conjunct), findDataSets(conjunct));
+    }
+
+    private static void countSubexpressions(ParseTree tree, Map<String, Integer> expressions,
+                                            Map<String, Integer> whereClauses) {
+        if (tree instanceof GrammarParser.JoinValueContext) {
+            whereClauses.merge(((GrammarParser.JoinValueContext) tree).j.getText(), 1, Integer::sum);
+        } else if (isSubexpression(tree)) {
+            expressions.merge(tree.getText(), 1, Integer::sum);
+        }
+        for (int i = 0; i < tree.getChildCount(); ++i) {
+            countSubexpressions(tree.getChild(i), expressions, whereClauses);
+        }
+    }
+
+    private static boolean isSubexpression(ParseTree tree) {
+        // Only operations are worth sharing. Not literals or identifiers, or the rules that just wrap one other rule.
+        return tree instanceof ParserRuleContext && !(tree instanceof GrammarParser.StatementContext) &&
+               tree.getChildCount() > 1;
+    }
+
+    private static void addIfRepeated(Set<String> shared, String text, int count) {
+        if (count > 1) {
+            shared.add(text);
+        }
+    }
+
+    private Result join(JoinPlanner planner, String whereClause, List<Result> resultsToJoin) {
+        if (!sharedJoins.contains(whereClause)) {
+            return planner.join(resultsToJoin);
+        }
+        // The asserts using the same where clause may still join different results
+        String key = resultsToJoin.stream().map(Result::getNamespace).sorted()
+                                  .collect(Collectors.joining(",", whereClause + " on ", ""));
+        Result joined = joins.get(key);
+        if (joined == null) {
+            joined = planner.join(resultsToJoin);
+            joins.put(key, joined);
+        } else {
+            log.info("Reusing the join for {}", key);
+        }
+        return joined;
+    }
+
     /**
      * Creates a vistor to walk the assertion parse tree.
      *
      * @param results A non-null {@link List} of {@link Result}.
      */
     public AssertVisitor(List<Result> results) {
-        Objects.requireNonNull(results);
+        this(new ColumnIndex(results));
+    }
 
-        this.results = results;
-        allData = results.stream().collect(Result::new, Result::merge, Result::merge);
+    /**
+     * Creates a vistor to walk the assertion parse tree using an index of the results that may be shared with other
+     * visitors.
+     *
+     * @param index A non-null {@link ColumnIndex} of the results.
+     */
+    public AssertVisitor(ColumnIndex index) {
+        Objects.requireNonNull(index);
+
+        this.index = index;
+        allData = index.getAllData();
         reset();
     }
 
+    /**
+     * Finds the sub-expressions and where clauses that appear more than once in the given statements. These are then
+     * planned once and their results are reused when visiting the statements.
+     *
+     * @param statements The {@link List} of parsed statements that will be visited.
+     */
+    public void share(List<? extends ParseTree> statements) {
+        Map<String, Integer> expressions = new HashMap<>();
+        Map<String, Integer> whereClauses = new HashMap<>();
+        statements.forEach(s -> countSubexpressions(s, expressions, whereClauses));
+        expressions.forEach((text, count) -> addIfRepeated(sharedExpressions, text, count));
+        whereClauses.forEach((text, count) -> addIfRepeated(sharedJoins, text, count));
+        log.info("Sharing sub-expressions {} and where clauses {}", sharedExpressions, sharedJoins);
+    }
+
     /**
      * Resets the visited state. Call after each walk from the top-level statement.
      */
@@ -111,6 +482,28 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
         joinedResult = new Result();
     }
 
+    @Override
+    public Expression visit(ParseTree tree) {
+        ParseTree unwrapped = unwrap(tree);
+        if (tree instanceof GrammarParser.StatementContext || !isSubexpression(unwrapped)) {
+            return super.visit(tree);
+        }
+        String text = unwrapped.getText();
+        if (!sharedExpressions.contains(text)) {
+            return super.visit(tree);
+        }
+        Subexpression subexpression = subexpressions.get(text);
+        if (subexpression == null) {
+            subexpression = new Subexpression(super.visit(tree).memoize(), findIdentifiers(unwrapped, new HashSet<>()));
+            subexpressions.put(text, subexpression);
+        } else {
+            log.debug("Reusing the sub-expression {}", text);
+        }
+        // Nothing below is visited, so the identifiers it uses are added here
+        seenIdentifiers.addAll(subexpression.identifiers);
+        return subexpression.expression;
+    }
+
     @Override
     public Expression visitTruthy(GrammarParser.TruthyContext context) {
         String bool = context.getText();
@@ -158,7 +551,7 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
         String text = context.getText();
         seenIdentifiers.add(text);
         // We want to return an expression which will pull the value from a data set that we will pass in later.
-        return new Expression(data -> getColumnValue(data, text));
+        return Expression.operand(data -> getColumnValue(data, text), ExpressionCompiler.column(text));
     }
 
     @Override
@@ -166,9 +559,65 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
         Expression a = visit(context.l);
         Expression b = visit(context.r);
         Expression percent = visit(context.p);
+        if (b.isConstant() && percent.isConstant()) {
+            Expression bounded = approx(a, b, percent);
+            if (bounded != null) {
+                return bounded;
+            }
+        }
         return new Expression(data -> TypeSystem.approx(a.evaluate(data), b.evaluate(data), percent.evaluate(data)));
     }
 
+    @Override
+    public Expression visitIsNullValue(GrammarParser.IsNullValueContext context) {
+        Expression expression = visit(context.o);
+        return Expression.compose(Column::nullMask, expression);
+    }
+
+    @Override
+    public Expression visitIsNotNullValue(GrammarParser.IsNotNullValueContext context) {
+        Expression expression = visit(context.o);
+        return Expression.compose(c -> TypeSystem.perform(Operations.UnaryOperation.NOT, c.nullMask()), expression);
+    }
+
+    @Override
+    public Expression visitFunctionValue(GrammarParser.FunctionValueContext context) {
+        String name = context.f.getText();
+        List<GrammarParser.OrExpressionContext> arguments = context.a.o;
+        if (QUANTILE.equals(name)) {
+            checkArguments(name, arguments, 2);
+            Expression expression = visit(arguments.get(0));
+            Expression fraction = visit(arguments.get(1));
+            return Expression.compose(TypeSystem::quantile, expression, fraction);
+        }
+        if (UNIQUE.equals(name) || DUPLICATES.equals(name)) {
+            List<Expression> keys = arguments.stream().map(this::visit).collect(Collectors.toList());
+            Expression duplicates = new Expression(data -> TypeSystem.duplicates(evaluate(keys, data)));
+            if (DUPLICATES.equals(name)) {
+                return duplicates;
+            }
+            return Expression.compose(c -> TypeSystem.perform(Operations.UnaryOperation.NOT, c), duplicates);
+        }
+        Operations.WindowOperation window = WINDOWS.get(name);
+        if (window != null) {
+            checkArguments(name, arguments, 1, 2);
+            Expression expression = visit(arguments.get(0));
+            // The offset is one row if it is not given
+            Expression offset = arguments.size() == 1 ? Expression.wrap(TypeSystem.asTypedObject(1L)) :
+                                                        visit(arguments.get(1));
+            return Expression.compose((c, o) -> TypeSystem.window(window, c, o), expression, offset);
+        }
+        Operations.AggregateOperation aggregate = AGGREGATES.get(name);
+        if (aggregate == null) {
+            log.error("Unknown function {}. Known functions are {}, {}, {}, {} and {}", name, AGGREGATES.keySet(),
+                      WINDOWS.keySet(), QUANTILE, UNIQUE, DUPLICATES);
+            throw new UnsupportedOperationException("Unknown function " + name);
+        }
+        checkArguments(name, arguments, 1);
+        Expression expression = visit(arguments.get(0));
+        return Expression.compose(c -> TypeSystem.aggregate(aggregate, c), expression);
+    }
+
     @Override
     public Expression visitParenthesizedValue(GrammarParser.ParenthesizedValueContext context) {
         return visit(context.orExpression());
@@ -178,139 +627,178 @@ public class AssertVisitor extends GrammarBaseVisitor<Expression> {
     public Expression visitNegateValue(GrammarParser.NegateValueContext context) {
         Expression expression = visit(context.baseExpression());
         boolean hasMinus = context.MINUS() != null;
-        return hasMinus ? Expression.compose(AssertVisitor::negate, expression) : expression;
+        Expression negativeOne = Expression.wrap(TypeSystem.asTypedObject(-1L));
+        return hasMinus ? compose(Operations.BinaryOperation.MULTIPLY, negativeOne, expression) : expression;
     }
 
     @Override
     public Expression visitLogicalNegateValue(GrammarParser.LogicalNegateValueContext context) {
         Expression expression = visit(context.baseExpression());
-        return Expression.compose(curry(Operations.UnaryOperation.NOT), expression);
+        return compose(Operations.UnaryOperation.NOT, expression);
     }
 
     @Override
     public Expression visitMultiplyValue(GrammarParser.MultiplyValueContext context) {
         Expression left = visit(context.multiplicativeExpression());
         Expression right = visit(context.unaryExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.MULTIPLY), left, right);
+        return compose(Operations.BinaryOperation.MULTIPLY, left, right);
     }
 
     @Override
     public Expression visitDivideValue(GrammarParser.DivideValueContext context) {
         Expression left = visit(context.multiplicativeExpression());
         Expression right = visit(context.unaryExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.DIVIDE), left, right);
+        return compose(Operations.BinaryOperation.DIVIDE, left, right);
     }
 
     @Override
     public Expression visitModValue(GrammarParser.ModValueContext context) {
         Expression left = visit(context.multiplicativeExpression());
         Expression right = visit(context.unaryExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.MODULUS), left, right);
+        return compose(Operations.BinaryOperation.MODULUS, left, right);
     }
 
     @Override
     public Expression visitAddValue(GrammarParser.AddValueContext context) {
         Expression left = visit(context.additiveExpression());
         Expression right = visit(context.multiplicativeExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.ADD), left, right);
+        return compose(Operations.BinaryOperation.ADD, left, right);
     }
 
     @Override
     public Expression visitSubtractValue(GrammarParser.SubtractValueContext context) {
         Expression left = visit(context.additiveExpression());
         Expression right = visit(context.multiplicativeExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.SUBTRACT), left, right);
+        return compose(Operations.BinaryOperation.SUBTRACT, left, right);
     }
 
     @Override
     public Expression visitGreaterValue(GrammarParser.GreaterValueContext context) {
         Expression left = visit(context.relationalExpression());
         Expression right = visit(context.additiveExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.GREATER), left, right);
+        return compose(Operations.BinaryOperation.GREATER, left, right);
     }
 
     @Override
     public Expression visitLessValue(GrammarParser.LessValueContext context) {
         Expression left = visit(context.relationalExpression());
         Expression right = visit(context.additiveExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.LESS), left, right);
+        return compose(Operations.BinaryOperation.LESS, left, right);
     }
 
     @Override
     public Expression visitLessEqualValue(GrammarParser.LessEqualValueContext context) {
         Expression left = visit(context.relationalExpression());
         Expression right = visit(context.additiveExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.LESS_EQUAL), left, right);
+        return compose(Operations.BinaryOperation.LESS_EQUAL, left, right);
     }
 
     @Override
     public Expression visitGreaterEqualValue(GrammarParser.GreaterEqualValueContext context) {
         Expression left = visit(context.relationalExpression());
         Expression right = visit(context.additiveExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.GREATER_EQUAL), left, right);
+        return compose(Operations.BinaryOperation.GREATER_EQUAL, left, right);
+    }
+
+    @Override
+    public Expression visitInValue(GrammarParser.InValueContext context) {
+        Expression left = visit(context.relationalExpression());
+        Expression lookup = planLookup(context.additiveExpression());
+        return new Expression(data -> TypeSystem.in(left.evaluate(data), lookup.evaluate(allData)));
+    }
+
+    @Override
+    public Expression visitNotInValue(GrammarParser.NotInValueContext context) {
+        Expression left = visit(context.relationalExpression());
+        Expression lookup = planLookup(context.additiveExpression());
+        return new Expression(data -> TypeSystem.perform(Operations.UnaryOperation.NOT,
+                                                         TypeSystem.in(left.evaluate(data), lookup.evaluate(allData))));
     }
 
     @Override
     public Expression visitEqualityValue(GrammarParser.EqualityValueContext context) {
         Expression left = visit(context.equalityExpression());
         Expression right = visit(context.relationalExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.EQUAL), left, right);
+        return compose(Operations.BinaryOperation.EQUAL, left, right);
     }
 
     @Override
     public Expression visitNotEqualityValue(GrammarParser.NotEqualityValueContext context) {
         Expression left = visit(context.equalityExpression());
         Expression right = visit(context.relationalExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.NOT_EQUAL), left, right);
+        return compose(Operations.BinaryOperation.NOT_EQUAL, left, right);
     }
 
     @Override
     public Expression visitAndValue(GrammarParser.AndValueContext context) {
         Expression left = visit(context.andExpression());
         Expression right = visit(context.equalityExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.AND), left, right);
+        // An aggregate must see all the rows, not just the ones the left side does not decide
+        if (hasAggregate(context.equalityExpression())) {
+            return compose(Operations.BinaryOperation.AND, left, right);
+        }
+        return shortCircuit(Operations.BinaryOperation.AND, left, right,
+                            findIdentifiers(context.equalityExpression(), new HashSet<>()));
     }
 
     @Override
     public Expression visitOrValue(GrammarParser.OrValueContext context) {
         Expression left = visit(context.orExpression());
         Expression right = visit(context.andExpression());
-        return Expression.compose(curry(Operations.BinaryOperation.OR), left, right);
+        if (hasAggregate(context.andExpression())) {
+            return compose(Operations.BinaryOperation.OR, left, right);
+        }
+        return shortCircuit(Operations.BinaryOperation.OR, left, right,
+                            findIdentifiers(context.andExpression(), new HashSet<>()));
     }
 
     @Override
     public Expression visitBaseOrValue(GrammarParser.BaseOrValueContext context) {
         Expression assertion = visit(context.orExpression());
-
-        // No join to do when just assertion
-        joinedResult = allData;
-
-        return Expression.wrap(assertion.evaluate(joinedResult));
+        List<Expression> keys = planGroups(context.g);
+        List<Expression> order = planOrder(context.s);
+        // The columns of the other results may have a different number of rows, so only the ones used are grouped
+        Set<String> columns = new HashSet<>(seenIdentifiers);
+
+        return new Expression(ignored -> {
+            // No join to do when just assertion
+            joinedResult = allData;
+            if (keys.isEmpty() && order.isEmpty()) {
+                return assertion.evaluate(joinedResult);
+            }
+            return evaluate(assertion, keys, order, Result.copy(joinedResult, columns));
+        });
     }
 
     @Override
     public Expression visitJoinValue(GrammarParser.JoinValueContext context) {
-        // Visit and build the expression tree for the join expression
-        Expression join = visit(context.j);
+        // The conditions are checked on parts of the data, so an aggregate in them would not be over all the rows
+        if (hasAggregate(context.j)) {
+            log.error("Found an aggregate in the where clause {}", context.j.getText());
+            throw new UnsupportedOperationException("Aggregates cannot be used in the where clause");
+        }
+        // Split the join expression into the conditions that must all be true and build the expression tree for each
+        JoinPlanner planner = new JoinPlanner();
+        for (ParseTree conjunct : findConjuncts(context.j, new ArrayList<>())) {
+            planner.add(asCondition(conjunct));
+        }
 
-        // Do the same for the assert statement
+        // Do the same for the assert statement and the keys to group and sort by
         Expression assertion = visit(context.o);
+        List<Expression> keys = planGroups(context.g);
+        List<Expression> order = planOrder(context.s);
 
         // All identifiers seen so far indicate the results we need to join
-        List<Result> resultsToJoin = findDataSetsToJoin(seenIdentifiers, results);
-
-        // Use those results to do a cartesian product.
-        log.info("Starting joins on {}", resultsToJoin);
-        Result cartesianProduct = Result.cartesianProduct(resultsToJoin);
-
-        // Evaluate the join expression on the cartesian product
-        Column joinResult = join.evaluate(cartesianProduct);
+        List<Result> resultsToJoin = findDataSetsToJoin(seenIdentifiers, index);
 
-        // The rows for which the expression is true have successfully joined
-        joinedResult = Result.join(cartesianProduct, joinResult);
-        log.info("Joined dataset for assertion: \n{}", joinedResult.prettyPrint());
+        return new Expression(ignored -> {
+            // Conditions on one result filter it first. Equalities and then inequalities between results are joined.
+            log.info("Starting joins on {}", resultsToJoin);
+            joinedResult = join(planner, context.j.getText(), resultsToJoin);
+            log.info("Joined dataset for assertion: \n{}", joinedResult.prettyPrint());
 
-        // Evaluate the assert statement using the joined data and return the result as an expression.
-        return Expression.wrap(assertion.evaluate(joinedResult));
+            // Evaluate the assert statement using the joined data.
+            return evaluate(assertion, keys, order, joinedResult);
+        });
     }
 }
@@ -8,16 +8,40 @@ import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Result;
 import com.yahoo.validatar.common.Test;
 import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class Assertor {
     public static final String RESULT_COLUMN = "";
+
+    // The number of parse trees kept. The least recently used ones are dropped past this.
+    static final int STATEMENT_CACHE_SIZE = 1024;
+
+    // Parse trees are only read after parsing, so they are shared by every run of the same assertion text.
+    private static final Map<String, GrammarParser.StatementContext> STATEMENTS =
+        Collections.synchronizedMap(new LinkedHashMap<String, GrammarParser.StatementContext>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GrammarParser.StatementContext> eldest) {
+                return size() > STATEMENT_CACHE_SIZE;
+            }
+        });
+
     /**
      * Takes a Results object and a List of Test, performs the assertions and updates the Tests with the results.
      *
@@ -25,10 +49,41 @@ public class Assertor {
      * @param tests   A {@link List} of {@link Test} using these results.
      */
     public static void assertAll(List<Result> results, List<Test> tests) {
-        tests.stream().forEach(t -> checkAssertions(results, t));
+        assertAll(results, tests, 1);
     }
 
-    private static void checkAssertions(List<Result> results, Test test) {
+    /**
+     * Takes a Results object and a List of Test, performs the assertions and updates the Tests with the results. The
+     * Tests are checked concurrently on a {@link ForkJoinPool} of the given size. The results are only read, so they are
+     * shared by all the Tests.
+     *
+     * @param results     A {@link List} of {@link Result} object containing the results of the queries.
+     * @param tests       A {@link List} of {@link Test} using these results.
+     * @param parallelism The maximum number of Tests to check at once. If 1 or less, the Tests are checked in order.
+     */
+    public static void assertAll(List<Result> results, List<Test> tests, int parallelism) {
+        // The index is only read by the tests so it is built once for all of them
+        ColumnIndex index = new ColumnIndex(results);
+        if (parallelism <= 1 || tests.size() <= 1) {
+            tests.stream().forEach(t -> checkAssertions(index, t));
+            return;
+        }
+        log.info("Creating a ForkJoinPool with size {} for assertions", parallelism);
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        try {
+            forkJoinPool.submit(() -> tests.parallelStream().forEach(t -> checkAssertions(index, t))).get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while checking assertions", ie);
+        } catch (ExecutionException ee) {
+            throw new RuntimeException("Unable to check assertions", ee.getCause());
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    private static void checkAssertions(ColumnIndex index, Test test) {
+        // The visitor holds the state of the assertion being checked, so each Test needs its own
         List<String> assertions = test.asserts;
         // Check for invalid input
         if (assertions == null || assertions.size() == 0) {
@@ -36,19 +91,17 @@ public class Assertor {
             test.addMessage("No assertion was provided!");
             return;
         }
-        AssertVisitor visitor = new AssertVisitor(results);
+        AssertVisitor visitor = new AssertVisitor(index);
+        // Plan the asserts together so that what they have in common is only computed once
+        visitor.share(assertions.stream().map(Assertor::parse).collect(Collectors.toList()));
         assertions.stream().forEach(a -> checkAssertion(a, visitor, test));
     }
 
     private static void checkAssertion(String assertion, AssertVisitor visitor, Test test) {
         log.info("Running assertion: {}", assertion);
         try {
-            CharStream in = CharStreams.fromString(assertion);
-            GrammarLexer lexer = new GrammarLexer(in);
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            GrammarParser parser = new GrammarParser(tokens);
-
-            Expression expression = visitor.visit(parser.statement());
+            // Planning builds the expression tree and the joins to do but does not touch the data.
+            Expression expression = visitor.visit(parse(assertion));
             // This expression will evaluate to a boolean Column of true or false TypedObjects. It needs no data.
             Column result = expression.evaluate();
 
@@ -57,6 +110,11 @@ public class Assertor {
                 Result joined = visitor.getJoinedResult();
                 Result releventData = Result.copy(joined, columnsSeen);
                 releventData.addQualifiedColumn(RESULT_COLUMN, result);
+                // When there is a result for each row, only the rows that failed are relevant. The columns seen can
+                // come from results of different sizes though, in which case there are no rows to pick from.
+                if (result.isVector() && hasRows(releventData, result.size())) {
+                    releventData = Result.join(releventData, failures(result));
+                }
 
                 String assertionMessage = "Assertion " + assertion + " was false";
                 String resultsMessage = "Result had false values: " + result;
@@ -84,7 +142,59 @@ public class Assertor {
         }
     }
 
+    /**
+     * Parses an assertion into its statement parse tree. The trees of the last {@link #STATEMENT_CACHE_SIZE} assertions
+     * used are cached by the assertion text.
+     *
+     * @param assertion The assertion to parse.
+     * @return The parsed {@link GrammarParser.StatementContext}.
+     */
+    static GrammarParser.StatementContext parse(String assertion) {
+        GrammarParser.StatementContext statement = STATEMENTS.get(assertion);
+        if (statement == null) {
+            // Parsed outside the lock. If another thread parses the same assertion, either tree can be used.
+            statement = parseStatement(assertion);
+            STATEMENTS.put(assertion, statement);
+        }
+        return statement;
+    }
+
+    private static GrammarParser.StatementContext parseStatement(String assertion) {
+        CharStream in = CharStreams.fromString(assertion);
+        GrammarLexer lexer = new GrammarLexer(in);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        GrammarParser parser = new GrammarParser(tokens);
+
+        // SLL prediction is faster and enough for almost all assertions. It gives up on the first syntax error.
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return parser.statement();
+        } catch (ParseCancellationException pce) {
+            log.debug("SLL parsing failed for {}. Retrying with LL...", assertion);
+        }
+        // Full LL prediction with the default error reporting and recovery
+        tokens.seek(0);
+        parser.reset();
+        parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.statement();
+    }
+
+    private static boolean hasRows(Result data, int rows) {
+        return data.getColumns().values().stream().allMatch(c -> c.size() == rows);
+    }
+
+    private static Column failures(Column result) {
+        Column failures = new Column();
+        result.stream().forEach(t -> failures.add(t == null || !((Boolean) t.data)));
+        return failures;
+    }
+
     private static boolean hasFailures(Column result) {
-        return result.stream().anyMatch(t -> !((Boolean) t.data));
+        // A null is neither true nor false so it fails the assertion as well.
+        return result.stream().anyMatch(t -> t == null || !((Boolean) t.data));
     }
 }
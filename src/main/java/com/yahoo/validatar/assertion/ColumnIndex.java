@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.assertion;
+
+import com.yahoo.validatar.common.Result;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An index of the columns in the {@link Result} of the queries by their qualified names, like {@code A.id}. It is built
+ * once after the queries are done and is shared by all the tests checked with those results. Nothing in it, including
+ * the columns, may be changed after it is built.
+ */
+@Slf4j
+public class ColumnIndex {
+    @Getter
+    private final List<Result> results;
+    // All the columns together. A column name in more than one result is the column in the last one.
+    @Getter
+    private final Result allData;
+    // The result a column is from. A column name in more than one result is from the first one.
+    private final Map<String, Result> owners;
+
+    /**
+     * Indexes the columns in the given results.
+     *
+     * @param results A non-null {@link List} of {@link Result}. It should not be changed afterwards.
+     */
+    public ColumnIndex(List<Result> results) {
+        Objects.requireNonNull(results);
+
+        this.results = Collections.unmodifiableList(results);
+        allData = new Result();
+        Map<String, Result> owners = new HashMap<>();
+        for (Result result : results) {
+            allData.merge(result);
+            result.getColumns().keySet().forEach(name -> owners.putIfAbsent(name, result));
+        }
+        this.owners = Collections.unmodifiableMap(owners);
+    }
+
+    /**
+     * Finds the {@link Result} that has a column with the given qualified name.
+     *
+     * @param identifier The qualified name of a column.
+     * @return The Result the column is from.
+     * @throws RuntimeException if no result has that column.
+     */
+    public Result getResult(String identifier) {
+        Result result = owners.get(identifier);
+        if (result == null) {
+            log.error("Identifier {} used in join expression not found in results {}", identifier, results);
+            throw new RuntimeException("Could not find the result for " + identifier + " to perform the join.");
+        }
+        return result;
+    }
+}
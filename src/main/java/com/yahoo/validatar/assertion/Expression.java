@@ -7,16 +7,89 @@ package com.yahoo.validatar.assertion;
 import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Result;
 import com.yahoo.validatar.common.TypedObject;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import java.util.function.Function;
 
 /**
  * This class wraps an tree of Expressions to evaluate later with some context (data). Essentially a State Monad.
+ *
+ * An Expression can also describe what it computes as an {@link ExpressionCompiler.Node}. If it does and the node can
+ * be compiled for the data, evaluating it runs the compiled node instead. An Expression created with
+ * {@link #operand(Function, ExpressionCompiler.Node)}, like reading a column, is never compiled by itself but only as
+ * part of the operations on it. The operands of a compiled Expression should be evaluated with
+ * {@link #evaluate(Result, boolean)} so that they are not compiled again if it does not compile.
+ *
+ * An Expression created with {@link #wrap(TypedObject)} is a constant. It does not need any data to be evaluated.
+ *
+ * An Expression that is used more than once can be {@link #memoize()}d, so that evaluating it again with the same data
+ * returns the same result without evaluating it again.
  */
-@RequiredArgsConstructor
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class Expression {
     private final Function<Result, Column> expression;
+    @Getter(AccessLevel.PACKAGE)
+    private final ExpressionCompiler.Node node;
+    // True if the node only describes this for the operations on it and is not compiled by itself
+    private final boolean operand;
+    // The value if this is a constant
+    @Getter(AccessLevel.PACKAGE)
+    private final TypedObject constant;
+    private final boolean memoized;
+    // The last data this was evaluated with and the result, if memoized
+    private volatile Evaluation last;
+
+    @RequiredArgsConstructor
+    private static class Evaluation {
+        private final Result data;
+        private final Column result;
+    }
+
+    private Expression(Function<Result, Column> expression, ExpressionCompiler.Node node, boolean operand,
+                       TypedObject constant) {
+        this(expression, node, operand, constant, false);
+    }
+
+    /**
+     * Creates an Expression that cannot be compiled.
+     *
+     * @param expression The function that evaluates this expression.
+     */
+    public Expression(Function<Result, Column> expression) {
+        this(expression, null, false, null);
+    }
+
+    /**
+     * Creates an Expression that can be compiled.
+     *
+     * @param expression The function that evaluates this expression.
+     * @param node The {@link ExpressionCompiler.Node} describing what the function computes.
+     */
+    public Expression(Function<Result, Column> expression, ExpressionCompiler.Node node) {
+        this(expression, node, false, null);
+    }
+
+    /**
+     * Creates an Expression that is not compiled by itself but can be compiled as part of an operation on it.
+     *
+     * @param expression The function that evaluates this expression.
+     * @param node The {@link ExpressionCompiler.Node} describing what the function computes.
+     * @return The created Expression.
+     */
+    public static Expression operand(Function<Result, Column> expression, ExpressionCompiler.Node node) {
+        return new Expression(expression, node, true, null);
+    }
+
+    /**
+     * Checks to see if this is a constant, which does not need any data to be evaluated.
+     *
+     * @return A boolean denoting whether this is a constant.
+     */
+    public boolean isConstant() {
+        return constant != null;
+    }
 
     /**
      * Evaluates the expression with the given data result and returns the result.
@@ -25,7 +98,36 @@ public class Expression {
      * @return The resulting {@link Column}.
      */
     public Column evaluate(Result result) {
-        return expression.apply(result);
+        return evaluate(result, true);
+    }
+
+    /**
+     * Evaluates the expression with the given data result and returns the result.
+     *
+     * @param result The {@link Result} that is the data for this expression.
+     * @param compile False if this is part of an Expression that already tried to compile it for the data.
+     * @return The resulting {@link Column}.
+     */
+    Column evaluate(Result result, boolean compile) {
+        Evaluation evaluation = last;
+        if (evaluation != null && evaluation.data == result) {
+            return evaluation.result;
+        }
+        Column column = compile ? compute(result) : expression.apply(result);
+        if (memoized) {
+            last = new Evaluation(result, column);
+        }
+        return column;
+    }
+
+    /**
+     * Creates an Expression that evaluates to the same as this one but remembers the result for the last data it was
+     * evaluated with. The result should not be changed since it is returned again for the same data.
+     *
+     * @return The memoized Expression or this if it is a constant.
+     */
+    public Expression memoize() {
+        return isConstant() || memoized ? this : new Expression(expression, node, operand, constant, true);
     }
 
     /**
@@ -34,7 +136,17 @@ public class Expression {
      * @return The resulting {@link Column}.
      */
     public Column evaluate() {
-        return expression.apply(null);
+        return evaluate(null);
+    }
+
+    private Column compute(Result result) {
+        if (node != null && !operand && result != null) {
+            Column compiled = ExpressionCompiler.evaluate(node, result);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+        return expression.apply(result);
     }
 
     /**
@@ -78,7 +190,8 @@ public class Expression {
      * @return An Expression.
      */
     public static Expression wrap(TypedObject input) {
-        return wrap(new Column(input));
+        Column column = new Column(input);
+        return new Expression(d -> column, ExpressionCompiler.literal(input), true, input);
     }
 
     /*
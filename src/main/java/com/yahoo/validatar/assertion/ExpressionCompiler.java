@@ -0,0 +1,343 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.assertion;
+
+import com.yahoo.validatar.common.Column;
+import com.yahoo.validatar.common.Operations.BinaryOperation;
+import com.yahoo.validatar.common.Operations.UnaryOperation;
+import com.yahoo.validatar.common.Result;
+import com.yahoo.validatar.common.TypeSystem.Type;
+import com.yahoo.validatar.common.TypedObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Compiles a tree of operations on {@link Type#LONG}, {@link Type#DOUBLE} and {@link Type#BOOLEAN} values into one
+ * loop over the rows. The columns used are read as the primitive arrays they are stored in and the operator for each
+ * node is picked when compiling, using the types of the columns. Evaluating something like {@code A.x * 2 + A.y < A.z}
+ * then does not create a {@link Column} or a {@link TypedObject} for each intermediate result or go through the
+ * {@link com.yahoo.validatar.common.TypeSystem} for each value. The result is written into an array that backs the
+ * resulting Column.
+ *
+ * Only an {@link Expression} for an operation is compiled. Reading a column on its own is already cheap.
+ *
+ * Compiling is optional. A tree with anything else in it, like strings, decimals, nulls or operations that are not
+ * defined for the types, does not compile and is evaluated one {@link Expression} at a time as usual instead. That
+ * also reports any errors.
+ */
+@Slf4j
+public class ExpressionCompiler {
+    /**
+     * Describes what an {@link Expression} computes so that it can be compiled.
+     */
+    @FunctionalInterface
+    public interface Node {
+        /**
+         * Compiles this node for the given data.
+         *
+         * @param compilation The data and the number of rows being compiled for.
+         * @return The compiled {@link Kernel} or null if this cannot be compiled for the data.
+         */
+        Kernel compile(Compilation compilation);
+    }
+
+    /**
+     * The data that a {@link Node} is compiled for. It also tracks the number of rows in the columns used.
+     */
+    public static class Compilation {
+        private final Result data;
+        private int size = -1;
+
+        private Compilation(Result data) {
+            this.data = data;
+        }
+
+        private boolean hasSize(int rows) {
+            if (size == -1) {
+                size = rows;
+            }
+            return size == rows;
+        }
+    }
+
+    /**
+     * A compiled node. It computes the value for a row as one of a long, a double or a boolean.
+     */
+    public static class Kernel {
+        private final Type type;
+        private final IntToLongFunction longs;
+        private final IntToDoubleFunction doubles;
+        private final IntPredicate booleans;
+
+        private Kernel(Type type, IntToLongFunction longs, IntToDoubleFunction doubles, IntPredicate booleans) {
+            this.type = type;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.booleans = booleans;
+        }
+
+        private static Kernel longs(IntToLongFunction longs) {
+            return new Kernel(Type.LONG, longs, null, null);
+        }
+
+        private static Kernel doubles(IntToDoubleFunction doubles) {
+            return new Kernel(Type.DOUBLE, null, doubles, null);
+        }
+
+        private static Kernel booleans(IntPredicate booleans) {
+            return new Kernel(Type.BOOLEAN, null, null, booleans);
+        }
+
+        private IntToDoubleFunction asDoubles() {
+            if (type == Type.DOUBLE) {
+                return doubles;
+            }
+            IntToLongFunction values = longs;
+            return row -> values.applyAsLong(row);
+        }
+    }
+
+    /**
+     * Creates a {@link Node} that reads a column from the data.
+     *
+     * @param name The name of the column.
+     * @return The created node.
+     */
+    public static Node column(String name) {
+        return compilation -> {
+            Map<String, Column> columns = compilation.data.getColumns();
+            Column column = columns.get(name);
+            if (column == null || column.isEmpty() || column.nullCount() > 0) {
+                return null;
+            }
+            if (column.size() == 1 || column.isConstant()) {
+                return literal(column.first()).compile(compilation);
+            }
+            return compilation.hasSize(column.size()) ? read(column) : null;
+        };
+    }
+
+    /**
+     * Creates a {@link Node} for a value that is the same for every row.
+     *
+     * @param value The value.
+     * @return The created node.
+     */
+    public static Node literal(TypedObject value) {
+        return compilation -> {
+            switch (value.type) {
+                case LONG:
+                    long longValue = (Long) value.data;
+                    return Kernel.longs(row -> longValue);
+                case DOUBLE:
+                    double doubleValue = (Double) value.data;
+                    return Kernel.doubles(row -> doubleValue);
+                case BOOLEAN:
+                    boolean booleanValue = (Boolean) value.data;
+                    return Kernel.booleans(row -> booleanValue);
+                default:
+                    return null;
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Node} that performs a {@link UnaryOperation} on another node.
+     *
+     * @param operation The operation to perform.
+     * @param node The node to perform it on or null if that cannot be compiled.
+     * @return The created node or null if it cannot be compiled.
+     */
+    public static Node operation(UnaryOperation operation, Node node) {
+        if (node == null || operation != UnaryOperation.NOT) {
+            return null;
+        }
+        return compilation -> {
+            Kernel kernel = node.compile(compilation);
+            if (kernel == null || kernel.type != Type.BOOLEAN) {
+                return null;
+            }
+            IntPredicate value = kernel.booleans;
+            return Kernel.booleans(row -> !value.test(row));
+        };
+    }
+
+    /**
+     * Creates a {@link Node} that performs a {@link BinaryOperation} on two other nodes.
+     *
+     * @param operation The operation to perform.
+     * @param first The first node or null if that cannot be compiled.
+     * @param second The second node or null if that cannot be compiled.
+     * @return The created node or null if it cannot be compiled.
+     */
+    public static Node operation(BinaryOperation operation, Node first, Node second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        return compilation -> {
+            Kernel a = first.compile(compilation);
+            Kernel b = second.compile(compilation);
+            if (a == null || b == null) {
+                return null;
+            }
+            if (a.type == Type.BOOLEAN && b.type == Type.BOOLEAN) {
+                return compile(operation, a.booleans, b.booleans);
+            }
+            if (a.type == Type.BOOLEAN || b.type == Type.BOOLEAN) {
+                return null;
+            }
+            if (a.type == Type.LONG && b.type == Type.LONG) {
+                return compile(operation, a.longs, b.longs);
+            }
+            // A long with a double is done as doubles, like TypeSystem#unifyType would
+            return compile(operation, a.asDoubles(), b.asDoubles());
+        };
+    }
+
+    /**
+     * Evaluates a {@link Node} for the given data if it can be compiled for it. This should only be done for the root
+     * of a tree of operations since the nodes it is made of are compiled with it.
+     *
+     * @param node The node to evaluate.
+     * @param data The {@link Result} to use as the data.
+     * @return The resulting {@link Column} or null if the node could not be compiled for the data.
+     */
+    public static Column evaluate(Node node, Result data) {
+        Compilation compilation = new Compilation(data);
+        Kernel kernel = node.compile(compilation);
+        // A kernel of only literals does not know how many rows there are. Those are already cheap to evaluate.
+        if (kernel == null || compilation.size == -1) {
+            return null;
+        }
+        log.debug("Evaluating compiled {} expression on {} rows", kernel.type, compilation.size);
+        int size = compilation.size;
+        // The values are written straight into the array that backs the result
+        switch (kernel.type) {
+            case LONG:
+                long[] longs = new long[size];
+                for (int i = 0; i < size; ++i) {
+                    longs[i] = kernel.longs.applyAsLong(i);
+                }
+                return Column.ofLongs(longs, size);
+            case DOUBLE:
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; ++i) {
+                    doubles[i] = kernel.doubles.applyAsDouble(i);
+                }
+                return Column.ofDoubles(doubles, size);
+            default:
+                long[] words = new long[(size + 63) >>> 6];
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (kernel.booleans.test(i) ? 1L : 0L) << i;
+                }
+                return Column.ofBooleans(words, size);
+        }
+    }
+
+    private static Kernel read(Column column) {
+        Type type = column.getType();
+        if (type == null) {
+            return null;
+        }
+        // The columns are read as they are stored. Only the values are used since columns with nulls do not compile.
+        switch (type) {
+            case LONG:
+                long[] longs = column.getLongs();
+                return Kernel.longs(row -> longs[row]);
+            case DOUBLE:
+                double[] doubles = column.getDoubles();
+                return Kernel.doubles(row -> doubles[row]);
+            case BOOLEAN:
+                return Kernel.booleans(column.getBooleans());
+            default:
+                return null;
+        }
+    }
+
+    private static Kernel compile(BinaryOperation operation, IntToLongFunction a, IntToLongFunction b) {
+        switch (operation) {
+            case ADD:
+                return Kernel.longs(row -> a.applyAsLong(row) + b.applyAsLong(row));
+            case SUBTRACT:
+                return Kernel.longs(row -> a.applyAsLong(row) - b.applyAsLong(row));
+            case MULTIPLY:
+                return Kernel.longs(row -> a.applyAsLong(row) * b.applyAsLong(row));
+            case DIVIDE:
+                return Kernel.longs(row -> a.applyAsLong(row) / b.applyAsLong(row));
+            case MODULUS:
+                return Kernel.longs(row -> a.applyAsLong(row) % b.applyAsLong(row));
+            case EQUAL:
+                return Kernel.booleans(row -> a.applyAsLong(row) == b.applyAsLong(row));
+            case NOT_EQUAL:
+                return Kernel.booleans(row -> a.applyAsLong(row) != b.applyAsLong(row));
+            case GREATER:
+                return Kernel.booleans(row -> a.applyAsLong(row) > b.applyAsLong(row));
+            case LESS:
+                return Kernel.booleans(row -> a.applyAsLong(row) < b.applyAsLong(row));
+            case GREATER_EQUAL:
+                return Kernel.booleans(row -> a.applyAsLong(row) >= b.applyAsLong(row));
+            case LESS_EQUAL:
+                return Kernel.booleans(row -> a.applyAsLong(row) <= b.applyAsLong(row));
+            default:
+                return null;
+        }
+    }
+
+    private static Kernel compile(BinaryOperation operation, IntToDoubleFunction a, IntToDoubleFunction b) {
+        // Comparisons use Double#compare, like Double#compareTo does for the boxed values. MODULUS is not defined.
+        switch (operation) {
+            case ADD:
+                return Kernel.doubles(row -> a.applyAsDouble(row) + b.applyAsDouble(row));
+            case SUBTRACT:
+                return Kernel.doubles(row -> a.applyAsDouble(row) - b.applyAsDouble(row));
+            case MULTIPLY:
+                return Kernel.doubles(row -> a.applyAsDouble(row) * b.applyAsDouble(row));
+            case DIVIDE:
+                return Kernel.doubles(row -> a.applyAsDouble(row) / b.applyAsDouble(row));
+            case EQUAL:
+                return Kernel.booleans(row -> Double.compare(a.applyAsDouble(row), b.applyAsDouble(row)) == 0);
+            case NOT_EQUAL:
+                return Kernel.booleans(row -> Double.compare(a.applyAsDouble(row), b.applyAsDouble(row)) != 0);
+            case GREATER:
+                return Kernel.booleans(row -> Double.compare(a.applyAsDouble(row), b.applyAsDouble(row)) > 0);
+            case LESS:
+                return Kernel.booleans(row -> Double.compare(a.applyAsDouble(row), b.applyAsDouble(row)) < 0);
+            case GREATER_EQUAL:
+                return Kernel.booleans(row -> Double.compare(a.applyAsDouble(row), b.applyAsDouble(row)) >= 0);
+            case LESS_EQUAL:
+                return Kernel.booleans(row -> Double.compare(a.applyAsDouble(row), b.applyAsDouble(row)) <= 0);
+            default:
+                return null;
+        }
+    }
+
+    private static Kernel compile(BinaryOperation operation, IntPredicate a, IntPredicate b) {
+        // The second is only evaluated for a row if the first does not decide it, just like for Columns.
+        switch (operation) {
+            case AND:
+                return Kernel.booleans(row -> a.test(row) && b.test(row));
+            case OR:
+                return Kernel.booleans(row -> a.test(row) || b.test(row));
+            case EQUAL:
+                return Kernel.booleans(row -> a.test(row) == b.test(row));
+            case NOT_EQUAL:
+                return Kernel.booleans(row -> a.test(row) != b.test(row));
+            case GREATER:
+                return Kernel.booleans(row -> Boolean.compare(a.test(row), b.test(row)) > 0);
+            case LESS:
+                return Kernel.booleans(row -> Boolean.compare(a.test(row), b.test(row)) < 0);
+            case GREATER_EQUAL:
+                return Kernel.booleans(row -> Boolean.compare(a.test(row), b.test(row)) >= 0);
+            case LESS_EQUAL:
+                return Kernel.booleans(row -> Boolean.compare(a.test(row), b.test(row)) <= 0);
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,622 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.assertion;
+
+import com.yahoo.validatar.common.Column;
+import com.yahoo.validatar.common.ConstantColumn;
+import com.yahoo.validatar.common.Operations;
+import com.yahoo.validatar.common.Result;
+import com.yahoo.validatar.common.TypeSystem;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Joins the datasets used in an assertion with a where clause. The where clause is split into the {@link Condition}
+ * that must all be true for a joined row. A condition that is an equality between an expression on some datasets and
+ * an expression on other datasets, like {@code A.id == B.id}, is done as a hash join with
+ * {@link Result#hashJoin(Result, List, Result, List)} instead of filtering the cartesian product of the datasets. The
+ * datasets that cannot be joined like that are joined with a cartesian product using
+ * {@link Result#join(Result, Result, Function)}, which creates and filters the product in parallel partitions instead of
+ * all at once.
+ *
+ * A condition that compares an expression on some datasets with an expression on other datasets using {@code <},
+ * {@code <=}, {@code >} or {@code >=} is done as a range join with
+ * {@link Result#rangeJoin(Result, Column, Result, Column, boolean, Column, boolean)}, which sorts one side instead of
+ * comparing every pair of rows. A lower and an upper bound on the same expression, like
+ * {@code A.ts >= B.start && A.ts < B.end}, are done together in one range join.
+ *
+ * When more than two datasets are joined, the hash join that is estimated to produce the fewest rows is done first. The
+ * estimate uses the number of rows and the approximate number of distinct values of the join keys, which is counted
+ * with a fixed size sketch. Two datasets are just joined without estimating anything. Datasets that are left over are
+ * multiplied starting with the smallest. The chosen plan is logged with the estimated and the actual number of rows
+ * produced by each step.
+ *
+ * The rest of the conditions filter the rows as early as possible. A condition that only uses one dataset, like
+ * {@code A.dt == "2017-01-01"}, filters that dataset before it is joined. One that uses more datasets filters them as
+ * soon as they have been joined together.
+ */
+@Slf4j
+public class JoinPlanner {
+    // The usual guess for the fraction of rows kept by a range condition when nothing else is known
+    private static final double RANGE_SELECTIVITY = 1.0 / 3;
+    // The estimate of a join whose cost did not need to be estimated
+    private static final long NOT_ESTIMATED = -1L;
+
+    private static final Set<Operations.BinaryOperation> RANGES =
+        EnumSet.of(Operations.BinaryOperation.GREATER, Operations.BinaryOperation.GREATER_EQUAL,
+                   Operations.BinaryOperation.LESS, Operations.BinaryOperation.LESS_EQUAL);
+    private static final Map<Operations.BinaryOperation, Operations.BinaryOperation> FLIPPED =
+        new EnumMap<>(Operations.BinaryOperation.class);
+    static {
+        FLIPPED.put(Operations.BinaryOperation.GREATER, Operations.BinaryOperation.LESS);
+        FLIPPED.put(Operations.BinaryOperation.GREATER_EQUAL, Operations.BinaryOperation.LESS_EQUAL);
+        FLIPPED.put(Operations.BinaryOperation.LESS, Operations.BinaryOperation.GREATER);
+        FLIPPED.put(Operations.BinaryOperation.LESS_EQUAL, Operations.BinaryOperation.GREATER_EQUAL);
+    }
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    /**
+     * A condition from the where clause that must be true for a joined row.
+     */
+    @Getter
+    public static class Condition {
+        private final Expression expression;
+        private final Set<Result> datasets;
+        // These are only set if this compares an expression on some datasets with one on other datasets
+        private final Operations.BinaryOperation operation;
+        private final Operand left;
+        private final Operand right;
+
+        /**
+         * Creates a condition that can only be used to filter the rows once all the datasets have been joined.
+         *
+         * @param expression The {@link Expression} that evaluates to true for the rows to keep.
+         */
+        public Condition(Expression expression) {
+            this(expression, Collections.emptySet());
+        }
+
+        /**
+         * Creates a condition that can be used to filter the rows once the given datasets have been joined.
+         *
+         * @param expression The {@link Expression} that evaluates to true for the rows to keep.
+         * @param datasets The {@link Set} of {@link Result} that the expression uses. If empty, the condition is only
+         *                 used once all the datasets have been joined.
+         */
+        public Condition(Expression expression, Set<Result> datasets) {
+            Objects.requireNonNull(expression);
+            Objects.requireNonNull(datasets);
+            this.expression = expression;
+            this.datasets = datasets;
+            this.operation = null;
+            this.left = null;
+            this.right = null;
+        }
+
+        /**
+         * Creates a condition that is an equality between two expressions that use different datasets.
+         *
+         * @param expression The {@link Expression} for the whole equality.
+         * @param left The expression on the left side of the equality.
+         * @param leftDatasets The {@link Set} of {@link Result} that the left expression uses.
+         * @param right The expression on the right side of the equality.
+         * @param rightDatasets The datasets that the right expression uses. None of these may be used by the left.
+         */
+        public Condition(Expression expression, Expression left, Set<Result> leftDatasets, Expression right,
+                         Set<Result> rightDatasets) {
+            this(expression, Operations.BinaryOperation.EQUAL, new Operand(left, null, leftDatasets),
+                 new Operand(right, null, rightDatasets));
+        }
+
+        /**
+         * Creates a condition that compares two expressions that use different datasets.
+         *
+         * @param expression The {@link Expression} for the whole comparison.
+         * @param operation The {@link Operations.BinaryOperation} used to compare. One of
+         *                  {@link Operations.BinaryOperation#EQUAL}, {@link Operations.BinaryOperation#GREATER},
+         *                  {@link Operations.BinaryOperation#GREATER_EQUAL}, {@link Operations.BinaryOperation#LESS}
+         *                  or {@link Operations.BinaryOperation#LESS_EQUAL}.
+         * @param left The {@link Operand} on the left side of the comparison.
+         * @param right The operand on the right side. None of its datasets may be used by the left.
+         */
+        public Condition(Expression expression, Operations.BinaryOperation operation, Operand left, Operand right) {
+            Objects.requireNonNull(expression);
+            Objects.requireNonNull(left);
+            Objects.requireNonNull(right);
+            if (operation != Operations.BinaryOperation.EQUAL && !RANGES.contains(operation)) {
+                throw new IllegalArgumentException("Cannot join using " + operation);
+            }
+            this.expression = expression;
+            this.datasets = new HashSet<>(left.getDatasets());
+            this.datasets.addAll(right.getDatasets());
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Checks to see if this is an equality that can be used to join datasets.
+         *
+         * @return A boolean denoting whether this is an equality between expressions on different datasets.
+         */
+        public boolean isEquality() {
+            return operation == Operations.BinaryOperation.EQUAL;
+        }
+
+        /**
+         * Checks to see if this is an inequality that can be used to join datasets.
+         *
+         * @return A boolean denoting whether this is a greater or less than comparison between expressions on
+         *         different datasets.
+         */
+        public boolean isRange() {
+            return RANGES.contains(operation);
+        }
+    }
+
+    /**
+     * One side of a {@link Condition} that compares expressions on different datasets.
+     */
+    @Getter @RequiredArgsConstructor
+    public static class Operand {
+        private final Expression expression;
+        // Identifies the same expression in different conditions. Null if not known.
+        private final String text;
+        private final Set<Result> datasets;
+    }
+
+    /**
+     * One or more datasets that have already been joined.
+     */
+    private static class Relation {
+        private final Result data;
+        private final Set<Result> datasets;
+
+        private Relation(Result dataset) {
+            this(dataset, Collections.singleton(dataset));
+        }
+
+        private Relation(Result data, Set<Result> datasets) {
+            this.data = data;
+            this.datasets = datasets;
+        }
+
+        private boolean contains(Set<Result> datasets) {
+            return this.datasets.containsAll(datasets);
+        }
+
+        @Override
+        public String toString() {
+            return datasets.stream().map(Result::getNamespace).sorted().collect(Collectors.toList()).toString();
+        }
+    }
+
+    /**
+     * A range condition between two relations arranged as {@code key operation bound}, where the key is on one of them
+     * and the bound is on the other.
+     */
+    private static class Bound {
+        private final Condition condition;
+        private final Operand key;
+        private final Operations.BinaryOperation operation;
+        private final Operand bound;
+
+        private Bound(Condition condition, Operand key, Operations.BinaryOperation operation, Operand bound) {
+            this.condition = condition;
+            this.key = key;
+            this.operation = operation;
+            this.bound = bound;
+        }
+
+        private Bound flip() {
+            return new Bound(condition, bound, FLIPPED.get(operation), key);
+        }
+
+        private boolean isLower() {
+            return operation == Operations.BinaryOperation.GREATER ||
+                   operation == Operations.BinaryOperation.GREATER_EQUAL;
+        }
+
+        private boolean isInclusive() {
+            return operation == Operations.BinaryOperation.GREATER_EQUAL ||
+                   operation == Operations.BinaryOperation.LESS_EQUAL;
+        }
+
+        private boolean hasSameKey(Bound other) {
+            return key.getText() != null && key.getText().equals(other.key.getText());
+        }
+    }
+
+    /**
+     * A possible join of two relations and the number of rows it is estimated to produce.
+     */
+    private static class Candidate {
+        private final Relation left;
+        private final Relation right;
+        private final long estimate;
+
+        private Candidate(Relation left, Relation right, long estimate) {
+            this.left = left;
+            this.right = right;
+            this.estimate = estimate;
+        }
+    }
+
+    /**
+     * Caches the join keys evaluated on the relations and the approximate number of distinct values in them, so
+     * estimating the cost of the same join more than once and then doing it evaluates each key only once.
+     */
+    private static class Keys {
+        private final Map<Relation, Map<Expression, Column>> columns = new HashMap<>();
+        private final Map<Column, Long> distincts = new HashMap<>();
+
+        private Column get(Relation relation, Expression expression) {
+            return columns.computeIfAbsent(relation, r -> new HashMap<>())
+                          .computeIfAbsent(expression, e -> evaluate(e, relation.data));
+        }
+
+        private long distinct(Relation relation, Expression expression) {
+            Column column = get(relation, expression);
+            // The sketch does not keep or box the values, which counting them exactly would
+            return distincts.computeIfAbsent(column, c -> {
+                Column count = TypeSystem.aggregate(Operations.AggregateOperation.APPROX_COUNT_DISTINCT, c);
+                return (Long) count.first().data;
+            });
+        }
+    }
+
+    /**
+     * Adds a condition that must be true for all the joined rows.
+     *
+     * @param condition The non-null {@link Condition} to add.
+     */
+    public void add(Condition condition) {
+        Objects.requireNonNull(condition);
+        conditions.add(condition);
+    }
+
+    /**
+     * Joins the given datasets using the conditions added so far.
+     *
+     * @param datasets The {@link List} of {@link Result} to join. These must contain all the datasets that the
+     *                 conditions use.
+     * @return The joined {@link Result}.
+     */
+    public Result join(List<Result> datasets) {
+        List<Relation> relations = datasets.stream().map(Relation::new).collect(Collectors.toList());
+        List<Condition> equalities = conditions.stream().filter(Condition::isEquality).collect(Collectors.toList());
+        List<Condition> ranges = conditions.stream().filter(Condition::isRange).collect(Collectors.toList());
+        List<Condition> filters = conditions.stream().filter(c -> c.getOperation() == null)
+                                            .collect(Collectors.toList());
+        Keys keys = new Keys();
+        List<String> plan = new ArrayList<>();
+
+        // Shrink the datasets as much as possible before joining them
+        pushDown(relations, filters);
+
+        // Do the hash join that is estimated to produce the fewest rows first. Once no equalities are left between
+        // the relations, do the range joins. Each pass uses up at least one equality or range condition.
+        while (relations.size() > 1) {
+            Candidate candidate = findCheapestJoin(relations, equalities, keys);
+            if (candidate != null) {
+                Relation joined = hashJoin(relations, candidate.left, candidate.right, equalities, filters, keys);
+                if (joined != null && candidate.estimate == NOT_ESTIMATED) {
+                    plan.add(String.format("Hash join %s and %s: actual %d rows", candidate.left, candidate.right,
+                                           joined.data.numberOfRows()));
+                } else if (joined != null) {
+                    plan.add(String.format("Hash join %s and %s: estimated %d rows, actual %d rows", candidate.left,
+                                           candidate.right, candidate.estimate, joined.data.numberOfRows()));
+                }
+            } else {
+                candidate = findCheapestRangeJoin(relations, ranges);
+                if (candidate == null) {
+                    break;
+                }
+                Relation joined = rangeJoin(relations, candidate.left, candidate.right, ranges, filters, keys);
+                if (joined != null) {
+                    plan.add(String.format("Range join %s and %s: estimated %d rows, actual %d rows", candidate.left,
+                                           candidate.right, candidate.estimate, joined.data.numberOfRows()));
+                }
+            }
+            pushDown(relations, filters);
+        }
+        // Whatever is left is now between datasets that are already joined or that could not be joined
+        filters.addAll(equalities);
+        filters.addAll(ranges);
+
+        // The product has the same size in any order but multiplying the smaller ones first keeps the intermediate
+        // products smaller. The conditions on the datasets multiplied so far filter each product as it is created.
+        relations.sort(Comparator.comparingInt(r -> r.data.numberOfRows()));
+        while (relations.size() > 1) {
+            Relation left = relations.get(0);
+            Relation right = relations.get(1);
+            Set<Result> multiplied = new HashSet<>(left.datasets);
+            multiplied.addAll(right.datasets);
+            List<Condition> applicable = take(filters, multiplied);
+            long estimate = (long) left.data.numberOfRows() * right.data.numberOfRows();
+            Result product = Result.join(left.data, right.data, applicable.isEmpty() ? null : allOf(applicable));
+            plan.add(String.format("Cartesian product of %s and %s filtered by %d conditions: estimated %d rows, " +
+                                   "actual %d rows", left, right, applicable.size(), estimate, product.numberOfRows()));
+            relations.set(0, new Relation(product, multiplied));
+            relations.remove(1);
+        }
+
+        Result joined = relations.isEmpty() ? new Result() : relations.get(0).data;
+        for (Condition filter : filters) {
+            joined = filter(joined, filter);
+        }
+        log.info("Join plan:\n{}", String.join("\n", plan));
+        return joined;
+    }
+
+    private static void pushDown(List<Relation> relations, List<Condition> filters) {
+        Iterator<Condition> iterator = filters.iterator();
+        while (iterator.hasNext()) {
+            Condition condition = iterator.next();
+            if (condition.getDatasets().isEmpty()) {
+                continue;
+            }
+            Relation relation = find(relations, condition.getDatasets());
+            if (relation == null) {
+                continue;
+            }
+            iterator.remove();
+            Result filtered = filter(relation.data, condition);
+            log.info("Filtered {} rows of {} to {} rows before joining", relation.data.numberOfRows(), relation,
+                     filtered.numberOfRows());
+            relations.set(relations.indexOf(relation), new Relation(filtered, relation.datasets));
+        }
+    }
+
+    private static List<Condition> take(List<Condition> filters, Set<Result> datasets) {
+        List<Condition> taken = new ArrayList<>();
+        Iterator<Condition> iterator = filters.iterator();
+        while (iterator.hasNext()) {
+            Condition condition = iterator.next();
+            if (!condition.getDatasets().isEmpty() && datasets.containsAll(condition.getDatasets())) {
+                iterator.remove();
+                taken.add(condition);
+            }
+        }
+        return taken;
+    }
+
+    private static Function<Result, Column> allOf(List<Condition> conditions) {
+        return data -> conditions.stream().map(c -> c.getExpression().evaluate(data))
+                                 .reduce((a, b) -> TypeSystem.perform(Operations.BinaryOperation.AND, a, b)).get();
+    }
+
+    private static Candidate findCheapestJoin(List<Relation> relations, List<Condition> equalities, Keys keys) {
+        Candidate cheapest = null;
+        for (Condition condition : equalities) {
+            Relation left = find(relations, condition.getLeft().getDatasets());
+            Relation right = find(relations, condition.getRight().getDatasets());
+            if (left == null || right == null || left == right) {
+                continue;
+            }
+            // With only two relations, there is nothing to choose between
+            if (relations.size() < 3) {
+                return new Candidate(left, right, NOT_ESTIMATED);
+            }
+            long estimate = estimate(relations, left, right, equalities, keys);
+            log.debug("Estimated {} rows for joining {} and {}", estimate, left, right);
+            if (cheapest == null || estimate < cheapest.estimate) {
+                cheapest = new Candidate(left, right, estimate);
+            }
+        }
+        return cheapest;
+    }
+
+    private static long estimate(List<Relation> relations, Relation left, Relation right, List<Condition> equalities,
+                                 Keys keys) {
+        // Assuming the keys are uniformly distributed and independent, each equality keeps 1 / (the larger number of
+        // distinct values on either side) of the product of the rows
+        double rows = (double) left.data.numberOfRows() * right.data.numberOfRows();
+        for (Condition condition : equalities) {
+            Relation conditionLeft = find(relations, condition.getLeft().getDatasets());
+            Relation conditionRight = find(relations, condition.getRight().getDatasets());
+            if (conditionLeft == left && conditionRight == right) {
+                rows /= Math.max(1L, Math.max(keys.distinct(left, condition.getLeft().getExpression()),
+                                              keys.distinct(right, condition.getRight().getExpression())));
+            } else if (conditionLeft == right && conditionRight == left) {
+                rows /= Math.max(1L, Math.max(keys.distinct(left, condition.getRight().getExpression()),
+                                              keys.distinct(right, condition.getLeft().getExpression())));
+            }
+        }
+        return (long) Math.ceil(rows);
+    }
+
+    private static Relation find(List<Relation> relations, Set<Result> datasets) {
+        return relations.stream().filter(r -> r.contains(datasets)).findFirst().orElse(null);
+    }
+
+    private static Relation hashJoin(List<Relation> relations, Relation left, Relation right,
+                                     List<Condition> equalities, List<Condition> filters, Keys keys) {
+        // Keep the relations in order so the joined rows are in the same order as in a cartesian product
+        if (relations.indexOf(left) > relations.indexOf(right)) {
+            Relation swap = left;
+            left = right;
+            right = swap;
+        }
+        // Join on all the equalities between these two at once
+        List<Column> leftKeys = new ArrayList<>();
+        List<Column> rightKeys = new ArrayList<>();
+        Iterator<Condition> iterator = equalities.iterator();
+        while (iterator.hasNext()) {
+            Condition condition = iterator.next();
+            Relation conditionLeft = find(relations, condition.getLeft().getDatasets());
+            Relation conditionRight = find(relations, condition.getRight().getDatasets());
+            Column leftKey;
+            Column rightKey;
+            if (conditionLeft == left && conditionRight == right) {
+                leftKey = keys.get(left, condition.getLeft().getExpression());
+                rightKey = keys.get(right, condition.getRight().getExpression());
+            } else if (conditionLeft == right && conditionRight == left) {
+                leftKey = keys.get(left, condition.getRight().getExpression());
+                rightKey = keys.get(right, condition.getLeft().getExpression());
+            } else {
+                continue;
+            }
+            iterator.remove();
+            // Values of different types can still be equal after casting, so those have to be compared row by row
+            if (leftKey.getType() != null && leftKey.getType() == rightKey.getType()) {
+                leftKeys.add(leftKey);
+                rightKeys.add(rightKey);
+            } else {
+                log.info("Cannot hash join on {} and {}. Filtering the joined rows instead", leftKey, rightKey);
+                filters.add(condition);
+            }
+        }
+        if (leftKeys.isEmpty()) {
+            return null;
+        }
+        Set<Result> datasets = new HashSet<>(left.datasets);
+        datasets.addAll(right.datasets);
+        Relation joined = new Relation(Result.hashJoin(left.data, leftKeys, right.data, rightKeys), datasets);
+        relations.set(relations.indexOf(left), joined);
+        relations.remove(right);
+        return joined;
+    }
+
+    private static Candidate findCheapestRangeJoin(List<Relation> relations, List<Condition> ranges) {
+        Candidate cheapest = null;
+        for (Condition condition : ranges) {
+            Relation left = find(relations, condition.getLeft().getDatasets());
+            Relation right = find(relations, condition.getRight().getDatasets());
+            if (left == null || right == null || left == right) {
+                continue;
+            }
+            long conditionsBetween = ranges.stream().filter(c -> isBetween(relations, c, left, right)).count();
+            double rows = (double) left.data.numberOfRows() * right.data.numberOfRows();
+            long estimate = (long) Math.ceil(rows * Math.pow(RANGE_SELECTIVITY, Math.min(2L, conditionsBetween)));
+            if (cheapest == null || estimate < cheapest.estimate) {
+                cheapest = new Candidate(left, right, estimate);
+            }
+        }
+        return cheapest;
+    }
+
+    private static boolean isBetween(List<Relation> relations, Condition condition, Relation first, Relation second) {
+        Relation left = find(relations, condition.getLeft().getDatasets());
+        Relation right = find(relations, condition.getRight().getDatasets());
+        return (left == first && right == second) || (left == second && right == first);
+    }
+
+    private static Relation rangeJoin(List<Relation> relations, Relation left, Relation right,
+                                      List<Condition> ranges, List<Condition> filters, Keys keys) {
+        // Arrange all the range conditions between these two with the key on the left relation
+        List<Bound> bounds = new ArrayList<>();
+        Iterator<Condition> iterator = ranges.iterator();
+        while (iterator.hasNext()) {
+            Condition condition = iterator.next();
+            Relation conditionLeft = find(relations, condition.getLeft().getDatasets());
+            Relation conditionRight = find(relations, condition.getRight().getDatasets());
+            Bound bound = new Bound(condition, condition.getLeft(), condition.getOperation(), condition.getRight());
+            if (conditionLeft == left && conditionRight == right) {
+                bounds.add(bound);
+            } else if (conditionLeft == right && conditionRight == left) {
+                bounds.add(bound.flip());
+            } else {
+                continue;
+            }
+            iterator.remove();
+        }
+
+        // Prefer a lower and an upper bound on the same key, like A.ts >= B.start && A.ts < B.end. Only the rows
+        // between the bounds are then looked at. The key can be on either relation.
+        Bound lower = null;
+        Bound upper = null;
+        Relation keyed = left;
+        Relation bounded = right;
+        for (int i = 0; i < 2 && lower == null; ++i) {
+            for (Bound first : bounds) {
+                Bound second = bounds.stream().filter(b -> b.isLower() != first.isLower() && b.hasSameKey(first))
+                                     .findFirst().orElse(null);
+                if (second != null) {
+                    lower = first.isLower() ? first : second;
+                    upper = first.isLower() ? second : first;
+                    break;
+                }
+            }
+            if (lower == null) {
+                bounds = bounds.stream().map(Bound::flip).collect(Collectors.toList());
+                keyed = keyed == left ? right : left;
+                bounded = bounded == left ? right : left;
+            }
+        }
+        if (lower == null) {
+            // Just one of them then
+            Bound only = bounds.get(0);
+            lower = only.isLower() ? only : null;
+            upper = only.isLower() ? null : only;
+        }
+
+        Bound any = lower == null ? upper : lower;
+        Column key = keys.get(keyed, any.key.getExpression());
+        Column lowerBound = lower == null ? null : keys.get(bounded, lower.bound.getExpression());
+        Column upperBound = upper == null ? null : keys.get(bounded, upper.bound.getExpression());
+        for (Bound bound : bounds) {
+            if (bound != lower && bound != upper) {
+                filters.add(bound.condition);
+            }
+        }
+        // Values of different types can still be compared after casting, so those have to be compared row by row
+        TypeSystem.Type type = key.getType();
+        if (type == null || (lowerBound != null && lowerBound.getType() != type) ||
+            (upperBound != null && upperBound.getType() != type)) {
+            log.info("Cannot range join on {} with {} and {}. Filtering the joined rows instead", key, lowerBound,
+                     upperBound);
+            filters.add(any.condition);
+            if (lower != null && upper != null) {
+                filters.add(upper.condition);
+            }
+            return null;
+        }
+
+        Set<Result> datasets = new HashSet<>(left.datasets);
+        datasets.addAll(right.datasets);
+        Result data = Result.rangeJoin(keyed.data, key, bounded.data, lowerBound, lower != null && lower.isInclusive(),
+                                       upperBound, upper != null && upper.isInclusive());
+        Relation joined = new Relation(data, datasets);
+        relations.set(relations.indexOf(left), joined);
+        relations.remove(right);
+        return joined;
+    }
+
+    private static Column evaluate(Expression expression, Result result) {
+        // A dataset may have been filtered down to nothing, and most operations cannot be done on no data
+        return result.numberOfRows() == 0 ? new Column() : expression.evaluate(result);
+    }
+
+    private static Result filter(Result result, Condition condition) {
+        int rows = result.numberOfRows();
+        if (rows == 0) {
+            return result;
+        }
+        Column column = condition.getExpression().evaluate(result);
+        // A condition that does not use any data, like true, applies to all the rows
+        if (column.isScalar() && rows != 1) {
+            column = new ConstantColumn(column.first(), rows);
+        }
+        return Result.join(result, column);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.Operations.AggregateOperation;
+import com.yahoo.validatar.common.Operations.BinaryOperation;
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Contains the kernels that aggregate a whole Column into one value. {@link Type#LONG} and {@link Type#DOUBLE}
+ * Columns are read once as primitive arrays and nothing is created per value. The other types are aggregated value by
+ * value using the {@link TypeSystem}.
+ *
+ * Nulls are skipped. {@link AggregateOperation#COUNT} and the distinct counts of a Column with no values that are not
+ * null are 0 and {@link AggregateOperation#EXISTS} is false. The rest of the aggregates are null for such a Column.
+ *
+ * {@link AggregateOperation#APPROX_COUNT_DISTINCT} and {@link #quantile(Column, double)} add the values to a sketch
+ * of a fixed size instead of keeping them, so they use little memory even for huge Columns.
+ */
+class Aggregates {
+    /**
+     * Aggregates the values in a Column.
+     *
+     * @param operation The aggregate to find.
+     * @param column The column.
+     * @return The aggregated value. This is null if there were no values to aggregate.
+     * @throws ClassCastException if the aggregate is not supported for the type of the column, like
+     *                            {@link AggregateOperation#SUM} of strings.
+     */
+    static TypedObject aggregate(AggregateOperation operation, Column column) {
+        int count = column.size() - column.nullCount();
+        if (operation == AggregateOperation.COUNT) {
+            return TypeSystem.asTypedObject((long) count);
+        }
+        if (operation == AggregateOperation.EXISTS) {
+            return TypeSystem.asTypedObject(count > 0 && exists(column));
+        }
+        if (count == 0) {
+            return isCountDistinct(operation) ? TypeSystem.asTypedObject(0L) : null;
+        }
+        Type type = column.getType();
+        if (type == Type.LONG) {
+            return longs(operation, column, count);
+        }
+        if (type == Type.DOUBLE) {
+            return doubles(operation, column, count);
+        }
+        return objects(operation, column, count);
+    }
+
+    private static TypedObject longs(AggregateOperation operation, Column column, int count) {
+        int size = column.size();
+        Storage storage = column.getStorage();
+        long[] values = Storages.longs(storage);
+        Bitmap nulls = Storages.nullBits(storage);
+        if (operation == AggregateOperation.COUNT_DISTINCT) {
+            return TypeSystem.asTypedObject(countDistinct(nonNull(values, size, nulls, count)));
+        }
+        if (operation == AggregateOperation.APPROX_COUNT_DISTINCT) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < size; ++i) {
+                if (nulls == null || !nulls.get(i)) {
+                    sketch.update(HyperLogLog.hash(values[i]));
+                }
+            }
+            return TypeSystem.asTypedObject(sketch.estimate());
+        }
+        long sum = 0L;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; ++i) {
+            if (nulls == null || !nulls.get(i)) {
+                long value = values[i];
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        switch (operation) {
+            case SUM:
+                return TypeSystem.asTypedObject(sum);
+            case MIN:
+                return TypeSystem.asTypedObject(min);
+            case MAX:
+                return TypeSystem.asTypedObject(max);
+            case AVG:
+                return TypeSystem.asTypedObject((double) sum / count);
+            default:
+                return null;
+        }
+    }
+
+    private static TypedObject doubles(AggregateOperation operation, Column column, int count) {
+        int size = column.size();
+        Storage storage = column.getStorage();
+        double[] values = Storages.doubles(storage);
+        Bitmap nulls = Storages.nullBits(storage);
+        if (operation == AggregateOperation.COUNT_DISTINCT) {
+            return TypeSystem.asTypedObject(countDistinct(nonNull(values, size, nulls, count)));
+        }
+        if (operation == AggregateOperation.APPROX_COUNT_DISTINCT) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < size; ++i) {
+                if (nulls == null || !nulls.get(i)) {
+                    sketch.update(HyperLogLog.hash(values[i]));
+                }
+            }
+            return TypeSystem.asTypedObject(sketch.estimate());
+        }
+        double sum = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; ++i) {
+            if (nulls == null || !nulls.get(i)) {
+                double value = values[i];
+                sum += value;
+                // Ordered like Double.compare, which the comparisons use, so NaN is the largest
+                min = Double.compare(value, min) < 0 ? value : min;
+                max = Double.compare(value, max) > 0 ? value : max;
+            }
+        }
+        switch (operation) {
+            case SUM:
+                return TypeSystem.asTypedObject(sum);
+            case MIN:
+                return TypeSystem.asTypedObject(min);
+            case MAX:
+                return TypeSystem.asTypedObject(max);
+            case AVG:
+                return TypeSystem.asTypedObject(sum / count);
+            default:
+                return null;
+        }
+    }
+
+    private static TypedObject objects(AggregateOperation operation, Column column, int count) {
+        int size = column.size();
+        TypedObject result = null;
+        Set<TypedObject> distinct = new TreeSet<>(TypeSystem::compare);
+        HyperLogLog sketch = operation == AggregateOperation.APPROX_COUNT_DISTINCT ? new HyperLogLog() : null;
+        for (int i = 0; i < size; ++i) {
+            TypedObject value = column.get(i);
+            if (value == null) {
+                continue;
+            }
+            switch (operation) {
+                case SUM:
+                case AVG:
+                    // Adding would concatenate strings, which is not a sum
+                    if (!isNumeric(value.type)) {
+                        throw new ClassCastException("Unable to perform: " + operation + " on " + value.type +
+                                                     " values");
+                    }
+                    result = result == null ? value : TypeSystem.perform(BinaryOperation.ADD, result, value);
+                    break;
+                case MIN:
+                    result = result == null || TypeSystem.compare(value, result) < 0 ? value : result;
+                    break;
+                case MAX:
+                    result = result == null || TypeSystem.compare(value, result) > 0 ? value : result;
+                    break;
+                case COUNT_DISTINCT:
+                    distinct.add(value);
+                    break;
+                case APPROX_COUNT_DISTINCT:
+                    sketch.update(HyperLogLog.hash(value));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (operation == AggregateOperation.COUNT_DISTINCT) {
+            return TypeSystem.asTypedObject((long) distinct.size());
+        }
+        if (operation == AggregateOperation.APPROX_COUNT_DISTINCT) {
+            return TypeSystem.asTypedObject(sketch.estimate());
+        }
+        if (operation != AggregateOperation.AVG) {
+            return result;
+        }
+        if (result.type == Type.DECIMAL) {
+            // The exact quotient may not have a finite decimal expansion
+            return TypeSystem.asTypedObject(((BigDecimal) result.data).divide(BigDecimal.valueOf(count),
+                                                                               MathContext.DECIMAL128));
+        }
+        return TypeSystem.perform(BinaryOperation.DIVIDE, result, TypeSystem.asTypedObject((long) count));
+    }
+
+    /**
+     * Estimates a quantile of the numeric values in a Column with a {@link QuantileSketch}. The values are read in one
+     * pass and only the sketch is kept.
+     *
+     * @param column The {@link Type#LONG}, {@link Type#DOUBLE} or {@link Type#DECIMAL} column.
+     * @param fraction The quantile to find, from 0.0 to 1.0.
+     * @return The estimated {@link Type#DOUBLE} value at the quantile. This is null if there were no values.
+     * @throws ClassCastException if the column is not numeric.
+     */
+    static TypedObject quantile(Column column, double fraction) {
+        int size = column.size();
+        if (size == column.nullCount()) {
+            return null;
+        }
+        Type type = column.getType();
+        Storage storage = column.getStorage();
+        Bitmap nulls = Storages.nullBits(storage);
+        QuantileSketch sketch = new QuantileSketch();
+        if (type == Type.LONG) {
+            long[] values = Storages.longs(storage);
+            for (int i = 0; i < size; ++i) {
+                if (nulls == null || !nulls.get(i)) {
+                    sketch.update(values[i]);
+                }
+            }
+        } else if (type == Type.DOUBLE) {
+            double[] values = Storages.doubles(storage);
+            for (int i = 0; i < size; ++i) {
+                if ((nulls == null || !nulls.get(i)) && !Double.isNaN(values[i])) {
+                    sketch.update(values[i]);
+                }
+            }
+        } else if (type == Type.DECIMAL) {
+            for (int i = 0; i < size; ++i) {
+                TypedObject value = column.get(i);
+                if (value != null) {
+                    sketch.update(((BigDecimal) value.data).doubleValue());
+                }
+            }
+        } else {
+            throw new ClassCastException("Unable to find a quantile of " + type + " values");
+        }
+        double quantile = sketch.quantile(fraction);
+        return Double.isNaN(quantile) ? null : TypeSystem.asTypedObject(quantile);
+    }
+
+    private static boolean exists(Column column) {
+        if (column.getType() != Type.BOOLEAN) {
+            throw new ClassCastException("Unable to perform: " + AggregateOperation.EXISTS + " on " + column.getType() +
+                                         " values");
+        }
+        Storage storage = column.getStorage();
+        Bitmap values = Storages.booleans(storage);
+        Bitmap nulls = Storages.nullBits(storage);
+        // The values at null positions are unspecified so they are masked out
+        for (int i = 0; i < Bitmap.words(column.size()); ++i) {
+            if ((values.getWord(i) & ~(nulls == null ? 0L : nulls.getWord(i))) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNumeric(Type type) {
+        return type == Type.LONG || type == Type.DOUBLE || type == Type.DECIMAL;
+    }
+
+    private static boolean isCountDistinct(AggregateOperation operation) {
+        return operation == AggregateOperation.COUNT_DISTINCT || operation == AggregateOperation.APPROX_COUNT_DISTINCT;
+    }
+
+    private static long[] nonNull(long[] values, int size, Bitmap nulls, int count) {
+        if (nulls == null) {
+            return Arrays.copyOf(values, size);
+        }
+        long[] result = new long[count];
+        for (int i = 0, j = 0; i < size; ++i) {
+            if (!nulls.get(i)) {
+                result[j++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    private static double[] nonNull(double[] values, int size, Bitmap nulls, int count) {
+        if (nulls == null) {
+            return Arrays.copyOf(values, size);
+        }
+        double[] result = new double[count];
+        for (int i = 0, j = 0; i < size; ++i) {
+            if (!nulls.get(i)) {
+                result[j++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    // Sorting a copy of the primitives counts them without boxing each one into a set
+    private static long countDistinct(long[] values) {
+        Arrays.sort(values);
+        long distinct = 0;
+        for (int i = 0; i < values.length; ++i) {
+            distinct += i == 0 || values[i] != values[i - 1] ? 1 : 0;
+        }
+        return distinct;
+    }
+
+    private static long countDistinct(double[] values) {
+        Arrays.sort(values);
+        long distinct = 0;
+        for (int i = 0; i < values.length; ++i) {
+            distinct += i == 0 || Double.compare(values[i], values[i - 1]) != 0 ? 1 : 0;
+        }
+        return distinct;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import java.util.Arrays;
+
+/**
+ * A growable set of bits packed 64 to a word. Bits that were never set are false.
+ */
+class Bitmap {
+    private long[] words;
+
+    /**
+     * Creates an empty bitmap.
+     */
+    Bitmap() {
+        words = new long[1];
+    }
+
+    /**
+     * Creates a bitmap backed by the given words. The words are not copied.
+     *
+     * @param words The words containing the bits, 64 to a word.
+     */
+    Bitmap(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Returns the number of words needed to hold the given number of bits.
+     *
+     * @param bits The number of bits.
+     * @return The number of words.
+     */
+    static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Returns the number of words currently backing this bitmap. Words past these have no bits set.
+     *
+     * @return The number of words.
+     */
+    int wordCount() {
+        return words.length;
+    }
+
+    /**
+     * Gets the word containing the bits from 64 * index to 64 * index + 63.
+     *
+     * @param index The non-negative index of the word.
+     * @return The word. It is 0 if no bits in it were ever set.
+     */
+    long getWord(int index) {
+        return index < words.length ? words[index] : 0L;
+    }
+
+    /**
+     * Counts the number of bits that are set.
+     *
+     * @return The number of set bits.
+     */
+    int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the bit at the given position.
+     *
+     * @param position The non-negative position of the bit.
+     * @return A boolean denoting whether the bit is set.
+     */
+    boolean get(int position) {
+        int word = position >>> 6;
+        return word < words.length && (words[word] & (1L << position)) != 0;
+    }
+
+    /**
+     * Sets the bit at the given position, growing the bitmap if needed.
+     *
+     * @param position The non-negative position of the bit.
+     */
+    void set(int position) {
+        int word = position >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length << 1));
+        }
+        words[word] |= 1L << position;
+    }
+
+    /**
+     * Creates a full copy of this bitmap.
+     *
+     * @return The copied bitmap.
+     */
+    Bitmap copy() {
+        return new Bitmap(Arrays.copyOf(words, words.length));
+    }
+}
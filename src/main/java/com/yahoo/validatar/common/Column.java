@@ -4,26 +4,55 @@
  */
 package com.yahoo.validatar.common;
 
-import lombok.Getter;
+import com.yahoo.validatar.common.TypeSystem.Type;
 
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.AbstractList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * Wraps a sequence of {@link TypedObject} as a Column.
+ *
+ * The values are stored in a type specific {@link Storage}. If all the values added to the Column have the same
+ * {@link Type}, they are stored unboxed (primitive arrays for {@link Type#LONG} and {@link Type#DOUBLE} and a bitset
+ * for {@link Type#BOOLEAN}). Nulls are marked in a validity bitmap instead of taking up a slot of their own. If
+ * values of different types are added, the Column falls back to storing them as {@link TypedObject}. Use the typed add
+ * and get methods such as {@link #add(long)} and {@link #getLong(int)} to avoid boxing the values.
+ *
+ * Copies of a Column share the stored values until one of them is added to. Only then are the values actually copied.
+ * Similarly, {@link #select(int[])} creates a view of some of the values without copying them.
+ *
+ * A Column can also be a constant, which has the same value at every position but only stores it once. See
+ * {@link ConstantColumn}.
  */
 public class Column implements Iterable<TypedObject> {
-    @Getter
-    private final List<TypedObject> values;
+    private final List<TypedObject> values = new Values();
+    private Storage storage;
+    // True if the storage may be used by another Column and must be copied before it is changed
+    // Copying or selecting marks a column that may be read by many threads as shared, so the mark must be visible
+    private volatile boolean shared = false;
 
     /**
      * Creates a new empty Column.
      */
     public Column() {
-        values = new ArrayList<>();
+        storage = Storages.create(null);
+    }
+
+    /**
+     * Creates a new empty Column for values of the given {@link Type}.
+     *
+     * @param type The type of the values that will be added to this Column.
+     */
+    public Column(Type type) {
+        storage = Storages.create(type);
     }
 
     /**
@@ -32,9 +61,9 @@ public class Column implements Iterable<TypedObject> {
      * @param object The single TypedObject to wrap.
      */
     public Column(TypedObject object) {
+        this();
         Objects.requireNonNull(object);
-        values = new ArrayList<>();
-        values.add(object);
+        add(object);
     }
 
     /**
@@ -43,8 +72,36 @@ public class Column implements Iterable<TypedObject> {
      * @param list The TypedObjects to wrap.
      */
     public Column(List<TypedObject> list) {
+        this();
         Objects.requireNonNull(list);
-        values = new ArrayList<>(list);
+        list.forEach(this::add);
+    }
+
+    /**
+     * Creates a Column backed by the given {@link Storage}.
+     *
+     * @param storage The storage to use.
+     */
+    Column(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Returns the {@link Type} of the values in this Column.
+     *
+     * @return The type of all the values or null if the values have different types or if there are no values.
+     */
+    public Type getType() {
+        return storage.getType();
+    }
+
+    /**
+     * Returns a {@link List} view of the values in this Column. The view cannot be modified.
+     *
+     * @return The values as a List of {@link TypedObject}.
+     */
+    public List<TypedObject> getValues() {
+        return values;
     }
 
     /**
@@ -74,13 +131,54 @@ public class Column implements Iterable<TypedObject> {
         return size() > 1;
     }
 
+    /**
+     * If this has the same value at every position and only stores it once, then it is a constant.
+     *
+     * @return A boolean denoting whether this is a constant.
+     */
+    public boolean isConstant() {
+        return storage instanceof Storages.ConstantStorage;
+    }
+
     /**
      * The number of elements in the vector.
      *
      * @return The size of the vector.
      */
     public int size() {
-        return values.size();
+        return storage.size();
+    }
+
+    /**
+     * The number of nulls in the vector.
+     *
+     * @return The number of null values.
+     */
+    public int nullCount() {
+        return storage.nullCount();
+    }
+
+    /**
+     * Checks to see if the value at the given position is null.
+     *
+     * @param position The integer representing the position to check.
+     * @return A boolean denoting whether the value is null.
+     * @throws IndexOutOfBoundsException if the position is invalid.
+     */
+    public boolean isNull(int position) {
+        checkPosition(position);
+        return storage.isNull(position);
+    }
+
+    /**
+     * Creates a {@link Type#BOOLEAN} Column that is true at every position where this Column has a null.
+     *
+     * @return The Column containing no nulls.
+     */
+    public Column nullMask() {
+        Column mask = new Column();
+        mask.storage = Storages.nulls(storage);
+        return mask;
     }
 
     /**
@@ -100,19 +198,192 @@ public class Column implements Iterable<TypedObject> {
      * @throws IndexOutOfBoundsException if the position is invalid.
      */
     public TypedObject get(int position) {
-        if (position < 0 || position >= values.size()) {
-            throw new IndexOutOfBoundsException("There is no object at position " + position + " in " + this);
-        }
-        return values.get(position);
+        checkPosition(position);
+        return storage.get(position);
+    }
+
+    /**
+     * Returns the value at the given position as a long without boxing it if this is a {@link Type#LONG} Column.
+     *
+     * @param position The integer representing the position to get.
+     * @return The long value at that position. Unspecified if the value is null.
+     * @throws IndexOutOfBoundsException if the position is invalid.
+     * @throws ClassCastException if the value is not a {@link Type#LONG}.
+     */
+    public long getLong(int position) {
+        checkPosition(position);
+        return storage.getLong(position);
+    }
+
+    /**
+     * Returns the value at the given position as a double without boxing it if this is a {@link Type#DOUBLE} Column.
+     *
+     * @param position The integer representing the position to get.
+     * @return The double value at that position. Unspecified if the value is null.
+     * @throws IndexOutOfBoundsException if the position is invalid.
+     * @throws ClassCastException if the value is not a {@link Type#DOUBLE}.
+     */
+    public double getDouble(int position) {
+        checkPosition(position);
+        return storage.getDouble(position);
+    }
+
+    /**
+     * Returns the value at the given position as a boolean without boxing it if this is a {@link Type#BOOLEAN} Column.
+     *
+     * @param position The integer representing the position to get.
+     * @return The boolean value at that position. Unspecified if the value is null.
+     * @throws IndexOutOfBoundsException if the position is invalid.
+     * @throws ClassCastException if the value is not a {@link Type#BOOLEAN}.
+     */
+    public boolean getBoolean(int position) {
+        checkPosition(position);
+        return storage.getBoolean(position);
+    }
+
+    /**
+     * Returns the values in this {@link Type#LONG} Column as an array. The values are not copied if they are already
+     * stored as an array, so the array must not be changed.
+     *
+     * @return The array containing at least all the values. The values at null positions are unspecified.
+     * @throws ClassCastException if the values are not {@link Type#LONG}.
+     */
+    public long[] getLongs() {
+        return Storages.longs(storage);
+    }
+
+    /**
+     * Returns the values in this {@link Type#DOUBLE} Column as an array. The values are not copied if they are already
+     * stored as an array, so the array must not be changed.
+     *
+     * @return The array containing at least all the values. The values at null positions are unspecified.
+     * @throws ClassCastException if the values are not {@link Type#DOUBLE}.
+     */
+    public double[] getDoubles() {
+        return Storages.doubles(storage);
+    }
+
+    /**
+     * Returns the values in this {@link Type#BOOLEAN} Column as a predicate on the positions. The values are not
+     * copied if they are already stored as a bitset.
+     *
+     * @return The predicate that is true for the positions that are true. It is unspecified for null positions.
+     * @throws ClassCastException if the values are not {@link Type#BOOLEAN}.
+     */
+    public IntPredicate getBooleans() {
+        return Storages.booleans(storage)::get;
+    }
+
+    /**
+     * Creates a {@link Type#LONG} Column backed by the given values. They are not copied.
+     *
+     * @param values The non-null values. It must have room for at least size values and must not be changed.
+     * @param size The number of values.
+     * @return The created Column.
+     */
+    public static Column ofLongs(long[] values, int size) {
+        return new Column(Storages.longs(values, size, null));
+    }
+
+    /**
+     * Creates a {@link Type#DOUBLE} Column backed by the given values. They are not copied.
+     *
+     * @param values The non-null values. It must have room for at least size values and must not be changed.
+     * @param size The number of values.
+     * @return The created Column.
+     */
+    public static Column ofDoubles(double[] values, int size) {
+        return new Column(Storages.doubles(values, size, null));
+    }
+
+    /**
+     * Creates a {@link Type#BOOLEAN} Column backed by the given bits, 64 values to a word. They are not copied.
+     *
+     * @param words The non-null values as bits. Bits past the size must not be set and it must not be changed.
+     * @param size The number of values.
+     * @return The created Column.
+     */
+    public static Column ofBooleans(long[] words, int size) {
+        return new Column(Storages.booleans(new Bitmap(words), size, null));
+    }
+
+    /**
+     * Returns the value at the given position without wrapping it in a {@link TypedObject}.
+     *
+     * @param position The integer representing the position to get.
+     * @return The value at that position or null if it is null.
+     * @throws IndexOutOfBoundsException if the position is invalid.
+     */
+    public Comparable getData(int position) {
+        checkPosition(position);
+        return storage.getData(position);
     }
 
     /**
      * Add a {@link TypedObject} to this vector.
      *
-     * @param object The non-null TypedObject to add.
+     * @param object The TypedObject to add.
      */
     public void add(TypedObject object) {
-        values.add(object);
+        prepare(object == null ? null : object.type);
+        storage.add(object);
+    }
+
+    /**
+     * Add a {@link Type#LONG} to this vector.
+     *
+     * @param value The long to add.
+     */
+    public void add(long value) {
+        prepare(Type.LONG);
+        storage.add(value);
+    }
+
+    /**
+     * Add a {@link Type#DOUBLE} to this vector.
+     *
+     * @param value The double to add.
+     */
+    public void add(double value) {
+        prepare(Type.DOUBLE);
+        storage.add(value);
+    }
+
+    /**
+     * Add a {@link Type#BOOLEAN} to this vector.
+     *
+     * @param value The boolean to add.
+     */
+    public void add(boolean value) {
+        prepare(Type.BOOLEAN);
+        storage.add(value);
+    }
+
+    /**
+     * Add a {@link Type#STRING} to this vector.
+     *
+     * @param value The non-null String to add.
+     */
+    public void add(String value) {
+        add(value, Type.STRING);
+    }
+
+    /**
+     * Add a {@link Type#DECIMAL} to this vector.
+     *
+     * @param value The non-null BigDecimal to add.
+     */
+    public void add(BigDecimal value) {
+        add(value, Type.DECIMAL);
+    }
+
+    /**
+     * Add a {@link Type#TIMESTAMP} to this vector.
+     *
+     * @param value The non-null Timestamp to add.
+     */
+    public void add(Timestamp value) {
+        add(value, Type.TIMESTAMP);
     }
 
     /**
@@ -125,12 +396,30 @@ public class Column implements Iterable<TypedObject> {
     }
 
     /**
-     * Creates a full copy of this Column.
+     * Creates a copy of this Column. The copy is cheap since the values are only copied when either this or the copy
+     * is changed.
      *
      * @return The copied column.
      */
     public Column copy() {
-        return this.stream().collect(Column::new, (c, t) -> c.add(t == null ? null : new TypedObject(t.data, t.type)), Column::add);
+        Column copy = new Column();
+        copy.storage = storage;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    /**
+     * Creates a view of the values at the given positions in this Column. The values are not copied, only the
+     * positions are kept. Like {@link #copy()}, the view is not affected if this Column is changed later.
+     *
+     * @param positions The valid positions to pick, in order. The array is not copied and must not be changed.
+     * @return The Column containing the values at those positions.
+     * @throws IndexOutOfBoundsException if any of the positions is invalid.
+     */
+    public Column select(int[] positions) {
+        shared = true;
+        return new Column(Storages.select(storage, positions));
     }
 
     /**
@@ -139,7 +428,7 @@ public class Column implements Iterable<TypedObject> {
      * @return A Stream of the {@link TypedObject} in this object.
      */
     public Stream<TypedObject> stream() {
-        return values.stream();
+        return IntStream.range(0, size()).mapToObj(storage::get);
     }
 
     @Override
@@ -151,4 +440,68 @@ public class Column implements Iterable<TypedObject> {
     public String toString() {
         return Objects.toString(values);
     }
+
+    /**
+     * Returns the {@link Storage} backing this Column. Used by the type specific {@link Operations} that work directly
+     * on the stored form of the values.
+     *
+     * @return The storage for the values.
+     */
+    Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Turns this non-empty Column into a constant of the given size that repeats its first value. Nothing is copied.
+     *
+     * @param size The new size of this Column.
+     */
+    void broadcast(int size) {
+        storage = new Storages.ConstantStorage(first(), size);
+        shared = false;
+    }
+
+    private void add(Comparable data, Type type) {
+        Objects.requireNonNull(data);
+        prepare(type);
+        storage.add(data, type);
+    }
+
+    private void prepare(Type type) {
+        // A view (like a constant) is never changed in place, so it is treated just like a shared storage.
+        if (shared || storage.isView()) {
+            storage = storage.copy();
+            shared = false;
+        }
+        // Nothing or only nulls stored so far, so we can just switch to a storage specialized for this type.
+        if (type != null && storage.getType() != type && storage.nullCount() == storage.size()) {
+            storage = Storages.create(type, storage.size());
+            return;
+        }
+        // Otherwise, fall back to one that can store all types.
+        if (!storage.accepts(type)) {
+            storage = Storages.demote(storage);
+        }
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("There is no object at position " + position + " in " + this);
+        }
+    }
+
+    /**
+     * A read-only {@link List} view of the values in the Column.
+     */
+    private class Values extends AbstractList<TypedObject> implements RandomAccess {
+        @Override
+        public TypedObject get(int index) {
+            return Column.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return Column.this.size();
+        }
+    }
 }
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+/**
+ * A {@link Column} that has the same value at every position. Only the value and the logical size are stored, so
+ * operating on a scalar and a vector does not need a copy of the scalar for every row of the vector.
+ *
+ * The operations in {@link TypeSystem} broadcast scalars to this. It can still be added to like any other Column, at
+ * which point the values are actually stored.
+ */
+public class ConstantColumn extends Column {
+    /**
+     * Creates a Column that repeats the given value.
+     *
+     * @param value The {@link TypedObject} to repeat or null to repeat a null.
+     * @param size The number of times the value is repeated.
+     */
+    public ConstantColumn(TypedObject value, int size) {
+        super(new Storages.ConstantStorage(value, size));
+    }
+}
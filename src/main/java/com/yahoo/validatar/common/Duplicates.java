@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contains the kernels that find the rows whose keys are in more than one row. A single {@link Type#LONG} or
+ * {@link Type#DOUBLE} key is copied into a primitive array and sorted, and the repeated values are put in a
+ * {@link Lookups.LongSet}. Other keys are counted in a hash map.
+ *
+ * A row with a null in any of its keys is never a duplicate, like a unique constraint in SQL.
+ */
+class Duplicates {
+    /**
+     * Finds the rows whose keys are the same as the keys of some other row.
+     *
+     * @param keys The non-empty {@link List} of key Columns. They must all have the same size.
+     * @return The {@link Type#BOOLEAN} Column that is true for each row with duplicated keys.
+     */
+    static Column duplicates(List<Column> keys) {
+        Column first = keys.get(0);
+        if (keys.size() == 1 && (first.getType() == Type.LONG || first.getType() == Type.DOUBLE)) {
+            return primitives(first);
+        }
+        return objects(keys, first.size());
+    }
+
+    private static Column primitives(Column key) {
+        int size = key.size();
+        long[] values = new long[size];
+        long[] sorted = new long[size - key.nullCount()];
+        for (int i = 0, j = 0; i < size; ++i) {
+            if (!key.isNull(i)) {
+                values[i] = asLong(key, i);
+                sorted[j++] = values[i];
+            }
+        }
+        Arrays.sort(sorted);
+        Lookups.LongSet repeated = new Lookups.LongSet(0);
+        for (int i = 1; i < sorted.length; ++i) {
+            if (sorted[i] == sorted[i - 1]) {
+                repeated.add(sorted[i]);
+            }
+        }
+        Bitmap result = new Bitmap(new long[Bitmap.words(size)]);
+        for (int i = 0; i < size; ++i) {
+            if (!key.isNull(i) && repeated.contains(values[i])) {
+                result.set(i);
+            }
+        }
+        return new Column(Storages.booleans(result, size, null));
+    }
+
+    private static long asLong(Column key, int position) {
+        // Equal doubles have the same bits, like Double#compare
+        return key.getType() == Type.LONG ? key.getLong(position) : Double.doubleToLongBits(key.getDouble(position));
+    }
+
+    private static Column objects(List<Column> keys, int size) {
+        Object[] rows = new Object[size];
+        Map<Object, Integer> counts = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            rows[i] = key(keys, i);
+            if (rows[i] != null) {
+                counts.merge(rows[i], 1, Integer::sum);
+            }
+        }
+        Bitmap result = new Bitmap(new long[Bitmap.words(size)]);
+        for (int i = 0; i < size; ++i) {
+            if (rows[i] != null && counts.get(rows[i]) > 1) {
+                result.set(i);
+            }
+        }
+        return new Column(Storages.booleans(result, size, null));
+    }
+
+    private static Object key(List<Column> keys, int position) {
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < values.length; ++i) {
+            TypedObject value = keys.get(i).get(position);
+            if (value == null) {
+                return null;
+            }
+            // Decimals that only differ in their scale, like 1.0 and 1.00, are equal
+            values[i] = value.type == Type.DECIMAL ? ((BigDecimal) value.data).stripTrailingZeros() : value.data;
+        }
+        return values.length == 1 ? values[0] : Arrays.asList(values);
+    }
+}
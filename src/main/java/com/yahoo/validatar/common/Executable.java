@@ -10,18 +10,19 @@ import java.util.List;
 /**
  * This is an abstraction of something that can be "run" to produce something. The
  * running of it can cause failure and generate messages. This abstracts that out.
+ * Messages and the status may be changed from multiple threads.
  */
 public abstract class Executable {
-    protected boolean failed = false;
+    protected volatile boolean failed = false;
     protected List<String> messages = null;
 
     /**
-     * Get messages.
+     * Get messages. This is a copy, so it can be read while more messages are added from other threads.
      *
-     * @return A {@link java.util.List} of messages.
+     * @return A {@link java.util.List} of messages or null if there are none.
      */
-    public List<String> getMessages() {
-        return messages;
+    public synchronized List<String> getMessages() {
+        return messages == null ? null : new ArrayList<>(messages);
     }
 
     /**
@@ -29,7 +30,7 @@ public abstract class Executable {
      *
      * @param message The message to add.
      */
-    public void addMessage(String message) {
+    public synchronized void addMessage(String message) {
         if (this.messages == null) {
             this.messages = new ArrayList<>();
         }
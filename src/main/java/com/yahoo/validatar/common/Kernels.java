@@ -0,0 +1,635 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.Operations.BinaryOperation;
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+/**
+ * Contains the kernels that perform an operation on whole {@link Type#LONG}, {@link Type#DOUBLE} and
+ * {@link Type#BOOLEAN} Columns at once. The values are read as primitive arrays or bitsets and the operator is picked
+ * once for the Column instead of for every value. The type specific {@link Operations} use these for
+ * {@link Operations#perform(BinaryOperation, Column, Column)}.
+ *
+ * The Columns passed in must have the same size. If either value in a row is null, the result for that row is null,
+ * except for {@link BinaryOperation#AND} and {@link BinaryOperation#OR}, which use three valued logic just like
+ * {@link TypeSystem#perform(BinaryOperation, Column, Column)}.
+ *
+ * A {@link ConstantColumn} that a scalar is broadcast as is never expanded into an array. Its value is read once and
+ * used with every value of the other Column instead.
+ */
+class Kernels {
+    /**
+     * Performs an operation on two {@link Type#LONG} Columns.
+     *
+     * @param operation The operation.
+     * @param first The first column.
+     * @param second The second column.
+     * @return The result column or null if the operation is not supported for longs.
+     */
+    static Column longs(BinaryOperation operation, Column first, Column second) {
+        int size = first.size();
+        Storage a = first.getStorage();
+        Storage b = second.getStorage();
+        if (isScalar(a) || isScalar(b)) {
+            return scalarLongs(operation, a, b, size);
+        }
+        switch (operation) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULUS:
+                Bitmap nulls = union(Storages.nullBits(a), Storages.nullBits(b));
+                long[] values = arithmetic(operation, Storages.longs(a), Storages.longs(b), size, nulls);
+                return new Column(Storages.longs(values, size, nulls));
+            case EQUAL:
+            case NOT_EQUAL:
+            case GREATER:
+            case LESS:
+            case GREATER_EQUAL:
+            case LESS_EQUAL:
+                return compare(operation, Storages.longs(a), Storages.longs(b), size, a, b);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Performs an operation on two {@link Type#DOUBLE} Columns.
+     *
+     * @param operation The operation.
+     * @param first The first column.
+     * @param second The second column.
+     * @return The result column or null if the operation is not supported for doubles.
+     */
+    static Column doubles(BinaryOperation operation, Column first, Column second) {
+        int size = first.size();
+        Storage a = first.getStorage();
+        Storage b = second.getStorage();
+        if (isScalar(a) || isScalar(b)) {
+            return scalarDoubles(operation, a, b, size);
+        }
+        switch (operation) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+                Bitmap nulls = union(Storages.nullBits(a), Storages.nullBits(b));
+                double[] values = arithmetic(operation, Storages.doubles(a), Storages.doubles(b), size);
+                return new Column(Storages.doubles(values, size, nulls));
+            case EQUAL:
+            case NOT_EQUAL:
+            case GREATER:
+            case LESS:
+            case GREATER_EQUAL:
+            case LESS_EQUAL:
+                return compare(operation, Storages.doubles(a), Storages.doubles(b), size, a, b);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Performs an operation on two {@link Type#BOOLEAN} Columns, 64 values at a time.
+     *
+     * @param operation The operation.
+     * @param first The first column.
+     * @param second The second column.
+     * @return The result column or null if the operation is not supported for booleans.
+     */
+    static Column booleans(BinaryOperation operation, Column first, Column second) {
+        if (operation != BinaryOperation.AND && operation != BinaryOperation.OR &&
+            operation != BinaryOperation.EQUAL && operation != BinaryOperation.NOT_EQUAL) {
+            return null;
+        }
+        int size = first.size();
+        Storage a = first.getStorage();
+        Storage b = second.getStorage();
+        // A scalar is the same word repeated instead of an expanded bitmap
+        Bitmap x = isScalar(a) ? null : Storages.booleans(a);
+        Bitmap y = isScalar(b) ? null : Storages.booleans(b);
+        long xScalar = x == null && a.getBoolean(0) ? -1L : 0L;
+        long yScalar = y == null && b.getBoolean(0) ? -1L : 0L;
+        Bitmap xNulls = orEmpty(Storages.nullBits(a));
+        Bitmap yNulls = orEmpty(Storages.nullBits(b));
+
+        int words = Bitmap.words(size);
+        long[] values = new long[words];
+        long[] nulls = new long[words];
+        boolean hasNulls = false;
+        for (int i = 0; i < words; ++i) {
+            long mask = mask(i, words, size);
+            long xNull = xNulls.getWord(i);
+            long yNull = yNulls.getWord(i);
+            long xWord = x == null ? xScalar : x.getWord(i);
+            long yWord = y == null ? yScalar : y.getWord(i);
+            long xTrue = xWord & ~xNull;
+            long yTrue = yWord & ~yNull;
+            long xFalse = ~xWord & ~xNull;
+            long yFalse = ~yWord & ~yNull;
+            long value;
+            long known;
+            switch (operation) {
+                case AND:
+                    value = xTrue & yTrue;
+                    known = value | xFalse | yFalse;
+                    break;
+                case OR:
+                    value = xTrue | yTrue;
+                    known = value | (xFalse & yFalse);
+                    break;
+                case EQUAL:
+                    known = ~(xNull | yNull);
+                    value = ~(xTrue ^ yTrue) & known;
+                    break;
+                default:
+                    known = ~(xNull | yNull);
+                    value = (xTrue ^ yTrue) & known;
+                    break;
+            }
+            values[i] = value & mask;
+            nulls[i] = ~known & mask;
+            hasNulls |= nulls[i] != 0;
+        }
+        return new Column(Storages.booleans(new Bitmap(values), size, hasNulls ? new Bitmap(nulls) : null));
+    }
+
+    /**
+     * Logically negates a {@link Type#BOOLEAN} Column, 64 values at a time. Nulls stay null.
+     *
+     * @param column The column.
+     * @return The result column.
+     */
+    static Column not(Column column) {
+        int size = column.size();
+        Storage storage = column.getStorage();
+        Bitmap x = Storages.booleans(storage);
+        Bitmap nulls = union(Storages.nullBits(storage), null);
+        Bitmap xNulls = orEmpty(nulls);
+
+        int words = Bitmap.words(size);
+        long[] values = new long[words];
+        for (int i = 0; i < words; ++i) {
+            values[i] = ~x.getWord(i) & ~xNulls.getWord(i) & mask(i, words, size);
+        }
+        return new Column(Storages.booleans(new Bitmap(values), size, nulls));
+    }
+
+    /**
+     * Converts a {@link Type#LONG} Column to a {@link Type#DOUBLE} Column. This is the widening that
+     * {@link TypeSystem#unifyType(TypedObject, TypedObject)} does for a long and a double, done once for the Column.
+     *
+     * @param column The column.
+     * @return The converted column.
+     */
+    static Column asDoubles(Column column) {
+        int size = column.size();
+        if (column.isConstant() && column.nullCount() == 0) {
+            return new ConstantColumn(TypeSystem.asTypedObject((double) column.getLong(0)), size);
+        }
+        Storage storage = column.getStorage();
+        long[] longs = Storages.longs(storage);
+        double[] values = new double[size];
+        for (int i = 0; i < size; ++i) {
+            values[i] = longs[i];
+        }
+        return new Column(Storages.doubles(values, size, union(Storages.nullBits(storage), null)));
+    }
+
+    private static Column scalarLongs(BinaryOperation operation, Storage a, Storage b, int size) {
+        boolean scalarFirst = isScalar(a);
+        Storage storage = scalarFirst ? b : a;
+        long[] values = Storages.longs(storage);
+        long scalar = scalarFirst ? a.getLong(0) : b.getLong(0);
+        switch (operation) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULUS:
+                Bitmap nulls = union(Storages.nullBits(storage), null);
+                long[] result = scalarFirst ? arithmetic(operation, scalar, values, size, nulls) :
+                                              arithmetic(operation, values, scalar, size, nulls);
+                return new Column(Storages.longs(result, size, nulls));
+            case EQUAL:
+            case NOT_EQUAL:
+            case GREATER:
+            case LESS:
+            case GREATER_EQUAL:
+            case LESS_EQUAL:
+                return compare(scalarFirst ? flip(operation) : operation, values, scalar, size, storage);
+            default:
+                return null;
+        }
+    }
+
+    private static Column scalarDoubles(BinaryOperation operation, Storage a, Storage b, int size) {
+        boolean scalarFirst = isScalar(a);
+        Storage storage = scalarFirst ? b : a;
+        double[] values = Storages.doubles(storage);
+        double scalar = scalarFirst ? a.getDouble(0) : b.getDouble(0);
+        switch (operation) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+                double[] result = scalarFirst ? arithmetic(operation, scalar, values, size) :
+                                                arithmetic(operation, values, scalar, size);
+                return new Column(Storages.doubles(result, size, union(Storages.nullBits(storage), null)));
+            case EQUAL:
+            case NOT_EQUAL:
+            case GREATER:
+            case LESS:
+            case GREATER_EQUAL:
+            case LESS_EQUAL:
+                return compare(scalarFirst ? flip(operation) : operation, values, scalar, size, storage);
+            default:
+                return null;
+        }
+    }
+
+    private static long[] arithmetic(BinaryOperation operation, long[] a, long[] b, int size, Bitmap nulls) {
+        long[] result = new long[size];
+        switch (operation) {
+            case ADD:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] + b[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] - b[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] * b[i];
+                }
+                break;
+            case DIVIDE:
+                // The value stored for a null is not divided by since it could be 0
+                for (int i = 0; i < size; ++i) {
+                    if (nulls == null || !nulls.get(i)) {
+                        result[i] = a[i] / b[i];
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    if (nulls == null || !nulls.get(i)) {
+                        result[i] = a[i] % b[i];
+                    }
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static double[] arithmetic(BinaryOperation operation, double[] a, double[] b, int size) {
+        double[] result = new double[size];
+        switch (operation) {
+            case ADD:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] + b[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] - b[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] * b[i];
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] / b[i];
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static long[] arithmetic(BinaryOperation operation, long[] a, long b, int size, Bitmap nulls) {
+        long[] result = new long[size];
+        switch (operation) {
+            case ADD:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] + b;
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] - b;
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] * b;
+                }
+                break;
+            case DIVIDE:
+                for (int i = 0; i < size; ++i) {
+                    if (nulls == null || !nulls.get(i)) {
+                        result[i] = a[i] / b;
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    if (nulls == null || !nulls.get(i)) {
+                        result[i] = a[i] % b;
+                    }
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static long[] arithmetic(BinaryOperation operation, long a, long[] b, int size, Bitmap nulls) {
+        long[] result = new long[size];
+        switch (operation) {
+            case ADD:
+            case MULTIPLY:
+                return arithmetic(operation, b, a, size, nulls);
+            case SUBTRACT:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a - b[i];
+                }
+                break;
+            case DIVIDE:
+                // The value stored for a null is not divided by since it could be 0
+                for (int i = 0; i < size; ++i) {
+                    if (nulls == null || !nulls.get(i)) {
+                        result[i] = a / b[i];
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    if (nulls == null || !nulls.get(i)) {
+                        result[i] = a % b[i];
+                    }
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static double[] arithmetic(BinaryOperation operation, double[] a, double b, int size) {
+        double[] result = new double[size];
+        switch (operation) {
+            case ADD:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] + b;
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] - b;
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] * b;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a[i] / b;
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static double[] arithmetic(BinaryOperation operation, double a, double[] b, int size) {
+        double[] result = new double[size];
+        switch (operation) {
+            case ADD:
+            case MULTIPLY:
+                return arithmetic(operation, b, a, size);
+            case SUBTRACT:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a - b[i];
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    result[i] = a / b[i];
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static Column compare(BinaryOperation operation, long[] a, long b, int size, Storage first) {
+        long[] words = new long[Bitmap.words(size)];
+        switch (operation) {
+            case EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] == b ? 1L : 0L) << i;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] != b ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] > b ? 1L : 0L) << i;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] < b ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] >= b ? 1L : 0L) << i;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] <= b ? 1L : 0L) << i;
+                }
+                break;
+        }
+        return asBooleans(words, size, first, first);
+    }
+
+    private static Column compare(BinaryOperation operation, double[] a, double b, int size, Storage first) {
+        long[] words = new long[Bitmap.words(size)];
+        switch (operation) {
+            case EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b) == 0 ? 1L : 0L) << i;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b) != 0 ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b) > 0 ? 1L : 0L) << i;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b) < 0 ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b) >= 0 ? 1L : 0L) << i;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b) <= 0 ? 1L : 0L) << i;
+                }
+                break;
+        }
+        return asBooleans(words, size, first, first);
+    }
+
+    private static Column compare(BinaryOperation operation, long[] a, long[] b, int size, Storage first, Storage second) {
+        long[] words = new long[Bitmap.words(size)];
+        switch (operation) {
+            case EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] == b[i] ? 1L : 0L) << i;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] != b[i] ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] > b[i] ? 1L : 0L) << i;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] < b[i] ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] >= b[i] ? 1L : 0L) << i;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (a[i] <= b[i] ? 1L : 0L) << i;
+                }
+                break;
+        }
+        return asBooleans(words, size, first, second);
+    }
+
+    private static Column compare(BinaryOperation operation, double[] a, double[] b, int size, Storage first,
+                                  Storage second) {
+        // Double#compare orders the values just like Double#compareTo does for the boxed values
+        long[] words = new long[Bitmap.words(size)];
+        switch (operation) {
+            case EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b[i]) == 0 ? 1L : 0L) << i;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b[i]) != 0 ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b[i]) > 0 ? 1L : 0L) << i;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b[i]) < 0 ? 1L : 0L) << i;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b[i]) >= 0 ? 1L : 0L) << i;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; ++i) {
+                    words[i >>> 6] |= (Double.compare(a[i], b[i]) <= 0 ? 1L : 0L) << i;
+                }
+                break;
+        }
+        return asBooleans(words, size, first, second);
+    }
+
+    private static Column asBooleans(long[] words, int size, Storage first, Storage second) {
+        Bitmap nulls = union(Storages.nullBits(first), Storages.nullBits(second));
+        if (nulls != null) {
+            // Clear what was computed from the values stored for the nulls
+            for (int i = 0; i < words.length; ++i) {
+                words[i] &= ~nulls.getWord(i);
+            }
+        }
+        return new Column(Storages.booleans(new Bitmap(words), size, nulls));
+    }
+
+    // Always returns a new Bitmap (or null if there are no nulls) so that the result does not share it
+    private static Bitmap union(Bitmap first, Bitmap second) {
+        if (first == null && second == null) {
+            return null;
+        }
+        Bitmap a = orEmpty(first);
+        Bitmap b = orEmpty(second);
+        long[] words = new long[Math.max(a.wordCount(), b.wordCount())];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = a.getWord(i) | b.getWord(i);
+        }
+        return new Bitmap(words);
+    }
+
+    // A null broadcast is left to the arrays since it has no value to use
+    private static boolean isScalar(Storage storage) {
+        return storage instanceof Storages.ConstantStorage && storage.nullCount() == 0;
+    }
+
+    // The comparison with the operands swapped, so that the scalar can always be the second operand
+    private static BinaryOperation flip(BinaryOperation operation) {
+        switch (operation) {
+            case GREATER:
+                return BinaryOperation.LESS;
+            case LESS:
+                return BinaryOperation.GREATER;
+            case GREATER_EQUAL:
+                return BinaryOperation.LESS_EQUAL;
+            case LESS_EQUAL:
+                return BinaryOperation.GREATER_EQUAL;
+            default:
+                return operation;
+        }
+    }
+
+    private static Bitmap orEmpty(Bitmap bitmap) {
+        return bitmap == null ? new Bitmap() : bitmap;
+    }
+
+    private static long mask(int word, int words, int size) {
+        // Only the bits of the last word past the size are masked off
+        return word < words - 1 || (size & 63) == 0 ? -1L : (1L << size) - 1;
+    }
+}
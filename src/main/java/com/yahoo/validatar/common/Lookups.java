@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Contains the kernels that check if the values in a Column are in another Column. The values of the other Column are
+ * put in a hash set once and each value is then checked in constant time. {@link Type#LONG} and {@link Type#DOUBLE}
+ * values are kept in a {@link LongSet} of primitives. Nulls in the other Column are ignored.
+ */
+class Lookups {
+    /**
+     * A set of longs using open addressing, so nothing is created per value.
+     */
+    static class LongSet {
+        private static final double LOAD_FACTOR = 0.5;
+
+        private long[] slots;
+        private boolean hasZero = false;
+        private int size = 0;
+
+        /**
+         * Creates a set with room for the given number of values.
+         *
+         * @param expected The number of values that will be added.
+         */
+        LongSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+            slots = new long[capacity];
+        }
+
+        /**
+         * Adds a value.
+         *
+         * @param value The value to add.
+         */
+        void add(long value) {
+            // An empty slot is a 0, so a 0 is kept aside
+            if (value == 0L) {
+                hasZero = true;
+                return;
+            }
+            if (size >= slots.length * LOAD_FACTOR) {
+                grow();
+            }
+            int slot = find(slots, value);
+            if (slots[slot] == 0L) {
+                slots[slot] = value;
+                size++;
+            }
+        }
+
+        /**
+         * Checks if a value was added.
+         *
+         * @param value The value to check.
+         * @return True iff the value was added.
+         */
+        boolean contains(long value) {
+            return value == 0L ? hasZero : slots[find(slots, value)] == value;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            for (long value : old) {
+                if (value != 0L) {
+                    slots[find(slots, value)] = value;
+                }
+            }
+        }
+
+        private static int find(long[] slots, long value) {
+            int mask = slots.length - 1;
+            int slot = (int) HyperLogLog.hash(value) & mask;
+            while (slots[slot] != 0L && slots[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Checks if each value in a Column is in another Column. The result for a null value is null. Two values are the
+     * same if they are equal with the {@link TypeSystem}.
+     *
+     * @param values The values to check.
+     * @param lookup The values to look for them in.
+     * @return The {@link Type#BOOLEAN} Column with the same size as the values.
+     */
+    static Column in(Column values, Column lookup) {
+        Type type = values.getType();
+        Type lookupType = lookup.getType();
+        if (isNumeric(type) && isNumeric(lookupType)) {
+            // Compare as doubles if either side is, like the TypeSystem does
+            boolean asDoubles = type == Type.DOUBLE || lookupType == Type.DOUBLE;
+            LongSet set = new LongSet(lookup.size());
+            for (int i = 0; i < lookup.size(); ++i) {
+                if (!lookup.isNull(i)) {
+                    set.add(asLong(lookup, i, asDoubles));
+                }
+            }
+            return check(values, i -> set.contains(asLong(values, i, asDoubles)));
+        }
+        if (type == lookupType) {
+            Set<Object> set = new HashSet<>();
+            lookup.stream().filter(Objects::nonNull).map(Lookups::normalize).forEach(set::add);
+            return check(values, i -> set.contains(normalize(values.get(i))));
+        }
+        // Values of different types need to be unified, which only comparing them does
+        Set<TypedObject> set = new TreeSet<>(TypeSystem::compare);
+        lookup.stream().filter(Objects::nonNull).forEach(set::add);
+        return check(values, i -> set.contains(values.get(i)));
+    }
+
+    private static boolean isNumeric(Type type) {
+        return type == Type.LONG || type == Type.DOUBLE;
+    }
+
+    private static long asLong(Column column, int position, boolean asDoubles) {
+        if (!asDoubles) {
+            return column.getLong(position);
+        }
+        double value = column.getType() == Type.LONG ? (double) column.getLong(position) : column.getDouble(position);
+        // Equal doubles have the same bits. Only 0.0 and -0.0 differ and all NaNs are the same, like Double#compare.
+        return Double.doubleToLongBits(value);
+    }
+
+    private static Object normalize(TypedObject value) {
+        // Decimals that only differ in their scale, like 1.0 and 1.00, are equal
+        return value.type == Type.DECIMAL ? ((BigDecimal) value.data).stripTrailingZeros() : value.data;
+    }
+
+    private static Column check(Column values, IntPredicate contains) {
+        int size = values.size();
+        Bitmap result = new Bitmap(new long[Bitmap.words(size)]);
+        Bitmap nulls = null;
+        for (int i = 0; i < size; ++i) {
+            if (values.isNull(i)) {
+                nulls = nulls == null ? new Bitmap() : nulls;
+                nulls.set(i);
+            } else if (contains.test(i)) {
+                result.set(i);
+            }
+        }
+        return new Column(Storages.booleans(result, size, nulls));
+    }
+}
@@ -30,6 +30,20 @@ public interface Operations {
         ADD, SUBTRACT, MULTIPLY, DIVIDE, MODULUS, EQUAL, NOT_EQUAL, GREATER, LESS, GREATER_EQUAL, LESS_EQUAL, OR, AND
     }
 
+    /**
+     * These are the operations that aggregate all the values of a {@link Column} into one.
+     */
+    enum AggregateOperation {
+        COUNT, COUNT_DISTINCT, APPROX_COUNT_DISTINCT, SUM, MIN, MAX, AVG, EXISTS
+    }
+
+    /**
+     * These are the operations that compare each value of a {@link Column} with the value some rows before or after it.
+     */
+    enum WindowOperation {
+        LAG, LEAD, DELTA, RATIO
+    }
+
     /**
      * Adds two TypedObjects.
      *
@@ -184,15 +198,40 @@ public interface Operations {
     }
 
     /**
-     * Casts a TypedObject into its given type.
+     * Casts a TypedObject into this type. The object itself is not changed.
      *
      * @param object The object.
-     * @return The result object.
+     * @return The casted object (or the object if it already is this type) or null if it cannot be cast.
      */
     default TypedObject cast(TypedObject object) {
         return null;
     }
 
+    /**
+     * Performs a binary operation on two {@link Column} of this type at once. A type specific implementation can
+     * override this if it can do the operation on the whole Column faster than one value at a time.
+     *
+     * @param operation The operation.
+     * @param first The first column.
+     * @param second The second column. It has the same size as the first.
+     * @return The result column or null if the operation should be done one value at a time.
+     */
+    default Column perform(BinaryOperation operation, Column first, Column second) {
+        return null;
+    }
+
+    /**
+     * Performs an unary operation on a {@link Column} of this type at once. A type specific implementation can
+     * override this if it can do the operation on the whole Column faster than one value at a time.
+     *
+     * @param operation The operation.
+     * @param column The column.
+     * @return The result column or null if the operation should be done one value at a time.
+     */
+    default Column perform(UnaryOperation operation, Column column) {
+        return null;
+    }
+
     /**
      * Given a BinaryOperation, finds the operator for it. Null if it cannot.
      *
@@ -4,6 +4,8 @@
  */
 package com.yahoo.validatar.common;
 
+import com.yahoo.validatar.common.Storages.DictionaryStorage;
+
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 
@@ -36,22 +38,27 @@ public class Operators {
             return asTypedObject(!(Boolean) object.data);
         }
 
+        @Override
+        public Column perform(BinaryOperation operation, Column first, Column second) {
+            return Kernels.booleans(operation, first, second);
+        }
+
+        @Override
+        public Column perform(UnaryOperation operation, Column column) {
+            return operation == UnaryOperation.NOT ? Kernels.not(column) : null;
+        }
+
         @Override
         public TypedObject cast(TypedObject object) {
             switch (object.type) {
                 case STRING:
-                    object.data = Boolean.valueOf((String) object.data);
-                    break;
+                    return asTypedObject(Boolean.valueOf((String) object.data));
                 case BOOLEAN:
-                    break;
-                case LONG:
-                case DOUBLE:
-                case DECIMAL:
-                case TIMESTAMP:
+                    return object;
+                default:
+                    // LONG, DOUBLE, DECIMAL and TIMESTAMP
                     return null;
             }
-            object.type = TypeSystem.Type.BOOLEAN;
-            return object;
         }
     }
 
@@ -81,24 +88,24 @@ public class Operators {
             return asTypedObject((Long) first.data % (Long) second.data);
         }
 
+        @Override
+        public Column perform(BinaryOperation operation, Column first, Column second) {
+            return Kernels.longs(operation, first, second);
+        }
+
         @Override
         public TypedObject cast(TypedObject object) {
             switch (object.type) {
                 case STRING:
-                    object.data = Long.valueOf((String) object.data);
-                    break;
+                    return asTypedObject(Long.valueOf((String) object.data));
                 case LONG:
-                    break;
+                    return object;
                 case TIMESTAMP:
-                    object.data = ((Timestamp) object.data).getTime();
-                    break;
-                case DOUBLE:
-                case DECIMAL:
-                case BOOLEAN:
+                    return asTypedObject(((Timestamp) object.data).getTime());
+                default:
+                    // DOUBLE, DECIMAL and BOOLEAN
                     return null;
             }
-            object.type = TypeSystem.Type.LONG;
-            return object;
         }
     }
     public static class DoubleOperator implements Operations {
@@ -122,24 +129,24 @@ public class Operators {
             return asTypedObject((Double) first.data / (Double) second.data);
         }
 
+        @Override
+        public Column perform(BinaryOperation operation, Column first, Column second) {
+            return Kernels.doubles(operation, first, second);
+        }
+
         @Override
         public TypedObject cast(TypedObject object) {
             switch (object.type) {
                 case STRING:
-                    object.data = Double.valueOf((String) object.data);
-                    break;
+                    return asTypedObject(Double.valueOf((String) object.data));
                 case DOUBLE:
-                    break;
+                    return object;
                 case LONG:
-                    object.data = ((Long) object.data).doubleValue();
-                    break;
-                case DECIMAL:
-                case BOOLEAN:
-                case TIMESTAMP:
+                    return asTypedObject(((Long) object.data).doubleValue());
+                default:
+                    // DECIMAL, BOOLEAN and TIMESTAMP
                     return null;
             }
-            object.type = TypeSystem.Type.DOUBLE;
-            return object;
         }
     }
 
@@ -149,28 +156,79 @@ public class Operators {
             return asTypedObject((String) first.data + (String) second.data);
         }
 
+        @Override
+        public Column perform(BinaryOperation operation, Column first, Column second) {
+            boolean isEqual = operation == BinaryOperation.EQUAL;
+            if (!isEqual && operation != BinaryOperation.NOT_EQUAL) {
+                return null;
+            }
+            DictionaryStorage a = asEncoded(first);
+            DictionaryStorage b = asEncoded(second);
+            if (a != null && b != null) {
+                return compare(a, b, isEqual);
+            }
+            if (a != null && second.isConstant()) {
+                return compare(a, second.first(), isEqual);
+            }
+            if (b != null && first.isConstant()) {
+                return compare(b, first.first(), isEqual);
+            }
+            return null;
+        }
+
+        private static DictionaryStorage asEncoded(Column column) {
+            Storage storage = column.getStorage();
+            if (storage instanceof DictionaryStorage && ((DictionaryStorage) storage).isEncoded()) {
+                return (DictionaryStorage) storage;
+            }
+            return null;
+        }
+
+        private static Column compare(DictionaryStorage a, DictionaryStorage b, boolean isEqual) {
+            // Map each code in the first dictionary to the code for the same String in the second. Then each row is
+            // just an int comparison.
+            int[] translation = new int[a.dictionarySize()];
+            for (int i = 0; i < translation.length; ++i) {
+                translation[i] = b.encode(a.decode(i));
+            }
+            int size = a.size();
+            Column result = new Column(TypeSystem.Type.BOOLEAN);
+            for (int i = 0; i < size; ++i) {
+                if (a.isNull(i) || b.isNull(i)) {
+                    result.add((TypedObject) null);
+                } else {
+                    result.add((translation[a.getCode(i)] == b.getCode(i)) == isEqual);
+                }
+            }
+            return result;
+        }
+
+        private static Column compare(DictionaryStorage storage, TypedObject constant, boolean isEqual) {
+            // The constant is not null since it has a type. Look it up once. Then each row is just an int comparison.
+            int size = storage.size();
+            int code = storage.encode(constant.data);
+            Column result = new Column(TypeSystem.Type.BOOLEAN);
+            for (int i = 0; i < size; ++i) {
+                if (storage.isNull(i)) {
+                    result.add((TypedObject) null);
+                } else {
+                    result.add((storage.getCode(i) == code) == isEqual);
+                }
+            }
+            return result;
+        }
+
         @Override
         public TypedObject cast(TypedObject object) {
             switch (object.type) {
                 case STRING:
-                    break;
-                case LONG:
-                    object.data = ((Long) object.data).toString();
-                    break;
-                case DOUBLE:
-                    object.data = ((Double) object.data).toString();
-                    break;
-                case DECIMAL:
-                    object.data = ((BigDecimal) object.data).toString();
-                    break;
-                case BOOLEAN:
-                    object.data = ((Boolean) object.data).toString();
-                    break;
+                    return object;
                 case TIMESTAMP:
                     return null;
+                default:
+                    // LONG, DOUBLE, DECIMAL and BOOLEAN
+                    return asTypedObject(object.data.toString());
             }
-            object.type = TypeSystem.Type.STRING;
-            return object;
         }
     }
 
@@ -204,24 +262,19 @@ public class Operators {
         public TypedObject cast(TypedObject object) {
             switch (object.type) {
                 case STRING:
-                    object.data = new BigDecimal((String) object.data);
-                    break;
+                    return asTypedObject(new BigDecimal((String) object.data));
                 case LONG:
-                    object.data = BigDecimal.valueOf((Long) object.data);
-                    break;
+                    return asTypedObject(BigDecimal.valueOf((Long) object.data));
                 case DOUBLE:
-                    object.data = BigDecimal.valueOf((Double) object.data);
-                    break;
+                    return asTypedObject(BigDecimal.valueOf((Double) object.data));
                 case DECIMAL:
-                    break;
+                    return object;
                 case TIMESTAMP:
-                    object.data = BigDecimal.valueOf(((Timestamp) object.data).getTime());
-                    break;
-                case BOOLEAN:
+                    return asTypedObject(BigDecimal.valueOf(((Timestamp) object.data).getTime()));
+                default:
+                    // BOOLEAN
                     return null;
             }
-            object.type = TypeSystem.Type.DECIMAL;
-            return object;
         }
     }
 
@@ -255,18 +308,13 @@ public class Operators {
         public TypedObject cast(TypedObject object) {
             switch (object.type) {
                 case LONG:
-                    object.data = new Timestamp((Long) object.data);
-                    break;
+                    return asTypedObject(new Timestamp((Long) object.data));
                 case TIMESTAMP:
-                    break;
-                case STRING:
-                case DOUBLE:
-                case DECIMAL:
-                case BOOLEAN:
+                    return object;
+                default:
+                    // STRING, DOUBLE, DECIMAL and BOOLEAN
                     return null;
             }
-            object.type = TypeSystem.Type.TIMESTAMP;
-            return object;
         }
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A KLL sketch that estimates the quantiles of the values added to it. The values are kept in levels of compactors.
+ * An item at level h stands for 2^h of the added values. When a level is full, it is sorted and every other item is
+ * moved up a level, so only a few hundred items are kept no matter how many values are added. The rank of a quantile
+ * is off by about 1% of the count at most with high probability. Until the first level is full, the quantiles are
+ * exact.
+ *
+ * The items moved up are picked with a fixed seed, so adding the same values in the same order always gives the same
+ * quantiles.
+ */
+class QuantileSketch {
+    private static final int K = 200;
+    private static final int MIN_CAPACITY = 8;
+    private static final double DECAY = 2.0 / 3.0;
+    private static final long SEED = 42L;
+
+    private final Random random = new Random(SEED);
+    private double[][] levels = {new double[K]};
+    private int[] sizes = {0};
+    private long count = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value to add. It must not be NaN.
+     */
+    void update(double value) {
+        min = count == 0 ? value : Math.min(min, value);
+        max = count == 0 ? value : Math.max(max, value);
+        count++;
+        add(0, value);
+    }
+
+    /**
+     * Finds the value at the given quantile using the nearest rank. The smallest value whose rank is at least
+     * {@code fraction * count} is returned.
+     *
+     * @param fraction The quantile to find, from 0.0 to 1.0.
+     * @return The estimated value at the quantile or NaN if nothing was added.
+     */
+    double quantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        // The smallest and largest are known exactly
+        if (fraction <= 0.0) {
+            return min;
+        }
+        if (fraction >= 1.0) {
+            return max;
+        }
+        int items = Arrays.stream(sizes).sum();
+        double[] values = new double[items];
+        long[] weights = new long[items];
+        Integer[] order = new Integer[items];
+        for (int level = 0, i = 0; level < levels.length; ++level) {
+            for (int j = 0; j < sizes[level]; ++j, ++i) {
+                values[i] = levels[level][j];
+                weights[i] = 1L << level;
+                order[i] = i;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        // The weights of the items always add up to the count
+        double rank = Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i : order) {
+            seen += weights[i];
+            if (seen >= rank) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    private void add(int level, double value) {
+        if (level == levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            levels[level] = new double[capacity(level)];
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        if (sizes[level] >= capacity(level)) {
+            compact(level);
+        }
+    }
+
+    private int capacity(int level) {
+        // The lower levels get smaller as the sketch grows taller
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(K * Math.pow(DECAY, depth)));
+    }
+
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        // An odd item out stays here
+        int pairs = size / 2;
+        double[] promoted = new double[pairs];
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = 0; i < pairs; ++i) {
+            promoted[i] = items[2 * i + offset];
+        }
+        if (size % 2 == 1) {
+            items[0] = items[size - 1];
+            sizes[level] = 1;
+        } else {
+            sizes[level] = 0;
+        }
+        for (double item : promoted) {
+            add(level + 1, item);
+        }
+    }
+}
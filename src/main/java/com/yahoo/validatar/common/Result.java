@@ -7,7 +7,9 @@ package com.yahoo.validatar.common;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Formatter;
@@ -16,6 +18,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
@@ -26,8 +30,12 @@ import java.util.stream.IntStream;
  * having to specify the namespace. If you do not provide a namespace, then you will have to ensure that columns you
  * operate on within the Result are unique yourself.
  *
- * Provides methods to do Cartesian Products and Joins on datasets. See {@link #cartesianProduct(List)} and
- * {@link #join(Result, Column)}.
+ * Provides methods to do Cartesian Products and Joins on datasets. See {@link #cartesianProduct(List)},
+ * {@link #join(Result, Column)}, {@link #join(Result, Result, Function)},
+ * {@link #hashJoin(Result, List, Result, List)} and
+ * {@link #rangeJoin(Result, Column, Result, Column, boolean, Column, boolean)}. Conditions can also be checked on
+ * groups of rows with {@link #groupBy(Result, List, Function)} and on sorted rows with
+ * {@link #orderBy(Result, List, Function)}.
  */
 @Slf4j @Getter
 public class Result {
@@ -41,6 +49,11 @@ public class Result {
     public static final String SEPARATOR = ".";
     public static final String FORMAT_VALUE = "%16s";
 
+    /**
+     * The number of rows of a product that are created and filtered at once by {@link #join(Result, Result, Function)}.
+     */
+    public static final int PARTITION_SIZE = 1 << 16;
+
     /**
      * Creates an empty result containing the provided column names.
      *
@@ -140,9 +153,7 @@ public class Result {
     public void addQualifiedRow(Map<String, TypedObject> row) {
         // Will add nulls if row does not contain all the column names.
         for (Map.Entry<String, Column> column : columns.entrySet()) {
-            TypedObject value = row.get(column.getKey());
-            // Create a copy of the TypedObject
-            column.getValue().add(new TypedObject(value.data, value.type));
+            column.getValue().add(row.get(column.getKey()));
         }
     }
 
@@ -346,30 +357,98 @@ public class Result {
 
     private static Result cartesianProduct(Result currentProduct, Result target) {
         log.info("Performing a cartesian product on {} and {}", currentProduct, target);
+        return join(currentProduct, target, null);
+    }
 
-        // Create a new Result with all the new columns
-        List<String> names = new ArrayList<>();
-        names.addAll(currentProduct.getColumns().keySet());
-        names.addAll(target.getColumns().keySet());
-        Result product = new Result(names);
-
-        // The number of rows in currentProduct are the same for all columns in currentProduct.
-        // This can be slow if there are lot of column or rows. This is the most generic and simplest to maintain
-        for (int i = 0; i < currentProduct.numberOfRows(); ++i) {
-            Map<String, TypedObject> row = currentProduct.getRow(i);
-            // Extend the row with the new values. They will be overridden each iteration.
-            for (int j = 0; j < target.numberOfRows(); ++j) {
-                row.putAll(target.getRow(j));
-                product.addQualifiedRow(row);
-            }
+    /**
+     * Performs a Cartesian Product of two results and keeps only the rows for which the condition is true. Nulls are
+     * treated as false. This is the same as doing a {@link #join(Result, Column)} on the product with the condition
+     * evaluated on it, but the whole product is never created.
+     *
+     * Instead, the rows of the first result are split into partitions, each of which produces about
+     * {@link #PARTITION_SIZE} rows of the product. The product of each partition with the second result is created
+     * and filtered by the condition independently on the common {@link java.util.concurrent.ForkJoinPool}. The rows
+     * that are kept are then concatenated in order. The condition must therefore be safe to evaluate concurrently.
+     *
+     * Like {@link #join(Result, Column)}, the rows are not copied.
+     *
+     * @param left The first result.
+     * @param right The second result.
+     * @param condition The {@link Function} that evaluates to a boolean {@link Column} for the rows of a product or
+     *                  null to keep all the rows.
+     * @return The joined result.
+     */
+    public static Result join(Result left, Result right, Function<Result, Column> condition) {
+        Objects.requireNonNull(left);
+        Objects.requireNonNull(right);
+        int leftRows = left.numberOfRows();
+        int rightRows = right.numberOfRows();
+        if (leftRows == 0 || rightRows == 0) {
+            return select(left, new int[0]).merge(select(right, new int[0]));
+        }
+        int leftRowsPerPartition = Math.max(1, PARTITION_SIZE / rightRows);
+        int partitions = (leftRows + leftRowsPerPartition - 1) / leftRowsPerPartition;
+        log.debug("Joining {} and {} in {} partitions", left, right, partitions);
+
+        // The ordered collect keeps the partitions in order even though they are done in parallel
+        List<int[][]> matches = IntStream.range(0, partitions).parallel().mapToObj(p -> {
+            int start = p * leftRowsPerPartition;
+            int end = Math.min(leftRows, start + leftRowsPerPartition);
+            return joinPartition(left, right, condition, start, end);
+        }).collect(Collectors.toList());
+
+        int size = matches.stream().mapToInt(m -> m[0].length).sum();
+        int[] leftMatches = new int[size];
+        int[] rightMatches = new int[size];
+        int position = 0;
+        for (int[][] match : matches) {
+            System.arraycopy(match[0], 0, leftMatches, position, match[0].length);
+            System.arraycopy(match[1], 0, rightMatches, position, match[1].length);
+            position += match[0].length;
         }
-        return product;
+        return select(left, leftMatches).merge(select(right, rightMatches));
+    }
+
+    private static int[][] joinPartition(Result left, Result right, Function<Result, Column> condition, int start,
+                                         int end) {
+        // Row i of the product is row start + i / m of left and row i % m of right, where m is the number of rows
+        // in right. Only these row numbers are stored. The columns in the product are views of the original ones.
+        int rightRows = right.numberOfRows();
+        int size = (end - start) * rightRows;
+        int[] leftMatches = new int[size];
+        int[] rightMatches = new int[size];
+        for (int i = 0; i < size; ++i) {
+            leftMatches[i] = start + i / rightRows;
+            rightMatches[i] = i % rightRows;
+        }
+        if (condition == null) {
+            return new int[][] {leftMatches, rightMatches};
+        }
+
+        Column evaluated = condition.apply(select(left, leftMatches).merge(select(right, rightMatches)));
+        // A condition that does not use any data, like true, applies to all the rows
+        Column keep = evaluated.isScalar() && size != 1 ? new ConstantColumn(evaluated.first(), size) : evaluated;
+        if (keep.size() != size) {
+            log.error("The join condition produced {} values for the {} rows of {} and {}", keep.size(), size, left,
+                      right);
+            throw new RuntimeException("The join condition did not produce a value for each joined row");
+        }
+        int[] kept = IntStream.range(0, size).filter(r -> !keep.isNull(r) && keep.getBoolean(r)).toArray();
+        int[] leftKept = new int[kept.length];
+        int[] rightKept = new int[kept.length];
+        for (int i = 0; i < kept.length; ++i) {
+            leftKept[i] = leftMatches[kept[i]];
+            rightKept[i] = rightMatches[kept[i]];
+        }
+        return new int[][] {leftKept, rightKept};
     }
 
     /**
      * Joins a {@link Result} and a {@link Column} containing boolean TypedObjects. The result must be a matrix with
      * equal sizes for all columns and this must be the same seize as the column containing the booleans. Picks all
-     * the rows for which the corresponding boolean TypedObject in the column is true.
+     * the rows for which the corresponding boolean TypedObject in the column is true. Nulls are treated as false.
+     *
+     * The rows are not copied. The columns in the joined result are views of the rows picked from the original result.
      *
      * @param result The result to join with the column.
      * @param row The row containing booleans that has the same length as all the columns in the result.
@@ -378,21 +457,349 @@ public class Result {
     public static Result join(Result result, Column row) {
         Objects.requireNonNull(result);
         Objects.requireNonNull(row);
-        // Empty copy
-        Result joined = new Result(result.getColumns().keySet());
-        // For all row numbers that have true in the row, copy them into the result
-        IntStream.range(0, row.size())
-                 .filter(r -> (Boolean) row.get(r).data)
-                 .forEach(i -> copyRow(result, joined, i));
-        return joined;
-    }
-
-    private static void copyRow(Result source, Result target, int rowNumber) {
-        Map<String, Column> sourceColumns = source.getColumns();
-        Map<String, Column> targetColumns = target.getColumns();
-        for (Map.Entry<String, Column> column : sourceColumns.entrySet()) {
-            Column targetColumn = targetColumns.get(column.getKey());
-            targetColumn.add(column.getValue().get(rowNumber));
+        // The row numbers that have true in the row
+        int[] rows = IntStream.range(0, row.size()).filter(r -> !row.isNull(r) && row.getBoolean(r)).toArray();
+        return select(result, rows);
+    }
+
+    /**
+     * Performs an equi-join of two {@link Result}. A row of the first result joins with a row of the second result if
+     * all the keys for that row are equal to the corresponding keys for the other row. Keys that are null never join.
+     * A hash table is built on the result with fewer rows and the other result is used to look up the matching rows.
+     * The joined rows are in the same order as the rows of their cartesian product.
+     *
+     * The keys are matched on their values, so each pair of key Columns should have the same {@link TypeSystem.Type}.
+     * Like {@link #join(Result, Column)}, the rows are not copied.
+     *
+     * @param left The first result.
+     * @param leftKeys The non-empty {@link List} of key {@link Column} for the first result. Each must have a value for
+     *                 every row in it.
+     * @param right The second result.
+     * @param rightKeys The key Columns for the second result in the same order as the keys for the first.
+     * @return The joined result.
+     */
+    public static Result hashJoin(Result left, List<Column> leftKeys, Result right, List<Column> rightKeys) {
+        Objects.requireNonNull(left);
+        Objects.requireNonNull(right);
+        int leftRows = getKeyedRows(left, leftKeys);
+        int rightRows = getKeyedRows(right, rightKeys);
+        if (leftKeys.isEmpty() || leftKeys.size() != rightKeys.size()) {
+            log.error("Cannot join {} on {} with {} on {}", left, leftKeys, right, rightKeys);
+            throw new RuntimeException("The results must be joined on the same non-zero number of keys");
+        }
+
+        boolean buildLeft = leftRows < rightRows;
+        List<Column> buildKeys = buildLeft ? leftKeys : rightKeys;
+        List<Column> probeKeys = buildLeft ? rightKeys : leftKeys;
+        int buildRows = buildLeft ? leftRows : rightRows;
+        int probeRows = buildLeft ? rightRows : leftRows;
+
+        // Chain the rows with the same key. Built backwards so each chain goes in increasing row order.
+        Map<Object, Integer> heads = new HashMap<>();
+        int[] next = new int[buildRows];
+        for (int i = buildRows - 1; i >= 0; --i) {
+            Object key = getKey(buildKeys, i);
+            if (key != null) {
+                Integer head = heads.put(key, i);
+                next[i] = head == null ? -1 : head;
+            }
+        }
+
+        IntStream.Builder buildMatches = IntStream.builder();
+        IntStream.Builder probeMatches = IntStream.builder();
+        for (int i = 0; i < probeRows; ++i) {
+            Object key = getKey(probeKeys, i);
+            Integer head = key == null ? null : heads.get(key);
+            for (int j = head == null ? -1 : head; j >= 0; j = next[j]) {
+                buildMatches.add(j);
+                probeMatches.add(i);
+            }
+        }
+        int[] leftMatches = (buildLeft ? buildMatches : probeMatches).build().toArray();
+        int[] rightMatches = (buildLeft ? probeMatches : buildMatches).build().toArray();
+        log.info("Hash joined {} rows of {} with {} rows of {} into {} rows", leftRows, left, rightRows, right,
+                 leftMatches.length);
+        if (buildLeft) {
+            sortByFirst(leftMatches, rightMatches, leftRows);
+        }
+        return select(left, leftMatches).merge(select(right, rightMatches));
+    }
+
+    /**
+     * Performs a range join of two {@link Result}. A row of the first result joins with a row of the second result if
+     * the key for the first row is between the bounds for the second row. Either bound may be left out but not both.
+     * Nulls are never between anything.
+     *
+     * The non-null keys are sorted once and each row of the second result finds the rows between its bounds with a
+     * binary search, so the rows that do not join are never looked at. The joined rows are in the same order as the
+     * rows of their cartesian product. The key and the bounds are compared on their values, so they should all have
+     * the same {@link TypeSystem.Type}. Like {@link #join(Result, Column)}, the rows are not copied.
+     *
+     * @param keyed The first result.
+     * @param key The key {@link Column} for the first result. It must have a value for every row in it.
+     * @param bounded The second result.
+     * @param lower The lower bound Column for the second result or null if there is no lower bound. It must have a
+     *              value for every row in the second result.
+     * @param lowerInclusive Whether a key equal to the lower bound is between the bounds.
+     * @param upper The upper bound Column for the second result or null if there is no upper bound.
+     * @param upperInclusive Whether a key equal to the upper bound is between the bounds.
+     * @return The joined result.
+     */
+    public static Result rangeJoin(Result keyed, Column key, Result bounded, Column lower, boolean lowerInclusive,
+                                   Column upper, boolean upperInclusive) {
+        Objects.requireNonNull(keyed);
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(bounded);
+        if (lower == null && upper == null) {
+            log.error("Cannot range join {} on {} with {} without any bounds", keyed, key, bounded);
+            throw new RuntimeException("A range join needs at least one bound");
+        }
+        int keyedRows = getKeyedRows(keyed, Collections.singletonList(key));
+        List<Column> bounds = new ArrayList<>();
+        if (lower != null) {
+            bounds.add(lower);
+        }
+        if (upper != null) {
+            bounds.add(upper);
+        }
+        int boundedRows = getKeyedRows(bounded, bounds);
+
+        int[] order = IntStream.range(0, keyedRows).filter(i -> !key.isNull(i)).boxed()
+                               .sorted((a, b) -> compareData(key.getData(a), key.getData(b)))
+                               .mapToInt(Integer::intValue).toArray();
+        Comparable[] sorted = new Comparable[order.length];
+        for (int i = 0; i < order.length; ++i) {
+            sorted[i] = key.getData(order[i]);
+        }
+
+        IntStream.Builder keyedMatches = IntStream.builder();
+        IntStream.Builder boundedMatches = IntStream.builder();
+        for (int i = 0; i < boundedRows; ++i) {
+            if ((lower != null && lower.isNull(i)) || (upper != null && upper.isNull(i))) {
+                continue;
+            }
+            int from = lower == null ? 0 : search(sorted, lower.getData(i), lowerInclusive);
+            int to = upper == null ? sorted.length : search(sorted, upper.getData(i), !upperInclusive);
+            for (int j = from; j < to; ++j) {
+                keyedMatches.add(order[j]);
+                boundedMatches.add(i);
+            }
+        }
+        int[] keyedRowsMatched = keyedMatches.build().toArray();
+        int[] boundedRowsMatched = boundedMatches.build().toArray();
+        log.info("Range joined {} rows of {} with {} rows of {} into {} rows", keyedRows, keyed, boundedRows, bounded,
+                 keyedRowsMatched.length);
+        sortByFirst(keyedRowsMatched, boundedRowsMatched, keyedRows);
+        return select(keyed, keyedRowsMatched).merge(select(bounded, boundedRowsMatched));
+    }
+
+    /**
+     * Checks a condition separately on each group of rows in a {@link Result} that have the same keys. The rows are
+     * hashed on their keys in one pass and each group is then given to the condition as a Result of its own. Like a
+     * GROUP BY in SQL, rows with null keys are grouped together.
+     *
+     * The rows are not copied, so the columns of each group are views of its rows in the original result. The
+     * condition must return a boolean {@link Column} with either a value for each row in the group or a single value
+     * for the whole group.
+     *
+     * @param result The result to group.
+     * @param keys The non-empty {@link List} of key {@link Column}. Each must have a value for every row in the result.
+     * @param condition The condition to check on each group.
+     * @return The boolean Column with the value of the condition for each row in the result, in the order of the rows.
+     */
+    public static Column groupBy(Result result, List<Column> keys, Function<Result, Column> condition) {
+        Objects.requireNonNull(result);
+        Objects.requireNonNull(keys);
+        Objects.requireNonNull(condition);
+        int rows = result.numberOfRows();
+        if (keys.isEmpty() || keys.stream().anyMatch(key -> key.size() != rows)) {
+            log.error("The keys {} do not have a value for each of the {} rows in {}", keys, rows, result);
+            throw new RuntimeException("Cannot group " + result + " using keys of a different size");
         }
+
+        // The group of a row is the order its key was first seen in
+        Map<Object, Integer> ids = new HashMap<>();
+        int[] groups = new int[rows];
+        int[] sizes = new int[16];
+        for (int i = 0; i < rows; ++i) {
+            int group = ids.computeIfAbsent(getGroup(keys, i), k -> ids.size());
+            if (group == sizes.length) {
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+            groups[i] = group;
+            sizes[group]++;
+        }
+        int[][] members = new int[ids.size()][];
+        for (int i = 0; i < members.length; ++i) {
+            members[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int i = 0; i < rows; ++i) {
+            members[groups[i]][sizes[groups[i]]++] = i;
+        }
+        log.info("Grouped {} rows of {} into {} groups", rows, result, members.length);
+
+        Bitmap values = new Bitmap(new long[Bitmap.words(rows)]);
+        Bitmap nulls = new Bitmap();
+        for (int[] group : members) {
+            place(condition.apply(select(result, group)), group, values, nulls);
+        }
+        return new Column(Storages.booleans(values, rows, nulls));
+    }
+
+    /**
+     * Checks a condition on the rows of a {@link Result} sorted by the given keys. The rows are sorted once, so
+     * conditions that compare a row with the rows before or after it need only a single pass over them. The sort is
+     * stable and nulls are before all other values. The keys are sorted in ascending order in the order given.
+     *
+     * Like {@link #groupBy(Result, List, Function)}, the rows are not copied and the condition must return a boolean
+     * {@link Column} with either a value for each row or a single value.
+     *
+     * @param result The result to sort.
+     * @param keys The non-empty {@link List} of key {@link Column}. Each must have a value for every row in the result.
+     * @param condition The condition to check on the sorted rows.
+     * @return The boolean Column with the value of the condition for each row in the result, in the order of the
+     *         rows before they were sorted, or the single value of the condition if it only had one.
+     */
+    public static Column orderBy(Result result, List<Column> keys, Function<Result, Column> condition) {
+        Objects.requireNonNull(result);
+        Objects.requireNonNull(keys);
+        Objects.requireNonNull(condition);
+        int rows = result.numberOfRows();
+        if (keys.isEmpty() || keys.stream().anyMatch(key -> key.size() != rows)) {
+            log.error("The keys {} do not have a value for each of the {} rows in {}", keys, rows, result);
+            throw new RuntimeException("Cannot sort " + result + " using keys of a different size");
+        }
+        int[] order = IntStream.range(0, rows).boxed().sorted((a, b) -> compareRows(keys, a, b))
+                               .mapToInt(Integer::intValue).toArray();
+        Column checked = condition.apply(select(result, order));
+        if (checked.isScalar()) {
+            return checked;
+        }
+        Bitmap values = new Bitmap(new long[Bitmap.words(rows)]);
+        Bitmap nulls = new Bitmap();
+        place(checked, order, values, nulls);
+        return new Column(Storages.booleans(values, rows, nulls));
+    }
+
+    private static void place(Column checked, int[] rows, Bitmap values, Bitmap nulls) {
+        // Puts the values for the rows back in the positions of the rows
+        if (checked.size() != 1 && checked.size() != rows.length) {
+            log.error("The condition for {} rows had {} values: {}", rows.length, checked.size(), checked);
+            throw new RuntimeException("Expected a value for the group or for each of its rows");
+        }
+        if (checked.nullCount() != checked.size() && checked.getType() != TypeSystem.Type.BOOLEAN) {
+            throw new ClassCastException("Expected the condition to be a boolean but found " + checked);
+        }
+        for (int i = 0; i < rows.length; ++i) {
+            int position = checked.isScalar() ? 0 : i;
+            if (checked.isNull(position)) {
+                nulls.set(rows[i]);
+            } else if (checked.getBoolean(position)) {
+                values.set(rows[i]);
+            }
+        }
+    }
+
+    private static int compareRows(List<Column> keys, int first, int second) {
+        for (Column key : keys) {
+            Comparable a = key.getData(first);
+            Comparable b = key.getData(second);
+            int comparison = a == null || b == null ? Boolean.compare(a != null, b != null) : compareData(a, b);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareData(Comparable first, Comparable second) {
+        return first.compareTo(second);
+    }
+
+    private static int search(Comparable[] sorted, Comparable value, boolean inclusive) {
+        // The first position with a value greater than (or equal to, if inclusive) the given value
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareData(sorted[middle], value);
+            if (comparison > 0 || (inclusive && comparison == 0)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int getKeyedRows(Result result, List<Column> keys) {
+        int rows = result.numberOfRows();
+        for (Column key : keys) {
+            if (key.size() != rows) {
+                log.error("The key {} does not have a value for each of the {} rows in {}", key, rows, result);
+                throw new RuntimeException("Cannot join " + result + " using a key of a different size");
+            }
+        }
+        return rows;
+    }
+
+    private static Object getKey(List<Column> keys, int row) {
+        if (keys.size() == 1) {
+            return getKey(keys.get(0), row);
+        }
+        List<Object> key = new ArrayList<>(keys.size());
+        for (Column column : keys) {
+            Object value = getKey(column, row);
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    private static Object getGroup(List<Column> keys, int row) {
+        // Unlike a join key, a null is a key of its own
+        if (keys.size() == 1) {
+            return getKey(keys.get(0), row);
+        }
+        List<Object> key = new ArrayList<>(keys.size());
+        for (Column column : keys) {
+            key.add(getKey(column, row));
+        }
+        return key;
+    }
+
+    private static Object getKey(Column column, int row) {
+        Comparable data = column.getData(row);
+        // Decimals that compare equal may have different scales and so are not equal
+        return data instanceof BigDecimal ? ((BigDecimal) data).stripTrailingZeros() : data;
+    }
+
+    private static void sortByFirst(int[] first, int[] second, int range) {
+        // A stable counting sort, so the order of the second stays the same for the same first
+        int[] starts = new int[range + 1];
+        for (int value : first) {
+            starts[value + 1]++;
+        }
+        for (int i = 0; i < range; ++i) {
+            starts[i + 1] += starts[i];
+        }
+        int[] firstCopy = first.clone();
+        int[] secondCopy = second.clone();
+        for (int i = 0; i < firstCopy.length; ++i) {
+            int position = starts[firstCopy[i]]++;
+            first[position] = firstCopy[i];
+            second[position] = secondCopy[i];
+        }
+    }
+
+    private static Result select(Result source, int[] rows) {
+        // Already namespaced columns. So don't create a Result with a namespace.
+        Result selected = new Result();
+        source.getColumns().forEach((name, column) -> selected.addQualifiedColumn(name, column.select(rows)));
+        return selected;
     }
 }
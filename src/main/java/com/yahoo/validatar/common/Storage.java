@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * This defines the backing store for the values in a {@link Column}. A particular implementation can store values of
+ * a single {@link Type} in a specialized (unboxed) form. Values are only wrapped as a {@link TypedObject} when they
+ * are read as one. See {@link Storages} for the implementations.
+ *
+ * Nulls are tracked separately from the values. A null is read back as a null {@link TypedObject}.
+ *
+ * Positions passed to the methods here are assumed to be valid. The {@link Column} does the bounds checking.
+ */
+interface Storage {
+    /**
+     * Returns the type of the values in this storage.
+     *
+     * @return The {@link Type} of all the values or null if this can store values of any type.
+     */
+    Type getType();
+
+    /**
+     * Returns the number of values stored.
+     *
+     * @return The number of values.
+     */
+    int size();
+
+    /**
+     * Returns the number of nulls stored.
+     *
+     * @return The number of nulls.
+     */
+    int nullCount();
+
+    /**
+     * Checks to see if a value of the given type can be added to this storage as is. Nulls are always accepted.
+     *
+     * @param type The {@link Type} of the value or null if the value is null.
+     * @return A boolean denoting whether the value can be added.
+     */
+    boolean accepts(Type type);
+
+    /**
+     * Checks to see if the value at the given position is null.
+     *
+     * @param position The position of the value.
+     * @return A boolean denoting whether the value is null.
+     */
+    boolean isNull(int position);
+
+    /**
+     * Gets the value at the given position as a {@link TypedObject}.
+     *
+     * @param position The position of the value.
+     * @return The value wrapped as a TypedObject or null if the value is null.
+     */
+    TypedObject get(int position);
+
+    /**
+     * Adds a {@link TypedObject} to the end of this storage. It must be {@link #accepts(Type)} by this storage.
+     *
+     * @param object The TypedObject to add or null to add a null.
+     */
+    void add(TypedObject object);
+
+    /**
+     * Creates a full copy of this storage.
+     *
+     * @return The copied storage.
+     */
+    Storage copy();
+
+    /**
+     * Checks to see if this is a read-only view of values, which cannot be added to. A {@link Column} makes a
+     * {@link #copy()} of such a storage before adding to it.
+     *
+     * @return A boolean denoting whether this is a view.
+     */
+    default boolean isView() {
+        return false;
+    }
+
+    /**
+     * Gets the value at the given position as a long. Must be a non-null {@link Type#LONG}.
+     *
+     * @param position The position of the value.
+     * @return The long value.
+     */
+    default long getLong(int position) {
+        return (Long) get(position).data;
+    }
+
+    /**
+     * Gets the value at the given position as a double. Must be a non-null {@link Type#DOUBLE}.
+     *
+     * @param position The position of the value.
+     * @return The double value.
+     */
+    default double getDouble(int position) {
+        return (Double) get(position).data;
+    }
+
+    /**
+     * Gets the value at the given position as a boolean. Must be a non-null {@link Type#BOOLEAN}.
+     *
+     * @param position The position of the value.
+     * @return The boolean value.
+     */
+    default boolean getBoolean(int position) {
+        return (Boolean) get(position).data;
+    }
+
+    /**
+     * Gets the value at the given position without wrapping it as a {@link TypedObject}.
+     *
+     * @param position The position of the value.
+     * @return The value or null if the value is null.
+     */
+    default Comparable getData(int position) {
+        TypedObject object = get(position);
+        return object == null ? null : object.data;
+    }
+
+    /**
+     * Adds a long to the end of this storage. {@link Type#LONG} must be {@link #accepts(Type)} by this storage.
+     *
+     * @param value The value to add.
+     */
+    default void add(long value) {
+        add(TypeSystem.asTypedObject(value));
+    }
+
+    /**
+     * Adds a double to the end of this storage. {@link Type#DOUBLE} must be {@link #accepts(Type)} by this storage.
+     *
+     * @param value The value to add.
+     */
+    default void add(double value) {
+        add(TypeSystem.asTypedObject(value));
+    }
+
+    /**
+     * Adds a boolean to the end of this storage. {@link Type#BOOLEAN} must be {@link #accepts(Type)} by this storage.
+     *
+     * @param value The value to add.
+     */
+    default void add(boolean value) {
+        add(TypeSystem.asTypedObject(value));
+    }
+
+    /**
+     * Adds a value of the given type to the end of this storage. The type must be {@link #accepts(Type)} by this
+     * storage. This should only be used for the types that are already objects - {@link Type#STRING} as a
+     * {@link String}, {@link Type#DECIMAL} as a {@link BigDecimal} and {@link Type#TIMESTAMP} as a {@link Timestamp}.
+     *
+     * @param data The non-null value to add.
+     * @param type The type of the value.
+     */
+    default void add(Comparable data, Type type) {
+        add(new TypedObject(data, type));
+    }
+}
@@ -0,0 +1,954 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contains the various type specific {@link Storage} implementations.
+ * <p>
+ * {@link Type#LONG} and {@link Type#DOUBLE} are stored in primitive arrays, {@link Type#BOOLEAN} is stored as a packed
+ * bitset and {@link Type#STRING} is dictionary encoded while it has few distinct values. The other types are stored in
+ * arrays of their data. Nulls in these are marked in a separate validity
+ * {@link Bitmap}, which is only created once the first null is added. A {@link Column} that needs to hold values of
+ * more than one type uses the {@link MixedStorage}, which stores them as {@link TypedObject} like before.
+ * </p>
+ */
+class Storages {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Creates an empty storage for the given type.
+     *
+     * @param type The {@link Type} of the values to store or null to store values of any type.
+     * @return The created storage.
+     */
+    static Storage create(Type type) {
+        if (type == null) {
+            return new MixedStorage();
+        }
+        switch (type) {
+            case LONG:
+                return new LongStorage();
+            case DOUBLE:
+                return new DoubleStorage();
+            case BOOLEAN:
+                return new BooleanStorage();
+            case STRING:
+                return new DictionaryStorage();
+            default:
+                return new ObjectStorage(type);
+        }
+    }
+
+    /**
+     * Creates a storage for the given type containing the given number of nulls.
+     *
+     * @param type The {@link Type} of the values to store or null to store values of any type.
+     * @param nulls The number of nulls to start with.
+     * @return The created storage.
+     */
+    static Storage create(Type type, int nulls) {
+        Storage storage = create(type);
+        for (int i = 0; i < nulls; ++i) {
+            storage.add((TypedObject) null);
+        }
+        return storage;
+    }
+
+    /**
+     * Copies the values in a storage into a {@link MixedStorage}, which accepts all values.
+     *
+     * @param storage The storage to copy the values from.
+     * @return The storage containing the same values.
+     */
+    static Storage demote(Storage storage) {
+        int size = storage.size();
+        MixedStorage mixed = new MixedStorage(size);
+        for (int i = 0; i < size; ++i) {
+            mixed.add(storage.get(i));
+        }
+        return mixed;
+    }
+
+    /**
+     * Creates a {@link Type#BOOLEAN} storage that has true for every position that is null in the given storage.
+     *
+     * @param storage The storage to check for nulls.
+     * @return The storage containing no nulls.
+     */
+    static Storage nulls(Storage storage) {
+        int size = storage.size();
+        BooleanStorage result = new BooleanStorage();
+        if (storage instanceof NullableStorage) {
+            // Just reuse the validity bits
+            Bitmap nulls = ((NullableStorage) storage).nulls;
+            result.values = nulls == null ? new Bitmap() : nulls.copy();
+            result.size = size;
+            return result;
+        }
+        for (int i = 0; i < size; ++i) {
+            result.add(storage.isNull(i));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a {@link LongStorage} backed by the given values. The values and the nulls are not copied, so they
+     * must not be used anywhere else.
+     *
+     * @param values The values. It must have room for at least size values.
+     * @param size The number of values.
+     * @param nulls The positions that are null or null if there are none.
+     * @return The created storage.
+     */
+    static Storage longs(long[] values, int size, Bitmap nulls) {
+        LongStorage storage = withNulls(new LongStorage(), size, nulls);
+        storage.values = values;
+        return storage;
+    }
+
+    /**
+     * Creates a {@link DoubleStorage} backed by the given values. The values and the nulls are not copied, so they
+     * must not be used anywhere else.
+     *
+     * @param values The values. It must have room for at least size values.
+     * @param size The number of values.
+     * @param nulls The positions that are null or null if there are none.
+     * @return The created storage.
+     */
+    static Storage doubles(double[] values, int size, Bitmap nulls) {
+        DoubleStorage storage = withNulls(new DoubleStorage(), size, nulls);
+        storage.values = values;
+        return storage;
+    }
+
+    /**
+     * Creates a {@link BooleanStorage} backed by the given values. The values and the nulls are not copied, so they
+     * must not be used anywhere else.
+     *
+     * @param values The values. Bits past the size must not be set.
+     * @param size The number of values.
+     * @param nulls The positions that are null or null if there are none.
+     * @return The created storage.
+     */
+    static Storage booleans(Bitmap values, int size, Bitmap nulls) {
+        BooleanStorage storage = withNulls(new BooleanStorage(), size, nulls);
+        storage.values = values;
+        return storage;
+    }
+
+    /**
+     * Gets the values in a {@link Type#LONG} storage as an array. The array backing a {@link LongStorage} is returned
+     * as is and must not be changed. The values at null positions are unspecified.
+     *
+     * @param storage The storage to read.
+     * @return The array containing at least all the values.
+     */
+    static long[] longs(Storage storage) {
+        if (storage instanceof LongStorage) {
+            return ((LongStorage) storage).values;
+        }
+        int size = storage.size();
+        long[] values = new long[size];
+        for (int i = 0; i < size; ++i) {
+            values[i] = storage.isNull(i) ? 0L : storage.getLong(i);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the values in a {@link Type#DOUBLE} storage as an array. The array backing a {@link DoubleStorage} is
+     * returned as is and must not be changed. The values at null positions are unspecified.
+     *
+     * @param storage The storage to read.
+     * @return The array containing at least all the values.
+     */
+    static double[] doubles(Storage storage) {
+        if (storage instanceof DoubleStorage) {
+            return ((DoubleStorage) storage).values;
+        }
+        int size = storage.size();
+        double[] values = new double[size];
+        for (int i = 0; i < size; ++i) {
+            values[i] = storage.isNull(i) ? 0.0 : storage.getDouble(i);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the values in a {@link Type#BOOLEAN} storage as a {@link Bitmap}. The bitmap backing a
+     * {@link BooleanStorage} is returned as is and must not be changed. The values at null positions are unspecified.
+     *
+     * @param storage The storage to read.
+     * @return The bitmap containing the values.
+     */
+    static Bitmap booleans(Storage storage) {
+        if (storage instanceof BooleanStorage) {
+            return ((BooleanStorage) storage).values;
+        }
+        int size = storage.size();
+        Bitmap values = new Bitmap();
+        for (int i = 0; i < size; ++i) {
+            if (!storage.isNull(i) && storage.getBoolean(i)) {
+                values.set(i);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets the positions that are null in a storage as a {@link Bitmap}. The bitmap of a {@link NullableStorage} is
+     * returned as is and must not be changed.
+     *
+     * @param storage The storage to read.
+     * @return The bitmap of the null positions or null if there are no nulls.
+     */
+    static Bitmap nullBits(Storage storage) {
+        if (storage.nullCount() == 0) {
+            return null;
+        }
+        if (storage instanceof NullableStorage) {
+            return ((NullableStorage) storage).nulls;
+        }
+        int size = storage.size();
+        Bitmap nulls = new Bitmap();
+        for (int i = 0; i < size; ++i) {
+            if (storage.isNull(i)) {
+                nulls.set(i);
+            }
+        }
+        return nulls;
+    }
+
+    private static <T extends NullableStorage> T withNulls(T storage, int size, Bitmap nulls) {
+        storage.size = size;
+        storage.nulls = nulls;
+        storage.nullCount = nulls == null ? 0 : nulls.cardinality();
+        return storage;
+    }
+
+    private static int grow(int capacity, int required) {
+        return Math.max(required, capacity + (capacity >> 1) + 1);
+    }
+
+    /**
+     * The base for the storages that store values of a single type. Nulls are marked in a {@link Bitmap}.
+     */
+    abstract static class NullableStorage implements Storage {
+        protected int size = 0;
+        Bitmap nulls;
+        int nullCount = 0;
+
+        /**
+         * Appends a placeholder value to the end of the storage for a null.
+         */
+        protected abstract void addPlaceholder();
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int nullCount() {
+            return nullCount;
+        }
+
+        @Override
+        public boolean isNull(int position) {
+            return nulls != null && nulls.get(position);
+        }
+
+        /**
+         * Adds a null to the end of this storage.
+         */
+        protected void addNull() {
+            if (nulls == null) {
+                nulls = new Bitmap();
+            }
+            nulls.set(size);
+            nullCount++;
+            addPlaceholder();
+        }
+
+        /**
+         * Copies the size and nulls of this storage into another.
+         *
+         * @param copy The storage to copy into.
+         * @param <T> The type of the storage.
+         * @return The given storage.
+         */
+        protected <T extends NullableStorage> T copyInto(T copy) {
+            copy.size = size;
+            copy.nulls = nulls == null ? null : nulls.copy();
+            copy.nullCount = nullCount;
+            return copy;
+        }
+    }
+
+    static class LongStorage extends NullableStorage {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        @Override
+        public Type getType() {
+            return Type.LONG;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return type == null || type == Type.LONG;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return isNull(position) ? null : TypeSystem.asTypedObject(values[position]);
+        }
+
+        @Override
+        public long getLong(int position) {
+            return values[position];
+        }
+
+        @Override
+        public Comparable getData(int position) {
+            return isNull(position) ? null : values[position];
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            if (object == null) {
+                addNull();
+                return;
+            }
+            add((long) (Long) object.data);
+        }
+
+        @Override
+        public void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        protected void addPlaceholder() {
+            add(0L);
+        }
+
+        @Override
+        public Storage copy() {
+            LongStorage copy = copyInto(new LongStorage());
+            copy.values = Arrays.copyOf(values, Math.max(size, INITIAL_CAPACITY));
+            return copy;
+        }
+    }
+
+    static class DoubleStorage extends NullableStorage {
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        @Override
+        public Type getType() {
+            return Type.DOUBLE;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return type == null || type == Type.DOUBLE;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return isNull(position) ? null : TypeSystem.asTypedObject(values[position]);
+        }
+
+        @Override
+        public double getDouble(int position) {
+            return values[position];
+        }
+
+        @Override
+        public Comparable getData(int position) {
+            return isNull(position) ? null : values[position];
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            if (object == null) {
+                addNull();
+                return;
+            }
+            add((double) (Double) object.data);
+        }
+
+        @Override
+        public void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        protected void addPlaceholder() {
+            add(0.0);
+        }
+
+        @Override
+        public Storage copy() {
+            DoubleStorage copy = copyInto(new DoubleStorage());
+            copy.values = Arrays.copyOf(values, Math.max(size, INITIAL_CAPACITY));
+            return copy;
+        }
+    }
+
+    static class BooleanStorage extends NullableStorage {
+        private Bitmap values = new Bitmap();
+
+        @Override
+        public Type getType() {
+            return Type.BOOLEAN;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return type == null || type == Type.BOOLEAN;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return isNull(position) ? null : TypeSystem.asTypedObject(values.get(position));
+        }
+
+        @Override
+        public boolean getBoolean(int position) {
+            return values.get(position);
+        }
+
+        @Override
+        public Comparable getData(int position) {
+            return isNull(position) ? null : values.get(position);
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            if (object == null) {
+                addNull();
+                return;
+            }
+            add((boolean) (Boolean) object.data);
+        }
+
+        @Override
+        public void add(boolean value) {
+            if (value) {
+                values.set(size);
+            }
+            size++;
+        }
+
+        @Override
+        protected void addPlaceholder() {
+            add(false);
+        }
+
+        @Override
+        public Storage copy() {
+            BooleanStorage copy = copyInto(new BooleanStorage());
+            copy.values = values.copy();
+            return copy;
+        }
+    }
+
+    static class DictionaryStorage extends NullableStorage {
+        // Never fall back to storing the values as is before we have seen this many distinct values
+        static final int MIN_DICTIONARY_SIZE = 256;
+
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private List<Comparable> dictionary = new ArrayList<>();
+        private Map<Comparable, Integer> lookup = new HashMap<>();
+        // Only used once there are too many distinct values and the codes are dropped
+        private Comparable[] values;
+
+        @Override
+        public Type getType() {
+            return Type.STRING;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return type == null || type == Type.STRING;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return isNull(position) ? null : new TypedObject(getData(position), Type.STRING);
+        }
+
+        @Override
+        public Comparable getData(int position) {
+            if (!isEncoded()) {
+                return values[position];
+            }
+            int code = codes[position];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            if (object == null) {
+                addNull();
+                return;
+            }
+            add(object.data, object.type);
+        }
+
+        @Override
+        public void add(Comparable data, Type type) {
+            if (!isEncoded()) {
+                addValue(data);
+                return;
+            }
+            Integer code = lookup.get(data);
+            if (code == null) {
+                int distinct = dictionary.size();
+                // Not worth encoding if more than half the values are distinct
+                if (distinct >= MIN_DICTIONARY_SIZE && distinct * 2 > size) {
+                    dropDictionary();
+                    addValue(data);
+                    return;
+                }
+                code = distinct;
+                dictionary.add(data);
+                lookup.put(data, code);
+            }
+            addCode(code);
+        }
+
+        @Override
+        protected void addPlaceholder() {
+            if (isEncoded()) {
+                addCode(-1);
+            } else {
+                addValue(null);
+            }
+        }
+
+        /**
+         * Checks to see if the values are stored as codes into the dictionary.
+         *
+         * @return A boolean denoting whether this is still dictionary encoded.
+         */
+        boolean isEncoded() {
+            return codes != null;
+        }
+
+        /**
+         * Returns the number of distinct values in the dictionary. Only valid if {@link #isEncoded()}.
+         *
+         * @return The size of the dictionary.
+         */
+        int dictionarySize() {
+            return dictionary.size();
+        }
+
+        /**
+         * Gets the code of the non-null value at the given position. Only valid if {@link #isEncoded()}.
+         *
+         * @param position The position of the value.
+         * @return The code of the value.
+         */
+        int getCode(int position) {
+            return codes[position];
+        }
+
+        /**
+         * Gets the value for the given code. Only valid if {@link #isEncoded()}.
+         *
+         * @param code The code for the value.
+         * @return The value.
+         */
+        Comparable decode(int code) {
+            return dictionary.get(code);
+        }
+
+        /**
+         * Gets the code for the given value. Only valid if {@link #isEncoded()}.
+         *
+         * @param data The value to find.
+         * @return The code for the value or -1 if the value is not in this storage.
+         */
+        int encode(Comparable data) {
+            return lookup.getOrDefault(data, -1);
+        }
+
+        private void addCode(int code) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, size + 1));
+            }
+            codes[size++] = code;
+        }
+
+        private void addValue(Comparable data) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = data;
+        }
+
+        private void dropDictionary() {
+            values = new Comparable[Math.max(codes.length, INITIAL_CAPACITY)];
+            for (int i = 0; i < size; ++i) {
+                values[i] = getData(i);
+            }
+            codes = null;
+            dictionary = null;
+            lookup = null;
+        }
+
+        @Override
+        public Storage copy() {
+            DictionaryStorage copy = copyInto(new DictionaryStorage());
+            if (isEncoded()) {
+                copy.codes = Arrays.copyOf(codes, Math.max(size, INITIAL_CAPACITY));
+                copy.dictionary = new ArrayList<>(dictionary);
+                copy.lookup = new HashMap<>(lookup);
+            } else {
+                copy.codes = null;
+                copy.dictionary = null;
+                copy.lookup = null;
+                copy.values = Arrays.copyOf(values, Math.max(size, INITIAL_CAPACITY));
+            }
+            return copy;
+        }
+    }
+
+    static class ObjectStorage extends NullableStorage {
+        private final Type type;
+        private Comparable[] values = new Comparable[INITIAL_CAPACITY];
+
+        /**
+         * Creates an empty storage for the values of the given type.
+         *
+         * @param type The non-null {@link Type} of the values.
+         */
+        ObjectStorage(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return type == null || this.type == type;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return isNull(position) ? null : new TypedObject(values[position], type);
+        }
+
+        @Override
+        public Comparable getData(int position) {
+            return values[position];
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            if (object == null) {
+                addNull();
+                return;
+            }
+            add(object.data, object.type);
+        }
+
+        @Override
+        public void add(Comparable data, Type type) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = data;
+        }
+
+        @Override
+        protected void addPlaceholder() {
+            add(null, type);
+        }
+
+        @Override
+        public Storage copy() {
+            ObjectStorage copy = copyInto(new ObjectStorage(type));
+            copy.values = Arrays.copyOf(values, Math.max(size, INITIAL_CAPACITY));
+            return copy;
+        }
+    }
+
+    /**
+     * Creates a view of the given positions in a storage. Nothing is copied.
+     *
+     * @param storage The storage to view.
+     * @param positions The valid positions in the storage to view, in order. It must not be changed afterwards.
+     * @return The view.
+     * @throws IndexOutOfBoundsException if any of the positions is not in the storage.
+     */
+    static Storage select(Storage storage, int[] positions) {
+        int size = storage.size();
+        for (int position : positions) {
+            if (position < 0 || position >= size) {
+                throw new IndexOutOfBoundsException("Cannot select position " + position + " of " + size + " values");
+            }
+        }
+        if (storage instanceof ConstantStorage) {
+            return new ConstantStorage(((ConstantStorage) storage).value, positions.length);
+        }
+        return new SelectedStorage(storage, positions);
+    }
+
+    /**
+     * A storage that has the same value at every position. Only the value and the size are kept. This cannot be added
+     * to. A {@link Column} using it makes a {@link #copy()} first, which actually stores the values.
+     */
+    static class ConstantStorage implements Storage {
+        private final TypedObject value;
+        private final int size;
+
+        /**
+         * Creates a storage that repeats the value.
+         *
+         * @param value The value or null to repeat a null.
+         * @param size The number of times the value is repeated.
+         */
+        ConstantStorage(TypedObject value, int size) {
+            this.value = value;
+            this.size = size;
+        }
+
+        @Override
+        public Type getType() {
+            return value == null ? null : value.type;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int nullCount() {
+            return value == null ? size : 0;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return false;
+        }
+
+        @Override
+        public boolean isNull(int position) {
+            return value == null;
+        }
+
+        @Override
+        public boolean isView() {
+            return true;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return value;
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            throw new UnsupportedOperationException("Cannot add to a constant");
+        }
+
+        @Override
+        public Storage copy() {
+            Storage copy = create(getType());
+            for (int i = 0; i < size; ++i) {
+                copy.add(value);
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * A view of some of the positions in another storage, also known as a selection vector. This cannot be added to. A
+     * {@link Column} using it makes a {@link #copy()} first, which actually stores the values.
+     */
+    static class SelectedStorage implements Storage {
+        private final Storage storage;
+        private final int[] positions;
+        // Counted when first needed
+        private int nullCount = -1;
+
+        /**
+         * Creates a view of the given positions in the storage.
+         *
+         * @param storage The storage to view.
+         * @param positions The positions to view. It is not copied.
+         */
+        SelectedStorage(Storage storage, int[] positions) {
+            this.storage = storage;
+            this.positions = positions;
+        }
+
+        @Override
+        public Type getType() {
+            return storage.getType();
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+
+        @Override
+        public int nullCount() {
+            if (nullCount < 0) {
+                int count = 0;
+                if (storage.nullCount() > 0) {
+                    for (int position : positions) {
+                        count += storage.isNull(position) ? 1 : 0;
+                    }
+                }
+                nullCount = count;
+            }
+            return nullCount;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return false;
+        }
+
+        @Override
+        public boolean isView() {
+            return true;
+        }
+
+        @Override
+        public boolean isNull(int position) {
+            return storage.isNull(positions[position]);
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return storage.get(positions[position]);
+        }
+
+        @Override
+        public long getLong(int position) {
+            return storage.getLong(positions[position]);
+        }
+
+        @Override
+        public double getDouble(int position) {
+            return storage.getDouble(positions[position]);
+        }
+
+        @Override
+        public boolean getBoolean(int position) {
+            return storage.getBoolean(positions[position]);
+        }
+
+        @Override
+        public Comparable getData(int position) {
+            return storage.getData(positions[position]);
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            throw new UnsupportedOperationException("Cannot add to a view");
+        }
+
+        @Override
+        public Storage copy() {
+            Storage copy = create(getType());
+            for (int position : positions) {
+                copy.add(storage.get(position));
+            }
+            return copy;
+        }
+    }
+
+    static class MixedStorage implements Storage {
+        private final List<TypedObject> values;
+        private int nullCount = 0;
+
+        /**
+         * Creates an empty storage.
+         */
+        MixedStorage() {
+            values = new ArrayList<>();
+        }
+
+        /**
+         * Creates an empty storage with room for the given number of values.
+         *
+         * @param capacity The number of values to make room for.
+         */
+        MixedStorage(int capacity) {
+            values = new ArrayList<>(capacity);
+        }
+
+        @Override
+        public Type getType() {
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public int nullCount() {
+            return nullCount;
+        }
+
+        @Override
+        public boolean accepts(Type type) {
+            return true;
+        }
+
+        @Override
+        public boolean isNull(int position) {
+            return values.get(position) == null;
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            return values.get(position);
+        }
+
+        @Override
+        public void add(TypedObject object) {
+            if (object == null) {
+                nullCount++;
+            }
+            values.add(object);
+        }
+
+        @Override
+        public Storage copy() {
+            // TypedObjects are immutable so they can be shared
+            MixedStorage copy = new MixedStorage(values.size());
+            values.forEach(copy::add);
+            return copy;
+        }
+    }
+}
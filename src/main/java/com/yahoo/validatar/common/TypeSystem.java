@@ -4,16 +4,19 @@
  */
 package com.yahoo.validatar.common;
 
+import com.yahoo.validatar.common.Operations.AggregateOperation;
 import com.yahoo.validatar.common.Operations.BinaryOperation;
 import com.yahoo.validatar.common.Operations.UnaryOperation;
+import com.yahoo.validatar.common.Operations.WindowOperation;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.IntStream;
+import java.util.stream.Collectors;
 
 /**
  * This is a class that wraps the supported types that the assertor will work with
@@ -43,23 +46,28 @@ public class TypeSystem {
      * Tries to convert two TypedObjects to the same type. Tries first to second or second to
      * first, in that order.  Throws an ClassCastException if neither could be done or if the
      * final Type wasn't what was passed in. Throws an NullPointerException if either argument
-     * is null. If successful, first and second will be the of the same type.
+     * is null. The objects themselves are not changed.
      *
      * @param first  The first {@link TypedObject}.
      * @param second The first {@link TypedObject}.
+     * @return An array with the first and second objects, in that order, converted to the same type.
      */
-    public static void unifyType(TypedObject first, TypedObject second) {
+    public static TypedObject[] unifyType(TypedObject first, TypedObject second) {
         Objects.requireNonNull(first);
         Objects.requireNonNull(second);
+        if (first.type == second.type) {
+            return new TypedObject[] {first, second};
+        }
         // Relying on the type system to return null if invalid conversions were tried and non null if not.
         TypedObject unified = OPERATIONS.get(first.type).cast(second);
-        if (unified == null) {
-            unified = OPERATIONS.get(second.type).cast(first);
+        if (unified != null) {
+            return new TypedObject[] {first, unified};
         }
-
-        if (unified == null) {
-            throw new ClassCastException("Type unification could not be performed for " + first + " and " + second);
+        unified = OPERATIONS.get(second.type).cast(first);
+        if (unified != null) {
+            return new TypedObject[] {unified, second};
         }
+        throw new ClassCastException("Type unification could not be performed for " + first + " and " + second);
     }
 
     /**
@@ -71,10 +79,10 @@ public class TypeSystem {
      * @return The resulting {@link TypedObject}.
      */
     public static TypedObject perform(BinaryOperation operation, TypedObject first, TypedObject second) {
-        unifyType(first, second);
+        TypedObject[] unified = unifyType(first, second);
 
         // Both are now the same type, do the operation
-        TypedObject result = OPERATIONS.get(first.type).dispatch(operation).apply(first, second);
+        TypedObject result = OPERATIONS.get(unified[0].type).dispatch(operation).apply(unified[0], unified[1]);
 
         if (result == null) {
             throw new ClassCastException("Unable to perform: " + operation + " on " + first + " and " + second);
@@ -119,9 +127,9 @@ public class TypeSystem {
      */
     @SuppressWarnings("unchecked")
     public static int compare(TypedObject first, TypedObject second) {
-        unifyType(first, second);
+        TypedObject[] unified = unifyType(first, second);
         // Both are now the same type, just compare
-        return first.data.compareTo(second.data);
+        return unified[0].data.compareTo(unified[1].data);
     }
 
     /**
@@ -133,26 +141,36 @@ public class TypeSystem {
      * @return The result of the operation - a boolean TypedObject.
      */
     public static TypedObject approx(TypedObject first, TypedObject second, TypedObject percent) {
-        if ((Boolean) perform(BinaryOperation.GREATER, percent, asTypedObject(1L)).data ||
-            (Boolean) perform(BinaryOperation.LESS, percent, asTypedObject(0L)).data) {
-            throw new RuntimeException("Expected percentage for approx to be between 0 and 1. Got " + percent.data);
-        }
-        // max = second * (1 + percent)
-        // if first > max, then not approx equal
-        TypedObject max = perform(BinaryOperation.MULTIPLY, second, perform(BinaryOperation.ADD, asTypedObject(1L), percent));
-        if ((Boolean) perform(BinaryOperation.GREATER, first, max).data) {
+        TypedObject[] bounds = approxBounds(second, percent);
+        // if first < min or first > max, then not approx equal
+        if ((Boolean) perform(BinaryOperation.GREATER, first, bounds[1]).data) {
             return asTypedObject(false);
         }
-
-        // min = second * (1 - percent)
-        // if first < min, then not approx equal
-        TypedObject min = perform(BinaryOperation.MULTIPLY, second, perform(BinaryOperation.SUBTRACT, asTypedObject(1L), percent));
-        if ((Boolean) perform(BinaryOperation.LESS, first, min).data) {
+        if ((Boolean) perform(BinaryOperation.LESS, first, bounds[0]).data) {
             return asTypedObject(false);
         }
         return asTypedObject(true);
     }
 
+    /**
+     * Finds the smallest and the largest values that are approximately equal to a {@link TypedObject} using the given
+     * percentage. See {@link #approx(TypedObject, TypedObject, TypedObject)}.
+     *
+     * @param second The object to find the bounds for.
+     * @param percent The percentage by which a value can be different from the object.
+     * @return An array with the inclusive minimum and maximum, in that order.
+     */
+    public static TypedObject[] approxBounds(TypedObject second, TypedObject percent) {
+        if ((Boolean) perform(BinaryOperation.GREATER, percent, asTypedObject(1L)).data ||
+            (Boolean) perform(BinaryOperation.LESS, percent, asTypedObject(0L)).data) {
+            throw new RuntimeException("Expected percentage for approx to be between 0 and 1. Got " + percent.data);
+        }
+        // min = second * (1 - percent) and max = second * (1 + percent)
+        TypedObject min = perform(BinaryOperation.MULTIPLY, second, perform(BinaryOperation.SUBTRACT, asTypedObject(1L), percent));
+        TypedObject max = perform(BinaryOperation.MULTIPLY, second, perform(BinaryOperation.ADD, asTypedObject(1L), percent));
+        return new TypedObject[] {min, max};
+    }
+
     /*
      ********************************************************************************
      *                               Vector Operations                              *
@@ -162,43 +180,27 @@ public class TypeSystem {
     /**
      * Tries to unify the sizes of the two {@link Column}. If one is a {@link Column#isScalar()} and the other is
      * not, the scalar is extended to be a vector of the size of the other. It is an error if both are vectors with
-     * different sizes.
+     * different sizes. The scalar is extended in place by making it a constant, so its value is not copied.
      *
      * @param first The first non-null column to check.
      * @param second The second non-null column to check.
      * @throws RuntimeException if the sizes cannot be unified.
      */
     public static void unifySize(Column first, Column second) {
-        Objects.requireNonNull(first);
-        Objects.requireNonNull(second);
-
-        if (first.isEmpty() || second.isEmpty()) {
-            log.error("Tried making two columns have the same size but one or both had no data: {}, {}", first, second);
-            throw new RuntimeException("Either " + first + " or " + second + " had no data");
+        int size = getUnifiedSize(first, second);
+        if (first.size() != size) {
+            first.broadcast(size);
         }
-
-        boolean isFirstScalar = first.isScalar();
-        boolean isSecondScalar = second.isScalar();
-        // If both scalar or both vectors
-        if (!(isFirstScalar ^ isSecondScalar)) {
-            if (first.size() != second.size()) {
-                log.error("Cannot operate on two columns with different sizes: {} and {}", first, second);
-                throw new RuntimeException("Cannot operate on two columns with different sizes");
-            }
-            // Both scalars or vectors and have the same size, we're good
-            return;
+        if (second.size() != size) {
+            second.broadcast(size);
         }
-        // Exactly one is scalar
-        int firstSize = first.size();
-        int secondSize = second.size();
-        Column target = isFirstScalar ? first : second;
-        int numberOfValues = (isFirstScalar ? secondSize : firstSize) - 1;
-        // Repeat the first element in target, 1 - the size of the other
-        target.add(asColumn(target.first(), numberOfValues));
     }
 
     /**
-     * Perform a binary operation on two Columns.
+     * Perform a binary operation on two Columns. If either value in a row is null, the result for that row is null.
+     * The only exceptions are {@link BinaryOperation#AND} with a false and {@link BinaryOperation#OR} with a true,
+     * which decide the result regardless of the other value. A scalar operand is broadcast as a
+     * {@link ConstantColumn} and the operands themselves are not changed.
      *
      * @param operation The {@link BinaryOperation} operator to perform.
      * @param first     The LHS {@link Column} of the arithmetic.
@@ -207,17 +209,34 @@ public class TypeSystem {
      */
     public static Column perform(BinaryOperation operation, Column first, Column second) {
         log.debug("Performing {} on {} and {}", operation, first, second);
-        unifySize(first, second);
+        int size = getUnifiedSize(first, second);
+        first = broadcast(first, size);
+        second = broadcast(second, size);
 
-        Column result = new Column();
-        for (int i = 0; i < first.size(); ++i) {
-            result.add(perform(operation, first.get(i), second.get(i)));
+        // Only need to do it once if both are the same everywhere
+        if (first.isConstant() && second.isConstant()) {
+            return new ConstantColumn(performOnRow(operation, first.first(), second.first()), size);
+        }
+
+        Column result = performOnColumns(operation, first, second);
+        if (result != null) {
+            return result;
+        }
+
+        result = new Column();
+        boolean hasNulls = first.nullCount() > 0 || second.nullCount() > 0;
+        for (int i = 0; i < size; ++i) {
+            if (hasNulls && (first.isNull(i) || second.isNull(i))) {
+                result.add(performOnNull(operation, first.get(i), second.get(i)));
+            } else {
+                result.add(perform(operation, first.get(i), second.get(i)));
+            }
         }
         return result;
     }
 
     /**
-     * Perform an unary operation on a Column.
+     * Perform an unary operation on a Column. Nulls stay null.
      *
      * @param operation The {@link UnaryOperation} operator to perform.
      * @param object    The target {@link Column} of the operation.
@@ -225,7 +244,19 @@ public class TypeSystem {
      */
     public static Column perform(UnaryOperation operation, Column object) {
         log.debug("Performing {} on {}", operation, object);
-        return object.stream().map(t -> perform(operation, t)).collect(Column::new, Column::add, Column::add);
+        if (object.isConstant()) {
+            TypedObject value = object.isEmpty() ? null : object.first();
+            return new ConstantColumn(value == null ? null : perform(operation, value), object.size());
+        }
+        Type type = object.getType();
+        if (type != null) {
+            Column result = OPERATIONS.get(type).perform(operation, object);
+            if (result != null) {
+                return result;
+            }
+        }
+        return object.stream().map(t -> t == null ? null : perform(operation, t))
+                     .collect(Column::new, Column::add, Column::add);
     }
 
     /**
@@ -237,19 +268,182 @@ public class TypeSystem {
      * @return The {@link Column} containing boolean Columns representing the result of each comparison.
      */
     public static Column approx(Column first, Column second, Column percent) {
-        unifySize(first, second);
-        if (!percent.isScalar() && percent.size() != first.size())  {
+        int size = getUnifiedSize(first, second);
+        if (!percent.isScalar() && percent.size() != size)  {
             log.error("Your approx percentage {} is a column but its size does not match the other columns: {} and {} ",
                       percent, first, second);
             throw new RuntimeException("The percentage column in approx has a different size from the other columns");
         }
+        first = broadcast(first, size);
+        second = broadcast(second, size);
+        percent = broadcast(percent, size);
         Column result = new Column();
-        for (int i = 0; i < first.size(); ++i) {
-            result.add(approx(first.get(i), second.get(i), percent.get(percent.isScalar() ? 0 : i)));
+        for (int i = 0; i < size; ++i) {
+            TypedObject a = first.get(i);
+            TypedObject b = second.get(i);
+            TypedObject p = percent.get(i);
+            result.add(a == null || b == null || p == null ? null : approx(a, b, p));
         }
         return result;
     }
 
+    /**
+     * Aggregates all the values in a {@link Column} into one. Nulls are not aggregated. The count of a Column with only
+     * nulls is 0 and the other aggregates of it are null.
+     *
+     * @param operation The {@link AggregateOperation} to perform.
+     * @param column The non-null {@link Column} to aggregate.
+     * @return The scalar {@link Column} containing the aggregated value.
+     */
+    public static Column aggregate(AggregateOperation operation, Column column) {
+        Objects.requireNonNull(column);
+        log.debug("Performing {} on {}", operation, column);
+        return new ConstantColumn(Aggregates.aggregate(operation, column), 1);
+    }
+
+    /**
+     * Estimates a quantile of the numeric values in a {@link Column}. Nulls are skipped. The quantile is the value with
+     * the nearest rank and is exact for small Columns.
+     *
+     * @param column The non-null numeric {@link Column}.
+     * @param fraction The scalar {@link Column} with the quantile to find, from 0.0 to 1.0.
+     * @return The scalar {@link Column} containing the {@link Type#DOUBLE} value at the quantile.
+     */
+    public static Column quantile(Column column, Column fraction) {
+        Objects.requireNonNull(column);
+        Objects.requireNonNull(fraction);
+        TypedObject value = fraction.isScalar() ? fraction.first() : null;
+        if (value == null || (value.type != Type.DOUBLE && value.type != Type.LONG)) {
+            log.error("The quantile to find must be a single number: {}", fraction);
+            throw new RuntimeException("Expected the quantile to be a number but found " + fraction);
+        }
+        double quantile = ((Number) value.data).doubleValue();
+        if (quantile < 0.0 || quantile > 1.0) {
+            throw new RuntimeException("Expected the quantile to be between 0 and 1 but found " + quantile);
+        }
+        log.debug("Finding the {} quantile of {}", quantile, column);
+        return new ConstantColumn(Aggregates.quantile(column, quantile), 1);
+    }
+
+    /**
+     * Checks if each value in a {@link Column} is one of the values in another. The other values are hashed once, so
+     * each check takes constant time. Nulls in the other Column are ignored and the result for a null value is null.
+     *
+     * @param values The non-null {@link Column} of values to check.
+     * @param lookup The non-null {@link Column} of values to look for them in. It can have any size.
+     * @return The boolean {@link Column} with the same size as the values.
+     */
+    public static Column in(Column values, Column lookup) {
+        Objects.requireNonNull(values);
+        Objects.requireNonNull(lookup);
+        log.debug("Checking if {} are in {}", values, lookup);
+        return Lookups.in(values, lookup);
+    }
+
+    /**
+     * Finds the rows of the given key {@link Column} whose keys are the same as the keys of another row. A row with a
+     * null key is never a duplicate. Scalar keys are the same for every row, so they are ignored when there is more
+     * than one row.
+     *
+     * @param keys The non-empty {@link List} of key Columns. The ones that are not scalars must have the same size.
+     * @return The boolean {@link Column} that is true for each row with duplicated keys.
+     */
+    public static Column duplicates(List<Column> keys) {
+        Objects.requireNonNull(keys);
+        int size = keys.stream().mapToInt(Column::size).max().orElse(0);
+        if (keys.stream().anyMatch(c -> c.size() != size && !c.isScalar())) {
+            log.error("The keys to check for duplicates have different sizes: {}", keys);
+            throw new RuntimeException("Expected the keys to check for duplicates to have the same size");
+        }
+        List<Column> vectors = keys.stream().filter(c -> c.size() == size).collect(Collectors.toList());
+        log.debug("Finding the duplicates in {}", vectors);
+        return Duplicates.duplicates(vectors);
+    }
+
+    /**
+     * Compares each value in a {@link Column} with the value the given number of rows before or after it, in the
+     * order the rows are in. The rows with no row at that offset are null.
+     *
+     * @param operation The {@link WindowOperation} to perform.
+     * @param column The non-null {@link Column}.
+     * @param offset The scalar {@link Column} with the non-negative whole number of rows to look back or ahead.
+     * @return The {@link Column} with the same size as the given one.
+     */
+    public static Column window(WindowOperation operation, Column column, Column offset) {
+        Objects.requireNonNull(column);
+        Objects.requireNonNull(offset);
+        TypedObject value = offset.isScalar() ? offset.first() : null;
+        if (value == null || value.type != Type.LONG) {
+            log.error("The offset for {} must be a single whole number: {}", operation, offset);
+            throw new RuntimeException("Expected the offset to be a whole number but found " + offset);
+        }
+        long rows = (Long) value.data;
+        if (rows < 0 || rows > Integer.MAX_VALUE) {
+            throw new RuntimeException("Expected the offset to be a non-negative number of rows but found " + rows);
+        }
+        log.debug("Performing {} with an offset of {} on {}", operation, rows, column);
+        return Windows.window(operation, column, (int) rows);
+    }
+
+    private static int getUnifiedSize(Column first, Column second) {
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+
+        if (first.isEmpty() || second.isEmpty()) {
+            log.error("Tried making two columns have the same size but one or both had no data: {}, {}", first, second);
+            throw new RuntimeException("Either " + first + " or " + second + " had no data");
+        }
+
+        boolean isFirstScalar = first.isScalar();
+        boolean isSecondScalar = second.isScalar();
+        // If both scalar or both vectors
+        if (!(isFirstScalar ^ isSecondScalar) && first.size() != second.size()) {
+            log.error("Cannot operate on two columns with different sizes: {} and {}", first, second);
+            throw new RuntimeException("Cannot operate on two columns with different sizes");
+        }
+        return Math.max(first.size(), second.size());
+    }
+
+    private static Column performOnColumns(BinaryOperation operation, Column first, Column second) {
+        Type firstType = first.getType();
+        Type secondType = second.getType();
+        // Widen a long Column to doubles once instead of unifying the types of each pair of values
+        if (firstType == Type.LONG && secondType == Type.DOUBLE) {
+            first = Kernels.asDoubles(first);
+            firstType = Type.DOUBLE;
+        } else if (firstType == Type.DOUBLE && secondType == Type.LONG) {
+            second = Kernels.asDoubles(second);
+            secondType = Type.DOUBLE;
+        }
+        if (firstType == null || firstType != secondType) {
+            return null;
+        }
+        return OPERATIONS.get(firstType).perform(operation, first, second);
+    }
+
+    private static Column broadcast(Column column, int size) {
+        return column.size() == size ? column : new ConstantColumn(column.first(), size);
+    }
+
+    private static TypedObject performOnRow(BinaryOperation operation, TypedObject first, TypedObject second) {
+        return first == null || second == null ? performOnNull(operation, first, second) : perform(operation, first, second);
+    }
+
+    private static TypedObject performOnNull(BinaryOperation operation, TypedObject first, TypedObject second) {
+        // Three valued logic: false && null is false and true || null is true. Everything else with a null is null.
+        if (operation == BinaryOperation.AND && (isBoolean(first, false) || isBoolean(second, false))) {
+            return asTypedObject(false);
+        }
+        if (operation == BinaryOperation.OR && (isBoolean(first, true) || isBoolean(second, true))) {
+            return asTypedObject(true);
+        }
+        return null;
+    }
+
+    private static boolean isBoolean(TypedObject object, boolean value) {
+        return object != null && object.type == Type.BOOLEAN && (Boolean) object.data == value;
+    }
+
     /*
      ********************************************************************************
      *                               Wrapper methods                                *
@@ -317,14 +511,13 @@ public class TypeSystem {
     }
 
     /**
-     * Repeats the given object {@code repeat} times and makes it a {@link Column}.
+     * Repeats the given object {@code repeat} times and makes it a {@link Column}. The object is not actually copied.
      *
-     * @param object The object to replicate.
+     * @param object The object to replicate. If it is null, the Column will contain nulls.
      * @param repeat The number of times to replicate it.
-     * @return A Column containing the replicated items
+     * @return A {@link ConstantColumn} containing the replicated items
      */
     public static Column asColumn(TypedObject object, int repeat) {
-        return IntStream.range(0, repeat).mapToObj(t -> new TypedObject(object.data, object.type))
-                        .collect(Column::new, Column::add, Column::add);
+        return new ConstantColumn(object, repeat);
     }
 }
@@ -7,16 +7,16 @@ package com.yahoo.validatar.common;
 import java.util.Objects;
 
 /**
- * This is the custom annotated object that is used in our assertion language.
+ * This is the custom annotated object that is used in our assertion language. It is immutable. Operations on it,
+ * including casting it to another type, produce new objects.
  */
 public class TypedObject {
     /**
      * We are now handling type safety.
      */
     @SuppressWarnings("unchecked")
-    // TODO: Change these to final or use getters/setters.
-    public Comparable data;
-    public TypeSystem.Type type;
+    public final Comparable data;
+    public final TypeSystem.Type type;
 
     /**
      * Constructor.
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.Operations.BinaryOperation;
+import com.yahoo.validatar.common.Operations.WindowOperation;
+import com.yahoo.validatar.common.TypeSystem.Type;
+
+import java.math.BigDecimal;
+
+/**
+ * Contains the kernels that compare each value in a Column with the value some rows before or after it. The rows are
+ * taken in the order they are in, so the Column should already be sorted. Each kernel is a single pass that shifts the
+ * values. {@link Type#LONG} and {@link Type#DOUBLE} Columns are shifted as primitive arrays.
+ *
+ * The rows that have no row at the given offset are null.
+ */
+class Windows {
+    /**
+     * Performs a window operation on a Column.
+     *
+     * @param operation The operation to perform.
+     * @param column The column.
+     * @param offset The non-negative number of rows to look back, or ahead for {@link WindowOperation#LEAD}.
+     * @return The Column with the same size as the given one.
+     * @throws ClassCastException if the operation is not supported for the type of the column.
+     */
+    static Column window(WindowOperation operation, Column column, int offset) {
+        switch (operation) {
+            case LAG:
+                return shift(column, offset);
+            case LEAD:
+                return shift(column, -offset);
+            case DELTA:
+                return TypeSystem.perform(BinaryOperation.SUBTRACT, column, shift(column, offset));
+            case RATIO:
+                // The ratio of whole numbers should not be truncated
+                Column doubles = asDoubles(column);
+                return TypeSystem.perform(BinaryOperation.DIVIDE, doubles, shift(doubles, offset));
+            default:
+                throw new UnsupportedOperationException("Unknown window operation " + operation);
+        }
+    }
+
+    /**
+     * Shifts the values in a Column down by the given number of rows. The first rows become null.
+     *
+     * @param column The column.
+     * @param offset The number of rows to shift by. If negative, the values are shifted up and the last rows are null.
+     * @return The shifted Column with the same size as the given one.
+     */
+    static Column shift(Column column, int offset) {
+        int size = column.size();
+        Type type = column.getType();
+        Storage storage = column.getStorage();
+        Bitmap nulls = new Bitmap();
+        for (int i = 0; i < size; ++i) {
+            int from = i - offset;
+            if (from < 0 || from >= size || column.isNull(from)) {
+                nulls.set(i);
+            }
+        }
+        if (type == Type.LONG) {
+            long[] values = Storages.longs(storage);
+            long[] shifted = new long[size];
+            copy(values, shifted, offset, size);
+            return new Column(Storages.longs(shifted, size, nulls));
+        }
+        if (type == Type.DOUBLE) {
+            double[] values = Storages.doubles(storage);
+            double[] shifted = new double[size];
+            copy(values, shifted, offset, size);
+            return new Column(Storages.doubles(shifted, size, nulls));
+        }
+        Column shifted = type == null ? new Column() : new Column(type);
+        for (int i = 0; i < size; ++i) {
+            shifted.add(nulls.get(i) ? null : column.get(i - offset));
+        }
+        return shifted;
+    }
+
+    private static void copy(Object values, Object shifted, int offset, int size) {
+        int length = size - Math.abs(offset);
+        if (length > 0) {
+            System.arraycopy(values, Math.max(0, -offset), shifted, Math.max(0, offset), length);
+        }
+    }
+
+    private static Column asDoubles(Column column) {
+        Type type = column.getType();
+        if (type == Type.DOUBLE) {
+            return column;
+        }
+        if (type != Type.LONG && type != Type.DECIMAL) {
+            throw new ClassCastException("Unable to perform: " + WindowOperation.RATIO + " on " + type + " values");
+        }
+        int size = column.size();
+        double[] values = new double[size];
+        Bitmap nulls = column.nullCount() == 0 ? null : new Bitmap();
+        for (int i = 0; i < size; ++i) {
+            if (column.isNull(i)) {
+                nulls.set(i);
+            } else {
+                values[i] = type == Type.LONG ? column.getLong(i) : ((BigDecimal) column.getData(i)).doubleValue();
+            }
+        }
+        return new Column(Storages.doubles(values, size, nulls));
+    }
+}
@@ -1,5 +1,6 @@
 package com.yahoo.validatar.execution.fixed;
 
+import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Helpable;
 import com.yahoo.validatar.common.Query;
 import com.yahoo.validatar.common.Result;
@@ -94,18 +95,41 @@ public class DSV implements Engine {
         }
         for (Map.Entry<String, Type> field : header.entrySet()) {
             String fieldName = field.getKey();
-            TypedObject fieldValue = getTyped(field.getValue(), record.get(fieldName));
-            result.addColumnRow(fieldName, fieldValue);
+            Type fieldType = field.getValue();
+            Column column = result.getColumn(fieldName);
+            if (column == null) {
+                column = new Column(fieldType);
+                result.addColumn(fieldName, column);
+            }
+            addTyped(column, fieldType, record.get(fieldName));
         }
     }
 
-    private static TypedObject getTyped(Type type, String field) {
+    private static void addTyped(Column column, Type type, String field) {
         // Can't be null
         if (type != Type.STRING && field.isEmpty()) {
             log.warn("Found an empty value for a non-string field of type {}. Nulled it. Asserts that use this may fail.", type);
-            return null;
+            column.add((TypedObject) null);
+            return;
+        }
+        // Parse the primitive types directly into the column instead of casting a TypedObject.
+        switch (type) {
+            case LONG:
+                column.add(Long.parseLong(field));
+                break;
+            case DOUBLE:
+                column.add(Double.parseDouble(field));
+                break;
+            case BOOLEAN:
+                column.add(Boolean.parseBoolean(field));
+                break;
+            case STRING:
+                column.add(field);
+                break;
+            default:
+                column.add(TypeSystem.cast(type, new TypedObject(field, Type.STRING)));
+                break;
         }
-        return TypeSystem.cast(type, new TypedObject(field, Type.STRING));
     }
 
     /**
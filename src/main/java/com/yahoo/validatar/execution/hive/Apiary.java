@@ -4,6 +4,7 @@
  */
 package com.yahoo.validatar.execution.hive;
 
+import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Helpable;
 import com.yahoo.validatar.common.Query;
 import com.yahoo.validatar.common.Result;
@@ -21,6 +22,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 
 @Slf4j
@@ -96,9 +98,13 @@ public class Apiary implements Engine {
 
             Result queryResult = query.createResults();
 
-            addHeader(metadata, columns, queryResult);
+            Column[] header = addHeader(metadata, columns, queryResult);
+            String[] names = getNames(metadata, columns);
+            int[] types = getTypes(metadata, columns);
+            TypeSystem.Type[] mappedTypes = Arrays.stream(types).mapToObj(Apiary::getType)
+                                                  .toArray(TypeSystem.Type[]::new);
             while (result.next()) {
-                addRow(result, metadata, columns, queryResult);
+                addRow(result, names, types, mappedTypes, header);
             }
             result.close();
         } catch (SQLException e) {
@@ -107,21 +113,42 @@ public class Apiary implements Engine {
         }
     }
 
-    private void addHeader(ResultSetMetaData metadata, int columns, Result queryResult) throws SQLException {
+    private Column[] addHeader(ResultSetMetaData metadata, int columns, Result queryResult) throws SQLException {
+        Column[] header = new Column[columns];
         for (int i = 1; i < columns + 1; i++) {
             String name = metadata.getColumnName(i);
-            queryResult.addColumn(name);
+            Column column = new Column(getType(metadata.getColumnType(i)));
+            queryResult.addColumn(name, column);
+            header[i - 1] = column;
         }
+        return header;
     }
 
-    private void addRow(ResultSet result, ResultSetMetaData metadata, int columns, Result storage) throws SQLException {
+    private String[] getNames(ResultSetMetaData metadata, int columns) throws SQLException {
+        String[] names = new String[columns];
         for (int i = 1; i < columns + 1; i++) {
-            // The name and type getting is being done per row. We should fix it even though Hive gets it only once.
-            String name = metadata.getColumnName(i);
-            int type = metadata.getColumnType(i);
-            TypedObject value = getAsTypedObject(result, i, type);
-            storage.addColumnRow(name, value);
-            log.info("Column: {}\tType: {}\tValue: {}", name, type, (value == null ? "null" : value.data));
+            names[i - 1] = metadata.getColumnName(i);
+        }
+        return names;
+    }
+
+    private int[] getTypes(ResultSetMetaData metadata, int columns) throws SQLException {
+        int[] types = new int[columns];
+        for (int i = 1; i < columns + 1; i++) {
+            types[i - 1] = metadata.getColumnType(i);
+        }
+        return types;
+    }
+
+    private void addRow(ResultSet result, String[] names, int[] types, TypeSystem.Type[] mappedTypes,
+                        Column[] storage) throws SQLException {
+        for (int i = 1; i < types.length + 1; i++) {
+            Column column = storage[i - 1];
+            addValue(result, i, types[i - 1], column);
+            if (log.isDebugEnabled()) {
+                log.debug("Column: {}\tType: {}\tValue: {}", names[i - 1], mappedTypes[i - 1],
+                          column.get(column.size() - 1));
+            }
         }
     }
 
@@ -140,43 +167,80 @@ public class Apiary implements Engine {
      * @throws java.sql.SQLException if any.
      */
     TypedObject getAsTypedObject(ResultSet results, int index, int type) throws SQLException {
-        if (results.getObject(index) == null || results.wasNull()) {
-            return null;
+        Column value = new Column();
+        addValue(results, index, type, value);
+        return value.first();
+    }
+
+    /**
+     * Takes a value and its type and adds it to the given Column without boxing it.
+     *
+     * @param results The ResultSet that has a confirmed value for reading by its iterator.
+     * @param index   The index of the column in the results to get.
+     * @param type    The java.sql.TypesSQL type of the value.
+     * @param column  The {@link Column} to add the value or a null, if the result was null, to.
+     * @throws java.sql.SQLException if any.
+     */
+    void addValue(ResultSet results, int index, int type, Column column) throws SQLException {
+        if (results.getObject(index) == null || results.wasNull() || type == Types.NULL) {
+            column.add((TypedObject) null);
+            return;
+        }
+        TypeSystem.Type mappedType = getType(type);
+        if (mappedType == null) {
+            throw new UnsupportedOperationException("Unknown SQL type encountered from Hive: " + type);
         }
+        switch (mappedType) {
+            case STRING:
+                column.add(results.getString(index));
+                break;
+            case DOUBLE:
+                column.add(results.getDouble(index));
+                break;
+            case BOOLEAN:
+                column.add(results.getBoolean(index));
+                break;
+            case LONG:
+                column.add(results.getLong(index));
+                break;
+            case DECIMAL:
+                column.add(results.getBigDecimal(index));
+                break;
+            case TIMESTAMP:
+                column.add(results.getTimestamp(index));
+                break;
+        }
+    }
 
-        TypedObject toReturn;
+    /**
+     * Finds the {@link TypeSystem.Type} that a java.sql.Types SQL type is stored as.
+     *
+     * @param type The java.sql.Types SQL type.
+     * @return The corresponding type or null if there isn't one.
+     */
+    static TypeSystem.Type getType(int type) {
         switch (type) {
             case (Types.DATE):
             case (Types.CHAR):
             case (Types.VARCHAR):
-                toReturn = TypeSystem.asTypedObject(results.getString(index));
-                break;
+                return TypeSystem.Type.STRING;
             case (Types.FLOAT):
             case (Types.DOUBLE):
-                toReturn = TypeSystem.asTypedObject(results.getDouble(index));
-                break;
+                return TypeSystem.Type.DOUBLE;
             case (Types.BOOLEAN):
-                toReturn = TypeSystem.asTypedObject(results.getBoolean(index));
-                break;
+                return TypeSystem.Type.BOOLEAN;
             case (Types.TINYINT):
             case (Types.SMALLINT):
             case (Types.INTEGER):
             case (Types.BIGINT):
-                toReturn = TypeSystem.asTypedObject(results.getLong(index));
-                break;
+                return TypeSystem.Type.LONG;
             case (Types.DECIMAL):
-                toReturn = TypeSystem.asTypedObject(results.getBigDecimal(index));
-                break;
+                return TypeSystem.Type.DECIMAL;
             case (Types.TIMESTAMP):
-                toReturn = TypeSystem.asTypedObject(results.getTimestamp(index));
-                break;
-            case (Types.NULL):
-                toReturn = null;
-                break;
+                return TypeSystem.Type.TIMESTAMP;
             default:
-                throw new UnsupportedOperationException("Unknown SQL type encountered from Hive: " + type);
+                return null;
         }
-        return toReturn;
     }
 
     /**
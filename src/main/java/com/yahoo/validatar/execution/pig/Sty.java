@@ -4,6 +4,7 @@
  */
 package com.yahoo.validatar.execution.pig;
 
+import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Helpable;
 import com.yahoo.validatar.common.Query;
 import com.yahoo.validatar.common.Result;
@@ -22,6 +23,7 @@ import org.apache.pig.impl.logicalLayer.schema.Schema;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -111,9 +113,9 @@ public class Sty implements Engine {
             Result result = query.createResults();
             // dumpSchema will also, unfortunately, print the schema to stdout.
             List<FieldDetail> metadata = getFieldDetails(server.dumpSchema(alias));
-            populateColumns(metadata, result);
+            List<Column> columns = populateColumns(metadata, result);
             while (queryResults.hasNext()) {
-                populateRow(queryResults.next(), metadata, result);
+                populateRow(queryResults.next(), metadata, columns);
             }
             server.shutdown();
         } catch (IOException ioe) {
@@ -125,51 +127,83 @@ public class Sty implements Engine {
         }
     }
 
-    private void populateColumns(List<FieldDetail> metadata, Result result) throws IOException {
+    private List<Column> populateColumns(List<FieldDetail> metadata, Result result) throws IOException {
         if (metadata.isEmpty()) {
             throw new IOException("No metadata of columns found for Pig query");
         }
-        metadata.forEach(m -> result.addColumn(m.alias));
+        List<Column> columns = new ArrayList<>();
+        for (FieldDetail detail : metadata) {
+            Column column = new Column(getType(detail.type));
+            result.addColumn(detail.alias, column);
+            columns.add(column);
+        }
+        return columns;
     }
 
-    private void populateRow(Tuple row, List<FieldDetail> metadata, Result result) throws ExecException {
+    private void populateRow(Tuple row, List<FieldDetail> metadata, List<Column> columns) throws ExecException {
         if (row == null) {
             log.info("Skipping null row in results...");
             return;
         }
         for (int i = 0; i < metadata.size(); ++i) {
-            FieldDetail column = metadata.get(i);
-            TypedObject value = getTypedObject(row.get(i), column);
-            log.info("Column: {}\tType: {}\tValue: {}", column.alias, column.type, (value == null ? "null" : value.data));
-            result.addColumnRow(column.alias, value);
+            FieldDetail detail = metadata.get(i);
+            Column column = columns.get(i);
+            addValue(row.get(i), detail, column);
+            if (log.isDebugEnabled()) {
+                log.debug("Column: {}\tType: {}\tValue: {}", detail.alias, detail.type, column.get(column.size() - 1));
+            }
         }
     }
 
-    private TypedObject getTypedObject(Object data, FieldDetail detail) throws ExecException {
-        if (data == null) {
-            return null;
+    private void addValue(Object data, FieldDetail detail, Column column) throws ExecException {
+        TypeSystem.Type type = getType(detail.type);
+        if (data == null || type == null) {
+            //TUPLE, BAG, MAP, INTERNALMAP, GENERIC_WRITABLECOMPARABLE, ERROR, UNKNOWN, NULL and anything else
+            column.add((TypedObject) null);
+            return;
         }
-        byte type = detail.type;
+        switch (type) {
+            case BOOLEAN:
+                column.add(DataType.toBoolean(data, detail.type).booleanValue());
+                break;
+            case LONG:
+                column.add(DataType.toLong(data, detail.type).longValue());
+                break;
+            case DOUBLE:
+                column.add(DataType.toDouble(data, detail.type).doubleValue());
+                break;
+            case TIMESTAMP:
+                column.add(new Timestamp(DataType.toDateTime(data, detail.type).getMillis()));
+                break;
+            case STRING:
+                column.add(DataType.toString(data, detail.type));
+                break;
+            case DECIMAL:
+                column.add(DataType.toBigDecimal(data, detail.type));
+                break;
+        }
+    }
+
+    private static TypeSystem.Type getType(byte type) {
         switch (type) {
             case DataType.BOOLEAN:
-                return TypeSystem.asTypedObject(DataType.toBoolean(data, type));
+                return TypeSystem.Type.BOOLEAN;
             case DataType.INTEGER:
             case DataType.LONG:
-                return TypeSystem.asTypedObject(DataType.toLong(data, type));
+                return TypeSystem.Type.LONG;
             case DataType.FLOAT:
             case DataType.DOUBLE:
-                return TypeSystem.asTypedObject(DataType.toDouble(data, type));
+                return TypeSystem.Type.DOUBLE;
             case DataType.DATETIME:
-                return TypeSystem.asTypedObject(new Timestamp(DataType.toDateTime(data, type).getMillis()));
+                return TypeSystem.Type.TIMESTAMP;
             case DataType.BYTE:
             case DataType.BYTEARRAY:
             case DataType.CHARARRAY:
-                return TypeSystem.asTypedObject(DataType.toString(data, type));
+                return TypeSystem.Type.STRING;
             case DataType.BIGINTEGER:
             case DataType.BIGDECIMAL:
-                return TypeSystem.asTypedObject(DataType.toBigDecimal(data, type));
+                return TypeSystem.Type.DECIMAL;
             default:
-                //TUPLE, BAG, MAP, INTERNALMAP, GENERIC_WRITABLECOMPARABLE, ERROR, UNKNOWN, NULL and anything else
                 return null;
         }
     }
@@ -4,9 +4,10 @@
  */
 package com.yahoo.validatar.execution.rest;
 
+import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Helpable;
 import com.yahoo.validatar.common.Query;
-import com.yahoo.validatar.common.TypeSystem;
+import com.yahoo.validatar.common.Result;
 import com.yahoo.validatar.common.TypedObject;
 import com.yahoo.validatar.execution.Engine;
 import joptsimple.OptionParser;
@@ -27,7 +28,6 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -141,25 +141,28 @@ public class JSON implements Engine {
         String function = metadata.getOrDefault(METADATA_FUNCTION_NAME_KEY, String.valueOf(defaultFunction));
         ScriptEngine evaluator = scriptEngineManager.getEngineByName(JAVASCRIPT_ENGINE);
         String columnarData = convertToColumnarJSON(data, evaluator, function, query);
-        Map<String, List<TypedObject>> typedData = convertToMap(columnarData, evaluator, query);
-        query.createResults().addColumns(typedData);
+        Map<String, Column> typedData = convertToMap(columnarData, evaluator, query);
+        Result result = query.createResults();
+        if (typedData != null) {
+            typedData.forEach(result::addColumn);
+        }
     }
 
     /**
-     * Converts the String columnar JSON data into a Map of column names to List of column values. Internal use only.
+     * Converts the String columnar JSON data into a Map of column names to Columns of their values. Internal use only.
      *
      * @param columnarData The String columnar JSON data.
      * @param evaluator The Javascript engine used to convert the String columnar JSON data.
      * @param query The Query object being run.
      * @return The Map version of the JSON data, null if exception (query is failed).
      */
-    Map<String, List<TypedObject>> convertToMap(String columnarData, ScriptEngine evaluator, Query query) {
+    Map<String, Column> convertToMap(String columnarData, ScriptEngine evaluator, Query query) {
         try {
             log.info("Converting processed JSON into a map...");
             // Type erasure will make this not enough if the JSON parses into a map but with the wrong keys, values.
             Map<String, List<Object>> result = (Map<String, List<Object>>) evaluator.eval(String.format(JSON_TO_MAP_FORMAT, columnarData));
             // But this will catch it.
-            Map<String, List<TypedObject>> typed = type(result);
+            Map<String, Column> typed = type(result);
             log.info("Conversion complete!");
             return typed;
         } catch (ScriptException se) {
@@ -240,46 +243,44 @@ public class JSON implements Engine {
         return null;
     }
 
-    private static Map<String, List<TypedObject>> type(Map<String, List<Object>> untyped) {
-        Map<String, List<TypedObject>> typedData = new HashMap<>();
+    private static Map<String, Column> type(Map<String, List<Object>> untyped) {
+        Map<String, Column> typedData = new HashMap<>();
         if (untyped == null) {
             return typedData;
         }
         for (Map.Entry<String, List<Object>> e : untyped.entrySet()) {
-            String column = e.getKey();
-            log.info("Column: {}", column);
-            List<TypedObject> typedValues = new ArrayList<>();
-            typedData.put(column, typedValues);
+            String name = e.getKey();
+            log.info("Column: {}", name);
+            Column column = new Column();
+            typedData.put(name, column);
             List<Object> values = e.getValue();
             if (values != null) {
-                values.stream().map(JSON::type).forEach(typedValues::add);
+                values.forEach(v -> type(v, column));
             }
         }
         return typedData;
     }
 
-    private static TypedObject type(Object object) {
+    private static void type(Object object, Column column) {
         if (object == null) {
-            log.info("Value: null");
-            return null;
-        }
-        TypedObject typed;
-        if (object instanceof String) {
-            typed =  new TypedObject((String) object, TypeSystem.Type.STRING);
+            column.add((TypedObject) null);
+        } else if (object instanceof String) {
+            column.add((String) object);
         } else if (object instanceof Integer) {
-            typed =  new TypedObject(((Integer) object).longValue(), TypeSystem.Type.LONG);
+            column.add(((Integer) object).longValue());
         } else if (object instanceof Number) {
             // Can't recognize Longs and Doubles since that seems to change per JDK. Safer to use Number and use DOUBLE
-            typed =  new TypedObject(((Number) object).doubleValue(), TypeSystem.Type.DOUBLE);
+            column.add(((Number) object).doubleValue());
         } else if (object instanceof Boolean) {
-            typed =  new TypedObject((Boolean) object, TypeSystem.Type.BOOLEAN);
+            column.add(((Boolean) object).booleanValue());
         } else {
             // We can support custom formats for BigDecimals, Timestamps etc as JS objects if need be.
             log.info("Object {} has an unsupported type {}. Nulling...", object, object.getClass().getCanonicalName());
-            return null;
+            column.add((TypedObject) null);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Value: {}", column.get(column.size() - 1));
         }
-        log.info("Value: {}\tType: {}", typed.data, typed.type);
-        return typed;
     }
 
     /**
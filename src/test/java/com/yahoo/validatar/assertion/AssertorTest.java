@@ -4,6 +4,7 @@
  */
 package com.yahoo.validatar.assertion;
 
+import com.yahoo.validatar.TestHelpers;
 import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Result;
 import com.yahoo.validatar.common.TypeSystem;
@@ -14,9 +15,12 @@ import org.testng.annotations.Test;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.yahoo.validatar.TestHelpers.getTyped;
+import static com.yahoo.validatar.TestHelpers.isEqual;
 import static com.yahoo.validatar.TestHelpers.wrap;
 
 public class AssertorTest {
@@ -594,4 +598,736 @@ public class AssertorTest {
         Assertor.assertAll(wrap(a, b, c), wrap(test));
         Assert.assertTrue(test.failed());
     }
+
+    @Test
+    public void testNullChecks() {
+        addColumnToResult("A.a", TypeSystem.Type.LONG, 1L, null, 3L);
+        addColumnToResult("A.b", TypeSystem.Type.STRING, null, null, "foo");
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("isnull(A.a) || A.a > 0");
+        test.asserts.add("isnotnull(A.a + 1) where A.a != 2");
+        test.asserts.add("isnull(A.b) where isnotnull(A.a) && A.a < 3");
+        test.asserts.add("isnull(A.a + 1) == isnull(A.a) where isnull(A.b)");
+        test.asserts.add("A.a > 0 where isnull(A.b)");
+        test.asserts.add("false && A.a > 0 || isnotnull(A.b) where A.b == 'foo'");
+
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        // Only the fifth assertion fails since A.a > 0 is null for the second row
+        Assert.assertEquals(test.getMessages().get(0), "Assertion A.a > 0 where isnull(A.b) was false");
+        Assert.assertEquals(test.getMessages().get(1), "Result had false values: [<true, BOOLEAN>, null]");
+        Assert.assertEquals(test.getMessages().size(), 5);
+    }
+
+    @Test
+    public void testNullsFailAssertions() {
+        addColumnToResult("A.a", TypeSystem.Type.LONG, 1L, null, 3L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.a > 0");
+
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(1),
+                            "Result had false values: [<true, BOOLEAN>, null, <true, BOOLEAN>]");
+    }
+
+    @Test
+    public void testLargeEquiJoinAssertion() {
+        // The cartesian product of these would have 400 million rows
+        int size = 20000;
+        Result a = new Result("A");
+        Result b = new Result("B");
+        Column aId = new Column();
+        Column aTotal = new Column();
+        Column bId = new Column();
+        Column bCount = new Column();
+        for (long i = 0; i < size; ++i) {
+            aId.add(i);
+            aTotal.add(i * 2);
+            bId.add(size - 1 - i);
+            bCount.add(size - 1 - i);
+        }
+        a.addColumn("id", aId);
+        a.addColumn("total", aTotal);
+        b.addColumn("id", bId);
+        b.addColumn("count", bCount);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.total == 2 * B.count where A.id == B.id");
+        test.asserts.add("A.total == 2 * B.count where (B.id == A.id && true) && A.id < 10");
+        test.asserts.add("A.total == 2 * B.count where A.id * 2 == B.count + B.id");
+
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testEquiJoinAssertionFailure() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L, 3L, null);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, null, 3L, 2L, 1L);
+        addColumnToResult(b, "count", TypeSystem.Type.LONG, 0L, 3L, 0L, 1L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.id == B.count where A.id == B.id");
+
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(1),
+                            "Result had false values: [<true, BOOLEAN>, <false, BOOLEAN>, <true, BOOLEAN>]");
+    }
+
+    @Test
+    public void testJoinAssertionWithFiltersOnEachDataset() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L, 3L, 4L);
+        addColumnToResult(a, "dt", TypeSystem.Type.STRING, "2017-01-01", "2017-01-02", "2017-01-01", "2017-01-01");
+        addColumnToResult(a, "count", TypeSystem.Type.LONG, 10L, 0L, 30L, 40L);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 4L, 3L, 2L, 1L);
+        addColumnToResult(b, "valid", TypeSystem.Type.BOOLEAN, false, true, true, true);
+        addColumnToResult(b, "count", TypeSystem.Type.LONG, 0L, 30L, 5L, 10L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.count == B.count && A.count > 0 where A.id == B.id && A.dt == \"2017-01-01\" && B.valid == true");
+        test.asserts.add("A.count + B.count > 0 where A.id == B.id && (A.dt == \"2017-01-01\" || B.valid)");
+
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testLargeIntervalJoinAssertion() {
+        // The cartesian product of these would have 40 million rows
+        Result events = new Result("E");
+        Column ts = new Column();
+        Column expected = new Column();
+        for (long i = 0; i < 20000; ++i) {
+            ts.add(i);
+            expected.add(i / 10);
+        }
+        events.addColumn("ts", ts);
+        events.addColumn("window", expected);
+        Result windows = new Result("W");
+        Column id = new Column();
+        Column start = new Column();
+        Column end = new Column();
+        for (long i = 0; i < 2000; ++i) {
+            id.add(i);
+            start.add(i * 10);
+            end.add(i * 10 + 10);
+        }
+        windows.addColumn("id", id);
+        windows.addColumn("start", start);
+        windows.addColumn("end", end);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("E.window == W.id where E.ts >= W.start && E.ts < W.end");
+        test.asserts.add("E.window == W.id where W.end > E.ts && W.start <= E.ts && W.id < 5");
+
+        Assertor.assertAll(wrap(events, windows), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testParsedAssertionsAreCached() {
+        GrammarParser.StatementContext statement = Assertor.parse("AV.pv_count > 1000 && AV.li_count < 10");
+        Assert.assertSame(Assertor.parse("AV.pv_count > 1000 && AV.li_count < 10"), statement);
+        Assert.assertNotSame(Assertor.parse("AV.pv_count > 1000"), statement);
+    }
+
+    @Test
+    public void testParsedAssertionCacheIsBounded() {
+        GrammarParser.StatementContext used = Assertor.parse("AV.pv_count > 0");
+        GrammarParser.StatementContext unused = Assertor.parse("AV.li_count > 0");
+        for (int i = 1; i < Assertor.STATEMENT_CACHE_SIZE; ++i) {
+            Assert.assertSame(Assertor.parse("AV.pv_count > 0"), used);
+            Assertor.parse("AV.pv_count > " + i);
+        }
+        // Only the least recently used tree was dropped
+        Assert.assertSame(Assertor.parse("AV.pv_count > 0"), used);
+        Assert.assertNotSame(Assertor.parse("AV.li_count > 0"), unused);
+    }
+
+    @Test
+    public void testCachedAssertionOnDifferentData() {
+        addColumnToResult("AV.pv_count", TypeSystem.Type.LONG, 104255L);
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("AV.pv_count > 1000");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertFalse(test.failed());
+
+        Result other = new Result();
+        addColumnToResult(other, "AV.pv_count", TypeSystem.Type.LONG, 10L);
+        test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("AV.pv_count > 1000");
+        Assertor.assertAll(wrap(other), wrap(test));
+        Assert.assertTrue(test.failed());
+    }
+
+    @Test
+    public void testPlanningDoesNotJoin() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 2L, 3L);
+
+        AssertVisitor visitor = new AssertVisitor(wrap(a, b));
+        Expression expression = visitor.visit(Assertor.parse("A.id == 2 where A.id == B.id"));
+        Assert.assertEquals(visitor.getJoinedResult().numberOfRows(), 0);
+        Assert.assertEquals(visitor.getSeenIdentifiers().size(), 2);
+
+        Column result = expression.evaluate();
+        Assert.assertEquals(result.size(), 1);
+        Assert.assertEquals(visitor.getJoinedResult().numberOfRows(), 1);
+    }
+
+    @Test
+    public void testInvalidAssertionFallsBackToFullParsing() {
+        addColumnToResult("AV.pv_count", TypeSystem.Type.LONG, 104255L);
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("AV.pv_count > 1000 &&");
+
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertNotNull(Assertor.parse("AV.pv_count > 1000 &&"));
+    }
+
+    private static Expression planExpression(AssertVisitor visitor, String assertion) {
+        return visitor.visit(((GrammarParser.BaseOrValueContext) Assertor.parse(assertion)).orExpression());
+    }
+
+    @Test
+    public void testConstantFolding() {
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        Expression expression = planExpression(visitor, "100 * 1000 - -1");
+        Assert.assertTrue(expression.isConstant());
+        Assert.assertTrue(isEqual(expression.getConstant(), TypeSystem.asTypedObject(100001L)));
+
+        expression = planExpression(visitor, "!(1.5 * 2 > 3 || true && false)");
+        Assert.assertTrue(expression.isConstant());
+        Assert.assertTrue(isEqual(expression.getConstant(), TypeSystem.asTypedObject(true)));
+
+        Assert.assertFalse(planExpression(visitor, "AV.pv_count * 1000 + 1").isConstant());
+        Assert.assertFalse(planExpression(visitor, "approx(1000, 1010, 0.1)").isConstant());
+    }
+
+    @Test
+    public void testConstantFoldingErrors() {
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        Assert.assertFalse(planExpression(visitor, "1 / 0").isConstant());
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("1 / 0 == 1");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(0), "1 / 0 == 1 failed with exception: / by zero");
+    }
+
+    @Test
+    public void testApproxWithConstantBounds() {
+        addColumnToResult("AV.pv_count", TypeSystem.Type.LONG, 95L, 100L, null, 110L, 111L, 89L);
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        Column result = planExpression(visitor, "approx(AV.pv_count, 100, 0.1)").evaluate(results);
+        Assert.assertEquals(result.size(), 6);
+        Assert.assertTrue(isEqual(result.get(0), TypeSystem.asTypedObject(true)));
+        Assert.assertTrue(isEqual(result.get(1), TypeSystem.asTypedObject(true)));
+        Assert.assertNull(result.get(2));
+        Assert.assertTrue(isEqual(result.get(3), TypeSystem.asTypedObject(true)));
+        Assert.assertTrue(isEqual(result.get(4), TypeSystem.asTypedObject(false)));
+        Assert.assertTrue(isEqual(result.get(5), TypeSystem.asTypedObject(false)));
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("approx(AV.pv_count, 100, 1.5)");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertTrue(test.getMessages().get(0).contains("Expected percentage for approx to be between 0 and 1"));
+    }
+
+    @Test
+    public void testShortCircuitedOr() {
+        addColumnToResult("A.flag", TypeSystem.Type.BOOLEAN, true, false, true, false);
+        addColumnToResult("A.d", TypeSystem.Type.LONG, 0L, 5L, 0L, 2L);
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        // The division is only done for the rows where the flag is false
+        test.asserts.add("A.flag || 10 / A.d > 1");
+        test.asserts.add("(A.flag || 10 / A.d > 1) && A.d != 1");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testShortCircuitedAndWithNulls() {
+        addColumnToResult("A.flag", TypeSystem.Type.BOOLEAN, false, null, true, false, true);
+        addColumnToResult("A.d", TypeSystem.Type.LONG, 0L, 5L, 2L, 0L, 20L);
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        Column result = planExpression(visitor, "A.flag && 10 / A.d > 1").evaluate(results);
+        Assert.assertEquals(result.size(), 5);
+        Assert.assertTrue(isEqual(result.get(0), TypeSystem.asTypedObject(false)));
+        Assert.assertNull(result.get(1));
+        Assert.assertTrue(isEqual(result.get(2), TypeSystem.asTypedObject(true)));
+        Assert.assertTrue(isEqual(result.get(3), TypeSystem.asTypedObject(false)));
+        Assert.assertTrue(isEqual(result.get(4), TypeSystem.asTypedObject(false)));
+
+        // All decided by the first
+        result = planExpression(visitor, "A.d == 0 || A.d > 1").evaluate(results);
+        Assert.assertEquals(result.size(), 5);
+        Assert.assertTrue(result.stream().allMatch(t -> (Boolean) t.data));
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("!A.flag || 10 / A.d > 1");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        // The null flag is decided by the division. Only the last row fails.
+        Assert.assertEquals(test.getMessages().get(1), "Result had false values: [<true, BOOLEAN>, <true, BOOLEAN>, " +
+                                                       "<true, BOOLEAN>, <true, BOOLEAN>, <false, BOOLEAN>]");
+    }
+
+    @Test
+    public void testShortCircuitWithResultsOfDifferentSizes() {
+        Result a = new Result("A");
+        addColumnToResult(a, "flag", TypeSystem.Type.BOOLEAN, true, false, null, true);
+        addColumnToResult(a, "d", TypeSystem.Type.LONG, 0L, 5L, 2L, 0L);
+        Result b = new Result("B");
+        addColumnToResult(b, "z", TypeSystem.Type.LONG, 1L, 2L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        // Only the sizes of the columns used by the division matter, not the size of B
+        test.asserts.add("A.flag || 10 / A.d > 1");
+        test.asserts.add("B.z > 0");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testShortCircuitStillEvaluatesUndecidedRows() {
+        addColumnToResult("A.flag", TypeSystem.Type.BOOLEAN, false, null, true);
+        addColumnToResult("A.d", TypeSystem.Type.LONG, 1L, 0L, 1L);
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        planExpression(visitor, "A.flag || 10 / A.d > 1").evaluate(results);
+    }
+
+    @Test
+    public void testMemoizedExpression() {
+        int[] evaluations = {0};
+        Expression expression = new Expression(d -> {
+            evaluations[0]++;
+            return d.getColumns().get("A.d");
+        }).memoize();
+        addColumnToResult("A.d", TypeSystem.Type.LONG, 1L, 2L);
+        Assert.assertSame(expression.memoize(), expression);
+
+        Column first = expression.evaluate(results);
+        Assert.assertSame(expression.evaluate(results), first);
+        Assert.assertEquals(evaluations[0], 1);
+        expression.evaluate(new Result());
+        Assert.assertEquals(evaluations[0], 2);
+
+        Expression constant = Expression.wrap(TypeSystem.asTypedObject(1L));
+        Assert.assertSame(constant.memoize(), constant);
+    }
+
+    @Test
+    public void testSharedSubexpressions() {
+        addColumnToResult("A.d", TypeSystem.Type.LONG, 1L, 2L, 4L);
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        visitor.share(Arrays.asList(Assertor.parse("A.d * 2 + 1 > 2"), Assertor.parse("A.d * 2 + 1 < 10")));
+
+        Expression first = planExpression(visitor, "A.d * 2 + 1");
+        visitor.reset();
+        Expression second = planExpression(visitor, "A.d * 2 + 1");
+        Assert.assertSame(second, first);
+        Assert.assertTrue(visitor.getSeenIdentifiers().contains("A.d"));
+        Assert.assertSame(second.evaluate(results), first.evaluate(results));
+        // Not shared
+        Assert.assertNotSame(planExpression(visitor, "A.d * 3"), planExpression(visitor, "A.d * 3"));
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.d * 2 + 1 > 2");
+        test.asserts.add("A.d * 2 + 1 < 10");
+        test.asserts.add("A.d * 2 + 1 > 3");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().size(), 5);
+        Assert.assertTrue(test.getMessages().get(0).contains("A.d * 2 + 1 > 3"));
+    }
+
+    @Test
+    public void testSharedJoins() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        addColumnToResult(a, "value", TypeSystem.Type.LONG, 10L, 20L, 30L);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 2L, 3L, 4L);
+        addColumnToResult(b, "value", TypeSystem.Type.LONG, 20L, 31L, 40L);
+        Result c = new Result("C");
+        addColumnToResult(c, "id", TypeSystem.Type.LONG, 3L);
+
+        AssertVisitor visitor = new AssertVisitor(wrap(a, b, c));
+        visitor.share(Arrays.asList(Assertor.parse("A.value <= B.value where A.id == B.id"),
+                                    Assertor.parse("A.value > 0 where A.id == B.id")));
+        visitor.visit(Assertor.parse("A.value <= B.value where A.id == B.id")).evaluate();
+        Result joined = visitor.getJoinedResult();
+        Assert.assertEquals(joined.numberOfRows(), 2);
+        visitor.reset();
+        visitor.visit(Assertor.parse("A.value > 0 where A.id == B.id")).evaluate();
+        Assert.assertSame(visitor.getJoinedResult(), joined);
+        // The same where clause joining different results is not reused
+        visitor.reset();
+        visitor.visit(Assertor.parse("C.id > 0 where A.id == B.id")).evaluate();
+        Assert.assertNotSame(visitor.getJoinedResult(), joined);
+        Assert.assertEquals(visitor.getJoinedResult().numberOfRows(), 2);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.value <= B.value where A.id == B.id");
+        test.asserts.add("A.value == B.value where A.id == B.id");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().size(), 5);
+        Assert.assertTrue(test.getMessages().get(0).contains("A.value == B.value"));
+    }
+
+    @Test
+    public void testParallelAssertions() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L, 3L, 4L);
+        addColumnToResult(a, "value", TypeSystem.Type.LONG, 10L, 20L, 30L, 40L);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 2L, 3L, 4L, 5L);
+        addColumnToResult(b, "value", TypeSystem.Type.LONG, 20L, 31L, 40L, 50L);
+
+        List<com.yahoo.validatar.common.Test> sequential = new ArrayList<>();
+        List<com.yahoo.validatar.common.Test> parallel = new ArrayList<>();
+        for (int i = 0; i < 64; ++i) {
+            for (List<com.yahoo.validatar.common.Test> tests : Arrays.asList(sequential, parallel)) {
+                com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+                test.asserts = new ArrayList<>();
+                test.asserts.add("A.value * 2 > " + i);
+                test.asserts.add("A.value == B.value where A.id == B.id");
+                test.asserts.add("A.value * 2 > " + i + " && B.value > A.value where A.id < B.id");
+                tests.add(test);
+            }
+        }
+        Assertor.assertAll(wrap(a, b), sequential);
+        Assertor.assertAll(wrap(a, b), parallel, 4);
+
+        for (int i = 0; i < 64; ++i) {
+            Assert.assertTrue(parallel.get(i).failed());
+            Assert.assertEquals(parallel.get(i).failed(), sequential.get(i).failed());
+            Assert.assertEquals(parallel.get(i).getMessages(), sequential.get(i).getMessages());
+        }
+        Assert.assertFalse(sequential.get(0).getMessages().stream().anyMatch(m -> m.contains("A.value * 2 > 0")));
+        Assert.assertTrue(sequential.get(63).getMessages().get(0).contains("A.value * 2 > 63"));
+    }
+
+    @Test
+    public void testAggregates() {
+        addColumnToResult("A.views", TypeSystem.Type.LONG, 100L, 200L, null, 700L);
+        addColumnToResult("A.clicks", TypeSystem.Type.LONG, 1L, 5L, 2L, 2L);
+        addColumnToResult("A.country", TypeSystem.Type.STRING, "us", "uk", "us", "fr");
+        addColumnToResult("count", TypeSystem.Type.LONG, 1L, 1L, 1L, 1L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("count(A.views) == 3 && count(A.clicks) == 4 && countDistinct(A.country) == 3");
+        test.asserts.add("sum(A.views) == 1000 && min(A.views) == 100 && max(A.clicks) == 5");
+        test.asserts.add("avg(A.views) > 333 && avg(A.views) < 334 && avg(A.clicks) == 2.5");
+        test.asserts.add("sum(A.clicks) < 0.1 * sum(A.views)");
+        test.asserts.add("A.clicks <= max(A.clicks)");
+        test.asserts.add("count == 1 && sum(count) == 4");
+        test.asserts.add("sum(A.views * 2 + 1) == 2003");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testAggregatesAreNotShortCircuited() {
+        addColumnToResult("A.flag", TypeSystem.Type.BOOLEAN, true, false, true);
+        addColumnToResult("A.value", TypeSystem.Type.LONG, 1L, 2L, 3L);
+
+        AssertVisitor visitor = new AssertVisitor(wrap(results));
+        Column result = planExpression(visitor, "A.flag || sum(A.value) == 6").evaluate(results);
+        Assert.assertTrue(isEqual(result, TestHelpers.asColumn(TypeSystem.Type.BOOLEAN, true, true, true)));
+    }
+
+    @Test
+    public void testAggregatesOverJoins() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        addColumnToResult(a, "value", TypeSystem.Type.LONG, 10L, 20L, 30L);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 2L, 3L, 4L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("sum(A.value) == 50 && count(B.id) == 2 where A.id == B.id");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+
+        test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.value > 0 where A.value > avg(A.value)");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertTrue(test.getMessages().get(0).endsWith("Aggregates cannot be used in the where clause"));
+    }
+
+    @Test
+    public void testUnknownFunctions() {
+        addColumnToResult("A.value", TypeSystem.Type.LONG, 1L, 2L, 3L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("median(A.value) == 2");
+        test.asserts.add("sum(A.value, A.value) == 12");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(0), "median(A.value) == 2 failed with exception: Unknown function median");
+        Assert.assertEquals(test.getMessages().get(2), "sum(A.value, A.value) == 12 failed with exception: " +
+                                                       "Expected 1 argument(s) for sum but found 2");
+    }
+
+    @Test
+    public void testSketches() {
+        Column users = new Column();
+        Column latencies = new Column();
+        for (long i = 0; i < 100000; ++i) {
+            users.add("user" + (i % 20000));
+            latencies.add(i % 1000);
+        }
+        results.addColumn("q.user", users);
+        results.addColumn("q.latency", latencies);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("approxDistinct(q.user) > 19000 && approxDistinct(q.user) < 21000");
+        test.asserts.add("quantile(q.latency, 0.99) > 970 && quantile(q.latency, 0.5) < 520");
+        test.asserts.add("quantile(q.latency, 0) == 0 && quantile(q.latency, 1) == 999");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertFalse(test.failed());
+
+        test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("quantile(q.latency) > 0");
+        test.asserts.add("quantile(q.latency, 2) > 0");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(0), "quantile(q.latency) > 0 failed with exception: " +
+                                                       "Expected 2 argument(s) for quantile but found 1");
+        Assert.assertEquals(test.getMessages().get(2), "quantile(q.latency, 2) > 0 failed with exception: " +
+                                                       "Expected the quantile to be between 0 and 1 but found 2.0");
+    }
+
+    @Test
+    public void testInLookups() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L, 3L, null);
+        addColumnToResult(a, "name", TypeSystem.Type.STRING, "a", "b", "c", "d");
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 3L, 2L, 1L, 5L, 6L);
+        addColumnToResult(b, "name", TypeSystem.Type.STRING, "a", "c", "x", "y", "z");
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.id in B.id where A.id > 0");
+        test.asserts.add("exists(A.name not in B.name) && !exists(A.id not in B.id)");
+        test.asserts.add("count(A.id) == 3 where A.name in B.name || A.id in 2");
+        test.asserts.add("A.name == \"b\" where A.name not in B.name && A.id in B.id");
+        test.asserts.add("A.id in A.id + 0 && A.id not in A.id + 10 where A.id > 0");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testNotInAcrossLines() {
+        Result a = new Result("A");
+        addColumnToResult(a, "x", TypeSystem.Type.LONG, 1L, 2L);
+        Result b = new Result("B");
+        addColumnToResult(b, "y", TypeSystem.Type.LONG, 3L, 4L);
+
+        // Like a multi-line assert in YAML
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.x not\n in B.y");
+        test.asserts.add("A.x not\r\n\tin B.y + 0");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testInLookupsDoNotJoin() {
+        Column ids = new Column();
+        Column references = new Column();
+        for (long i = 0; i < 200000; ++i) {
+            ids.add(i);
+            references.add(i % 1000);
+        }
+        Result a = new Result("A");
+        a.addColumn("id", ids);
+        Result b = new Result("B");
+        b.addColumn("id", references);
+
+        // A cartesian product of these would have 40 billion rows
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("B.id in A.id");
+        test.asserts.add("count(A.id) == 1000 where A.id in B.id");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertFalse(test.failed());
+
+        test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.id in B.id");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertTrue(test.failed());
+    }
+
+    @Test
+    public void testUniqueness() {
+        addColumnToResult("A.id", TypeSystem.Type.LONG, 1L, 2L, 3L, 4L);
+        addColumnToResult("A.dt", TypeSystem.Type.STRING, "d1", "d1", "d2", "d2");
+        addColumnToResult("A.name", TypeSystem.Type.STRING, "a", "b", "a", null);
+        addColumnToResult("A.views", TypeSystem.Type.LONG, 10L, 20L, 10L, 10L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("unique(A.id) && unique(A.dt, A.name) && unique(A.name) where A.dt == 'd1'");
+        test.asserts.add("!exists(duplicates(A.id)) && count(A.id) == 4");
+        test.asserts.add("exists(duplicates(A.views)) && !duplicates(A.dt, A.views) == (A.id < 3)");
+        test.asserts.add("A.id > 2 || unique(A.dt, A.name)");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testUniquenessFailuresOnlyShowDuplicates() {
+        addColumnToResult("A.id", TypeSystem.Type.LONG, 1L, 2L, 3L, 2L, 5L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("unique(A.id)");
+        test.asserts.add("count(A.id) == 4 where duplicates(A.id)");
+        Assertor.assertAll(wrap(results), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(1), "Result had false values: [<true, BOOLEAN>, <false, BOOLEAN>, " +
+                                                       "<true, BOOLEAN>, <false, BOOLEAN>, <true, BOOLEAN>]");
+        String relevantData = test.getMessages().get(4);
+        Assert.assertTrue(relevantData.contains("2"));
+        Assert.assertFalse(relevantData.contains("1") || relevantData.contains("3") || relevantData.contains("5"));
+        Assert.assertTrue(test.getMessages().get(5).endsWith("Aggregates cannot be used in the where clause"));
+    }
+
+    @Test
+    public void testFailuresWithResultsOfDifferentSizes() {
+        Result a = new Result("A");
+        addColumnToResult(a, "x", TypeSystem.Type.LONG, 1L, 20L, 3L, 40L, 5L);
+        Result b = new Result("B");
+        addColumnToResult(b, "y", TypeSystem.Type.LONG, 10L, 2L, 7L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("A.x > max(B.y)");
+        Assertor.assertAll(wrap(a, b), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().size(), 5);
+        Assert.assertEquals(test.getMessages().get(1), "Result had false values: [<false, BOOLEAN>, <true, BOOLEAN>, " +
+                                                       "<false, BOOLEAN>, <true, BOOLEAN>, <false, BOOLEAN>]");
+        // The rows of B are not the rows of the result, so all the data is shown
+        String relevantData = test.getMessages().get(4);
+        Assert.assertTrue(relevantData.contains("20") && relevantData.contains("40") && relevantData.contains("7"));
+    }
+
+    @Test
+    public void testGroupBy() {
+        Result q = new Result("q");
+        addColumnToResult(q, "country", TypeSystem.Type.STRING, "us", "uk", "us", "fr", "uk", "us");
+        addColumnToResult(q, "revenue", TypeSystem.Type.LONG, 100L, 50L, 110L, 20L, 45L, 90L);
+        Result e = new Result("E");
+        addColumnToResult(e, "country", TypeSystem.Type.STRING, "us", "uk", "fr");
+        addColumnToResult(e, "expected", TypeSystem.Type.LONG, 300L, 95L, 21L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("count(q.revenue) <= 3 && max(q.revenue) <= 2 * min(q.revenue) group by q.country");
+        test.asserts.add("sum(q.revenue) >= 0.95 * E.expected && sum(q.revenue) <= 1.05 * E.expected " +
+                         "where q.country == E.country group by q.country");
+        test.asserts.add("sum(q.revenue) == 300 where q.country == 'us' group by q.country");
+        test.asserts.add("unique(q.country) group by q.country, q.revenue");
+        test.asserts.add("count(q.revenue) <= 3 group\nby q.country");
+        Assertor.assertAll(wrap(q, e), wrap(test));
+        Assert.assertFalse(test.failed());
+    }
+
+    @Test
+    public void testGroupByFailures() {
+        Result q = new Result("q");
+        addColumnToResult(q, "country", TypeSystem.Type.STRING, "us", "uk", "us", "fr");
+        addColumnToResult(q, "revenue", TypeSystem.Type.LONG, 100L, 50L, 110L, 20L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("sum(q.revenue) >= 50 group by q.country");
+        test.asserts.add("q.revenue > 0 group by sum(q.revenue)");
+        Assertor.assertAll(wrap(q), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(1), "Result had false values: [<true, BOOLEAN>, <true, BOOLEAN>, " +
+                                                       "<true, BOOLEAN>, <false, BOOLEAN>]");
+        // Only the row of the group that failed is shown
+        String relevantData = test.getMessages().get(4);
+        Assert.assertTrue(relevantData.contains("fr"));
+        Assert.assertFalse(relevantData.contains(" us,") || relevantData.contains(" uk,"));
+        Assert.assertTrue(test.getMessages().get(5).endsWith("Aggregates cannot be used in the group by clause"));
+    }
+
+    @Test
+    public void testWindowFunctions() {
+        Result q = new Result("q");
+        addColumnToResult(q, "dt", TypeSystem.Type.STRING, "d3", "d1", "d4", "d2", "d2", "d1", "d3", "d4");
+        addColumnToResult(q, "country", TypeSystem.Type.STRING, "us", "us", "us", "us", "uk", "uk", "uk", "uk");
+        addColumnToResult(q, "count", TypeSystem.Type.LONG, 105L, 100L, 100L, 98L, 50L, 52L, 51L, 40L);
+
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("q.dt == 'd1' || ratio(q.count) >= 0.9 where q.country == 'us' order by q.dt");
+        test.asserts.add("q.dt == 'd4' || lead(q.dt) >= q.dt order by q.dt");
+        test.asserts.add("q.dt == 'd4' || lead(q.dt) >= q.dt order\r\nby q.dt");
+        test.asserts.add("q.dt < 'd3' || delta(q.count, 2) == q.count - lag(q.count, 2) order by q.dt, q.country");
+        test.asserts.add("q.dt == 'd1' || q.dt == 'd4' || ratio(q.count) >= 0.9 group by q.country order by q.dt");
+        test.asserts.add("count(lag(q.count)) == 3 group by q.country order by q.dt");
+        Assertor.assertAll(wrap(q), wrap(test));
+        Assert.assertFalse(test.failed());
+
+        test = new com.yahoo.validatar.common.Test();
+        test.asserts = new ArrayList<>();
+        test.asserts.add("q.dt == 'd1' || ratio(q.count) >= 0.9 group by q.country order by q.dt");
+        test.asserts.add("q.count > 0 order by lag(q.count)");
+        test.asserts.add("lag(q.count, 1, 2) > 0");
+        Assertor.assertAll(wrap(q), wrap(test));
+        Assert.assertTrue(test.failed());
+        Assert.assertEquals(test.getMessages().get(1), "Result had false values: [<true, BOOLEAN>, <true, BOOLEAN>, " +
+                                                       "<true, BOOLEAN>, <true, BOOLEAN>, <true, BOOLEAN>, " +
+                                                       "<true, BOOLEAN>, <true, BOOLEAN>, <false, BOOLEAN>]");
+        Assert.assertTrue(test.getMessages().get(5).endsWith("Aggregates cannot be used in the order by clause"));
+        Assert.assertEquals(test.getMessages().get(7), "lag(q.count, 1, 2) > 0 failed with exception: " +
+                                                       "Expected 1 to 2 argument(s) for lag but found 3");
+    }
 }
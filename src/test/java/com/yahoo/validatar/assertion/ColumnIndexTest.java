@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.assertion;
+
+import com.yahoo.validatar.common.Result;
+import com.yahoo.validatar.common.TypeSystem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static com.yahoo.validatar.TestHelpers.wrap;
+import static com.yahoo.validatar.assertion.AssertorTest.addColumnToResult;
+
+public class ColumnIndexTest {
+    @Test
+    public void testIndexing() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L, 2L);
+        Result b = new Result("B");
+        addColumnToResult(b, "id", TypeSystem.Type.LONG, 3L);
+        addColumnToResult(b, "name", TypeSystem.Type.STRING, "foo");
+
+        ColumnIndex index = new ColumnIndex(wrap(a, b));
+        Assert.assertSame(index.getResult("A.id"), a);
+        Assert.assertSame(index.getResult("B.id"), b);
+        Assert.assertSame(index.getResult("B.name"), b);
+        Assert.assertEquals(index.getAllData().getColumns().size(), 3);
+        Assert.assertSame(index.getAllData().getColumns().get("A.id"), a.getColumns().get("A.id"));
+        Assert.assertEquals(index.getResults(), wrap(a, b));
+    }
+
+    @Test
+    public void testDuplicateColumns() {
+        Result first = new Result("A");
+        addColumnToResult(first, "id", TypeSystem.Type.LONG, 1L);
+        Result second = new Result("A");
+        addColumnToResult(second, "id", TypeSystem.Type.LONG, 2L);
+
+        ColumnIndex index = new ColumnIndex(wrap(first, second));
+        Assert.assertSame(index.getResult("A.id"), first);
+        Assert.assertSame(index.getAllData().getColumns().get("A.id"), second.getColumns().get("A.id"));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class,
+          expectedExceptionsMessageRegExp = "Could not find the result for B.id to perform the join.")
+    public void testMissingColumn() {
+        Result a = new Result("A");
+        addColumnToResult(a, "id", TypeSystem.Type.LONG, 1L);
+        new ColumnIndex(wrap(a)).getResult("B.id");
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testResultsCannotBeChanged() {
+        new ColumnIndex(wrap(new Result("A"))).getResults().add(new Result("B"));
+    }
+}
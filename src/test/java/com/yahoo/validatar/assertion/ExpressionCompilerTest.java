@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.assertion;
+
+import com.yahoo.validatar.common.Column;
+import com.yahoo.validatar.common.Operations.BinaryOperation;
+import com.yahoo.validatar.common.Operations.UnaryOperation;
+import com.yahoo.validatar.common.Result;
+import com.yahoo.validatar.common.TypeSystem;
+import com.yahoo.validatar.common.TypedObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class ExpressionCompilerTest {
+    private static ExpressionCompiler.Node column(String name) {
+        return ExpressionCompiler.column(name);
+    }
+
+    private static ExpressionCompiler.Node literal(long value) {
+        return ExpressionCompiler.literal(TypeSystem.asTypedObject(value));
+    }
+
+    private static ExpressionCompiler.Node operation(BinaryOperation operation, ExpressionCompiler.Node first,
+                                                     ExpressionCompiler.Node second) {
+        return ExpressionCompiler.operation(operation, first, second);
+    }
+
+    private static Result data() {
+        Result result = new Result();
+        result.addColumn("x", asColumn(TypeSystem.Type.LONG, 1L, 2L, 3L, 4L));
+        result.addColumn("y", asColumn(TypeSystem.Type.LONG, 10L, 20L, 30L, 40L));
+        result.addColumn("z", asColumn(TypeSystem.Type.DOUBLE, 13.0, 23.0, 37.5, 47.0));
+        result.addColumn("b", asColumn(TypeSystem.Type.BOOLEAN, true, false, true, false));
+        result.addColumn("s", asColumn(TypeSystem.Type.STRING, "a", "b", "c", "d"));
+        result.addColumn("n", asColumn(TypeSystem.Type.LONG, 1L, null, 3L, 4L));
+        result.addColumn("one", asColumn(TypeSystem.Type.LONG, 2L));
+        result.addColumn("short", asColumn(TypeSystem.Type.LONG, 1L, 2L));
+        return result;
+    }
+
+    @Test
+    public void testLongArithmetic() {
+        ExpressionCompiler.Node node = operation(BinaryOperation.ADD,
+                                                 operation(BinaryOperation.MULTIPLY, column("x"), literal(2L)),
+                                                 column("y"));
+        Column result = ExpressionCompiler.evaluate(node, data());
+        Assert.assertEquals(result.getType(), TypeSystem.Type.LONG);
+        Assert.assertTrue(isEqual(result, asColumn(TypeSystem.Type.LONG, 12L, 24L, 36L, 48L)));
+
+        node = operation(BinaryOperation.MODULUS, operation(BinaryOperation.DIVIDE, column("y"), column("x")), literal(4L));
+        Assert.assertTrue(isEqual(ExpressionCompiler.evaluate(node, data()),
+                                  asColumn(TypeSystem.Type.LONG, 2L, 2L, 2L, 2L)));
+
+        node = operation(BinaryOperation.SUBTRACT, column("x"), column("one"));
+        Assert.assertTrue(isEqual(ExpressionCompiler.evaluate(node, data()),
+                                  asColumn(TypeSystem.Type.LONG, -1L, 0L, 1L, 2L)));
+    }
+
+    @Test
+    public void testMixedComparison() {
+        // x * 2 + y < z
+        ExpressionCompiler.Node node = operation(BinaryOperation.LESS,
+                                                 operation(BinaryOperation.ADD,
+                                                           operation(BinaryOperation.MULTIPLY, column("x"), literal(2L)),
+                                                           column("y")),
+                                                 column("z"));
+        Column result = ExpressionCompiler.evaluate(node, data());
+        Assert.assertEquals(result.getType(), TypeSystem.Type.BOOLEAN);
+        Assert.assertTrue(isEqual(result, asColumn(TypeSystem.Type.BOOLEAN, true, false, true, false)));
+
+        node = operation(BinaryOperation.DIVIDE, column("z"), column("x"));
+        Column doubles = ExpressionCompiler.evaluate(node, data());
+        Assert.assertEquals(doubles.getType(), TypeSystem.Type.DOUBLE);
+        Assert.assertEquals(doubles.getDouble(0), 13.0);
+        Assert.assertEquals(doubles.getDouble(2), 12.5);
+    }
+
+    @Test
+    public void testLogicalOperations() {
+        ExpressionCompiler.Node greater = operation(BinaryOperation.GREATER_EQUAL, column("x"), literal(3L));
+        ExpressionCompiler.Node node = operation(BinaryOperation.OR, ExpressionCompiler.operation(UnaryOperation.NOT,
+                                                                                                  column("b")),
+                                                 greater);
+        Assert.assertTrue(isEqual(ExpressionCompiler.evaluate(node, data()),
+                                  asColumn(TypeSystem.Type.BOOLEAN, false, true, true, true)));
+
+        node = operation(BinaryOperation.AND, column("b"), greater);
+        Assert.assertTrue(isEqual(ExpressionCompiler.evaluate(node, data()),
+                                  asColumn(TypeSystem.Type.BOOLEAN, false, false, true, false)));
+
+        node = operation(BinaryOperation.NOT_EQUAL, column("b"), greater);
+        Assert.assertTrue(isEqual(ExpressionCompiler.evaluate(node, data()),
+                                  asColumn(TypeSystem.Type.BOOLEAN, true, false, false, true)));
+    }
+
+    @Test
+    public void testNotCompilable() {
+        Result data = data();
+        // Strings, nulls, missing columns, unsupported operations and mismatched types
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.EQUAL, column("s"), column("s")), data));
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.ADD, column("n"), column("x")), data));
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.ADD, column("m"), column("x")), data));
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.MODULUS, column("z"), column("x")), data));
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.ADD, column("b"), column("x")), data));
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.AND, column("x"), column("y")), data));
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.ADD, column("short"), column("x")), data));
+        Assert.assertNull(ExpressionCompiler.operation(UnaryOperation.NOT, null));
+        Assert.assertNull(ExpressionCompiler.operation(BinaryOperation.ADD, column("x"), null));
+        Assert.assertNull(ExpressionCompiler.evaluate(ExpressionCompiler.literal(new TypedObject("a", TypeSystem.Type.STRING)),
+                                                      data));
+        // Only literals
+        Assert.assertNull(ExpressionCompiler.evaluate(operation(BinaryOperation.ADD, literal(1L), column("one")), data));
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testLongDivisionByZero() {
+        ExpressionCompiler.evaluate(operation(BinaryOperation.DIVIDE, column("x"), literal(0L)), data());
+    }
+
+    @Test
+    public void testExpressionUsesCompiledNode() {
+        Expression x = new Expression(d -> {
+            throw new AssertionError("Should not be evaluated");
+        }, column("x"));
+        Expression compiled = new Expression(d -> null, operation(BinaryOperation.ADD, x.getNode(), literal(1L)));
+        Assert.assertTrue(isEqual(compiled.evaluate(data()), asColumn(TypeSystem.Type.LONG, 2L, 3L, 4L, 5L)));
+
+        // Falls back to evaluating the expression if it does not compile for the data
+        Expression s = new Expression(d -> d.getColumns().get("s"), column("s"));
+        Assert.assertTrue(isEqual(s.evaluate(data()), asColumn(TypeSystem.Type.STRING, "a", "b", "c", "d")));
+    }
+
+    @Test
+    public void testOperandsAreNotCompiledAgain() {
+        Result data = data();
+        AtomicInteger compiles = new AtomicInteger();
+        ExpressionCompiler.Node counted = compilation -> {
+            compiles.incrementAndGet();
+            return column("x").compile(compilation);
+        };
+
+        // A column read by itself is not compiled and not copied
+        Expression x = Expression.operand(d -> d.getColumns().get("x"), counted);
+        Assert.assertSame(x.evaluate(data), data.getColumns().get("x"));
+        Assert.assertEquals(compiles.get(), 0);
+
+        // x + 1 compiles by itself
+        Expression sum = new Expression(d -> TypeSystem.perform(BinaryOperation.ADD, x.evaluate(d, false),
+                                                                new Column(TypeSystem.asTypedObject(1L))),
+                                        operation(BinaryOperation.ADD, x.getNode(), literal(1L)));
+        Assert.assertTrue(isEqual(sum.evaluate(data), asColumn(TypeSystem.Type.LONG, 2L, 3L, 4L, 5L)));
+        Assert.assertEquals(compiles.get(), 1);
+
+        // (x + 1) == n does not compile since n has nulls, so it is tried once and x + 1 is not compiled again
+        Expression n = Expression.operand(d -> d.getColumns().get("n"), column("n"));
+        Expression equal = new Expression(d -> TypeSystem.perform(BinaryOperation.EQUAL, sum.evaluate(d, false),
+                                                                  n.evaluate(d, false)),
+                                          operation(BinaryOperation.EQUAL, sum.getNode(), n.getNode()));
+        compiles.set(0);
+        Assert.assertTrue(isEqual(equal.evaluate(data), asColumn(TypeSystem.Type.BOOLEAN, false, null, false, false)));
+        Assert.assertEquals(compiles.get(), 1);
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2017 Yahoo Inc.
+ * Licensed under the terms of the Apache 2 license. Please see LICENSE file in the project root for terms.
+ */
+package com.yahoo.validatar.assertion;
+
+import com.yahoo.validatar.common.Column;
+import com.yahoo.validatar.common.Operations;
+import com.yahoo.validatar.common.Result;
+import com.yahoo.validatar.common.TypeSystem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class JoinPlannerTest {
+    private static Expression column(String name) {
+        return new Expression(data -> data.getQualifiedColumn(name).copy());
+    }
+
+    private static Expression perform(Operations.BinaryOperation operation, Expression left, Expression right) {
+        return Expression.compose((a, b) -> TypeSystem.perform(operation, a, b), left, right);
+    }
+
+    private static JoinPlanner.Condition equality(String left, Result leftDataset, String right, Result rightDataset) {
+        Expression leftExpression = column(left);
+        Expression rightExpression = column(right);
+        return new JoinPlanner.Condition(perform(Operations.BinaryOperation.EQUAL, leftExpression, rightExpression),
+                                         leftExpression, Collections.singleton(leftDataset),
+                                         rightExpression, Collections.singleton(rightDataset));
+    }
+
+    private static JoinPlanner.Condition range(String left, Result leftDataset, Operations.BinaryOperation operation,
+                                               String right, Result rightDataset, List<Integer> rowsSeen) {
+        Expression leftExpression = column(left);
+        Expression rightExpression = column(right);
+        return new JoinPlanner.Condition(counting(perform(operation, leftExpression, rightExpression), rowsSeen),
+                                         operation,
+                                         new JoinPlanner.Operand(leftExpression, left, Collections.singleton(leftDataset)),
+                                         new JoinPlanner.Operand(rightExpression, right,
+                                                                 Collections.singleton(rightDataset)));
+    }
+
+    private static Result dataset(String namespace, String name, TypeSystem.Type type, Object... values) {
+        Result result = new Result(namespace);
+        result.addColumn(name, asColumn(type, values));
+        return result;
+    }
+
+    private static Expression counting(Expression expression, List<Integer> rowsSeen) {
+        return new Expression(data -> {
+            rowsSeen.add(data.numberOfRows());
+            return expression.evaluate(data);
+        });
+    }
+
+    private static Expression greaterThan(String name, long value) {
+        return perform(Operations.BinaryOperation.GREATER, column(name), Expression.wrap(TypeSystem.asTypedObject(value)));
+    }
+
+    private static List<Result> list(Result... results) {
+        return Arrays.asList(results);
+    }
+
+    @Test
+    public void testNoConditions() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        JoinPlanner planner = new JoinPlanner();
+        Assert.assertEquals(planner.join(list(a, b)).numberOfRows(), 6);
+        Assert.assertEquals(planner.join(list(a)).numberOfRows(), 2);
+        Assert.assertEquals(planner.join(list()).numberOfRows(), 0);
+    }
+
+    @Test
+    public void testEqualityAndFilter() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L, 4L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 4L, 3L, 2L, 9L);
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(equality("A.id", a, "B.id", b));
+        planner.add(new JoinPlanner.Condition(perform(Operations.BinaryOperation.GREATER, column("A.id"),
+                                                      Expression.wrap(TypeSystem.asTypedObject(2L)))));
+
+        Result expected = new Result();
+        expected.addColumn("A.id", asColumn(TypeSystem.Type.LONG, 3L, 4L));
+        expected.addColumn("B.id", asColumn(TypeSystem.Type.LONG, 3L, 4L));
+        Assert.assertTrue(isEqual(planner.join(list(a, b)), expected));
+    }
+
+    @Test
+    public void testEqualityWithDifferentTypes() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result b = dataset("B", "key", TypeSystem.Type.STRING, "3", "1");
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(equality("A.id", a, "B.key", b));
+
+        // Filtered from the product, which starts with the smaller B
+        Result expected = new Result();
+        expected.addColumn("A.id", asColumn(TypeSystem.Type.LONG, 3L, 1L));
+        expected.addColumn("B.key", asColumn(TypeSystem.Type.STRING, "3", "1"));
+        Assert.assertTrue(isEqual(planner.join(list(a, b)), expected));
+    }
+
+    @Test
+    public void testUnconnectedDataset() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 3L, 1L);
+        Result c = dataset("C", "flag", TypeSystem.Type.BOOLEAN, true, false);
+        JoinPlanner planner = new JoinPlanner();
+        // The reversed equality is the same join
+        planner.add(equality("B.id", b, "A.id", a));
+
+        Result expected = new Result();
+        expected.addColumn("A.id", asColumn(TypeSystem.Type.LONG, 1L, 1L, 3L, 3L));
+        expected.addColumn("B.id", asColumn(TypeSystem.Type.LONG, 1L, 1L, 3L, 3L));
+        expected.addColumn("C.flag", asColumn(TypeSystem.Type.BOOLEAN, true, false, true, false));
+        Assert.assertTrue(isEqual(planner.join(list(a, b, c)), expected));
+    }
+
+    @Test
+    public void testCyclicEqualities() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result c = dataset("C", "id", TypeSystem.Type.LONG, 1L, 2L, 4L);
+        a.addColumn("other", asColumn(TypeSystem.Type.LONG, 1L, 5L, 3L));
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(equality("A.id", a, "B.id", b));
+        planner.add(equality("B.id", b, "C.id", c));
+        // Only used after A, B and C are joined
+        planner.add(equality("C.id", c, "A.other", a));
+
+        Result joined = planner.join(list(a, b, c));
+        Assert.assertEquals(joined.numberOfRows(), 1);
+        Assert.assertEquals(joined.getColumn("C.id").get(0).data, 1L);
+    }
+
+    @Test
+    public void testEqualityOnMultipleDatasets() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 1L, 2L);
+        Result c = dataset("C", "id", TypeSystem.Type.LONG, 2L, 4L);
+        Expression left = perform(Operations.BinaryOperation.ADD, column("A.id"), column("B.id"));
+        Expression right = column("C.id");
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(new JoinPlanner.Condition(perform(Operations.BinaryOperation.EQUAL, left, right),
+                                              left, new HashSet<>(Arrays.asList(a, b)),
+                                              right, Collections.singleton(c)));
+
+        Result joined = planner.join(list(a, b, c));
+        Assert.assertEquals(joined.numberOfRows(), 2);
+        Assert.assertEquals(joined.getColumn("C.id").toString(), "[<2, LONG>, <4, LONG>]");
+    }
+
+    @Test
+    public void testConstantCondition() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(new JoinPlanner.Condition(Expression.wrap(TypeSystem.asTypedObject(true))));
+        Assert.assertEquals(planner.join(list(a)).numberOfRows(), 3);
+
+        planner.add(new JoinPlanner.Condition(Expression.wrap(new Column())));
+        Assert.assertEquals(planner.join(list(a)).numberOfRows(), 0);
+    }
+
+    @Test
+    public void testFiltersPushedDown() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L, 4L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 4L, 3L, 2L, 1L, 0L);
+        List<Integer> aRowsSeen = new ArrayList<>();
+        List<Integer> bRowsSeen = new ArrayList<>();
+        List<Integer> bothRowsSeen = new ArrayList<>();
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(new JoinPlanner.Condition(counting(greaterThan("A.id", 2L), aRowsSeen), Collections.singleton(a)));
+        planner.add(new JoinPlanner.Condition(counting(greaterThan("B.id", 0L), bRowsSeen), Collections.singleton(b)));
+        Expression bothGreater = perform(Operations.BinaryOperation.GREATER, column("A.id"), column("B.id"));
+        planner.add(new JoinPlanner.Condition(counting(bothGreater, bothRowsSeen), new HashSet<>(list(a, b))));
+
+        Result expected = new Result();
+        expected.addColumn("A.id", asColumn(TypeSystem.Type.LONG, 3L, 3L, 4L, 4L, 4L));
+        expected.addColumn("B.id", asColumn(TypeSystem.Type.LONG, 2L, 1L, 3L, 2L, 1L));
+        Assert.assertTrue(isEqual(planner.join(list(a, b)), expected));
+        // Each dataset is filtered on its own and only the product of the filtered datasets is filtered after
+        Assert.assertEquals(aRowsSeen, Collections.singletonList(4));
+        Assert.assertEquals(bRowsSeen, Collections.singletonList(5));
+        Assert.assertEquals(bothRowsSeen, Collections.singletonList(8));
+    }
+
+    @Test
+    public void testFiltersPushedDownAfterHashJoin() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 3L, 2L, 1L);
+        Result c = dataset("C", "id", TypeSystem.Type.LONG, 1L, 2L);
+        a.addColumn("value", asColumn(TypeSystem.Type.LONG, 10L, 20L, 30L));
+        b.addColumn("value", asColumn(TypeSystem.Type.LONG, 30L, 0L, 10L));
+        List<Integer> rowsSeen = new ArrayList<>();
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(equality("A.id", a, "B.id", b));
+        Expression sameValue = perform(Operations.BinaryOperation.EQUAL, column("A.value"), column("B.value"));
+        planner.add(new JoinPlanner.Condition(counting(sameValue, rowsSeen), new HashSet<>(list(a, b))));
+
+        Result joined = planner.join(list(a, b, c));
+        // A and B are filtered as soon as they are joined, before the product with C
+        Assert.assertEquals(rowsSeen, Collections.singletonList(3));
+        Assert.assertEquals(joined.numberOfRows(), 4);
+        Assert.assertEquals(joined.getColumn("A.id").toString(), "[<1, LONG>, <1, LONG>, <3, LONG>, <3, LONG>]");
+    }
+
+    @Test
+    public void testFilteringDatasetToNothing() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 1L, 2L);
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(new JoinPlanner.Condition(greaterThan("A.id", 5L), Collections.singleton(a)));
+        // These would fail if they were evaluated on no rows
+        Expression twice = perform(Operations.BinaryOperation.MULTIPLY, column("A.id"),
+                                   Expression.wrap(TypeSystem.asTypedObject(2L)));
+        planner.add(new JoinPlanner.Condition(perform(Operations.BinaryOperation.EQUAL, twice, column("B.id")),
+                                              twice, Collections.singleton(a), column("B.id"), Collections.singleton(b)));
+        planner.add(new JoinPlanner.Condition(greaterThan("A.id", 0L), Collections.singleton(a)));
+
+        Assert.assertEquals(planner.join(list(a, b)).numberOfRows(), 0);
+    }
+
+    @Test
+    public void testCheapestJoinFirst() {
+        Result a = new Result("A");
+        Result b = new Result("B");
+        Column aKey = new Column();
+        Column bKey = new Column();
+        Column bId = new Column();
+        for (long i = 0; i < 100; ++i) {
+            aKey.add(i % 2);
+            bKey.add(i % 2);
+            bId.add(i);
+        }
+        a.addColumn("key", aKey);
+        b.addColumn("key", bKey);
+        b.addColumn("id", bId);
+        Result c = dataset("C", "id", TypeSystem.Type.LONG, 5L, 6L);
+
+        // Joining A and B first would produce 5000 rows while joining B and C first only produces 2
+        List<Integer> rowsSeen = new ArrayList<>();
+        Expression aKeyExpression = column("A.key");
+        Expression bKeyExpression = counting(column("B.key"), rowsSeen);
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(new JoinPlanner.Condition(perform(Operations.BinaryOperation.EQUAL, aKeyExpression, bKeyExpression),
+                                              aKeyExpression, Collections.singleton(a),
+                                              bKeyExpression, Collections.singleton(b)));
+        planner.add(equality("B.id", b, "C.id", c));
+
+        Result joined = planner.join(list(a, b, c));
+        Assert.assertEquals(joined.numberOfRows(), 100);
+        // B.key was used to estimate the cost of joining A and B and then used on just the joined B and C
+        Assert.assertEquals(rowsSeen, Arrays.asList(100, 2));
+    }
+
+    @Test
+    public void testSmallestDatasetsMultipliedFirst() {
+        Result a = dataset("A", "id", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result b = dataset("B", "id", TypeSystem.Type.LONG, 4L);
+        JoinPlanner planner = new JoinPlanner();
+
+        Result expected = new Result();
+        expected.addColumn("A.id", asColumn(TypeSystem.Type.LONG, 1L, 2L, 3L));
+        expected.addColumn("B.id", asColumn(TypeSystem.Type.LONG, 4L, 4L, 4L));
+        Assert.assertTrue(isEqual(planner.join(list(a, b)), expected));
+        Assert.assertTrue(isEqual(planner.join(list(b, a)), expected));
+    }
+
+    @Test
+    public void testRangeJoinWithBothBounds() {
+        Result a = dataset("A", "ts", TypeSystem.Type.LONG, 5L, 1L, 7L, 3L);
+        Result b = dataset("B", "start", TypeSystem.Type.LONG, 0L, 4L);
+        b.addColumn("end", asColumn(TypeSystem.Type.LONG, 4L, 8L));
+        List<Integer> rowsSeen = new ArrayList<>();
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(range("A.ts", a, Operations.BinaryOperation.GREATER_EQUAL, "B.start", b, rowsSeen));
+        // Written the other way around but still an upper bound on A.ts
+        planner.add(range("B.end", b, Operations.BinaryOperation.GREATER, "A.ts", a, rowsSeen));
+
+        Result expected = new Result();
+        expected.addColumn("A.ts", asColumn(TypeSystem.Type.LONG, 5L, 1L, 7L, 3L));
+        expected.addColumn("B.start", asColumn(TypeSystem.Type.LONG, 4L, 0L, 4L, 0L));
+        expected.addColumn("B.end", asColumn(TypeSystem.Type.LONG, 8L, 4L, 8L, 4L));
+        Assert.assertTrue(isEqual(planner.join(list(a, b)), expected));
+        // Neither condition had to be evaluated on the joined rows
+        Assert.assertTrue(rowsSeen.isEmpty());
+    }
+
+    @Test
+    public void testRangeJoinWithBoundsOnTheOtherDataset() {
+        Result a = dataset("A", "low", TypeSystem.Type.LONG, 1L, 5L);
+        a.addColumn("high", asColumn(TypeSystem.Type.LONG, 3L, 6L));
+        Result b = dataset("B", "value", TypeSystem.Type.LONG, 6L, 2L, 3L);
+        List<Integer> rowsSeen = new ArrayList<>();
+        List<Integer> otherRowsSeen = new ArrayList<>();
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(range("A.high", a, Operations.BinaryOperation.GREATER_EQUAL, "B.value", b, rowsSeen));
+        planner.add(range("A.low", a, Operations.BinaryOperation.LESS_EQUAL, "B.value", b, rowsSeen));
+        planner.add(range("A.low", a, Operations.BinaryOperation.LESS, "B.value", b, otherRowsSeen));
+
+        Result joined = planner.join(list(a, b));
+        // In the order of the rows of B since that has the key
+        Assert.assertEquals(joined.getColumn("A.low").toString(), "[<5, LONG>, <1, LONG>, <1, LONG>]");
+        Assert.assertEquals(joined.getColumn("B.value").toString(), "[<6, LONG>, <2, LONG>, <3, LONG>]");
+        // The band is A.low <= B.value <= A.high, so only the other condition is used to filter the joined rows
+        Assert.assertTrue(rowsSeen.isEmpty());
+        Assert.assertEquals(otherRowsSeen, Collections.singletonList(3));
+    }
+
+    @Test
+    public void testRangeJoinWithDifferentTypes() {
+        Result a = dataset("A", "x", TypeSystem.Type.LONG, 1L, 2L, 3L);
+        Result b = dataset("B", "y", TypeSystem.Type.DOUBLE, 1.5);
+        List<Integer> rowsSeen = new ArrayList<>();
+        JoinPlanner planner = new JoinPlanner();
+        planner.add(range("A.x", a, Operations.BinaryOperation.GREATER, "B.y", b, rowsSeen));
+
+        Result joined = planner.join(list(a, b));
+        Assert.assertEquals(joined.getColumn("A.x").toString(), "[<2, LONG>, <3, LONG>]");
+        Assert.assertEquals(rowsSeen, Collections.singletonList(3));
+    }
+}
+
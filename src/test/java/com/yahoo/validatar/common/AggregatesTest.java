@@ -0,0 +1,166 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.Operations.AggregateOperation;
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class AggregatesTest {
+    private static TypedObject aggregate(AggregateOperation operation, Column column) {
+        return Aggregates.aggregate(operation, column);
+    }
+
+    @Test
+    public void testLongs() {
+        Column column = asColumn(Type.LONG, 4L, null, -2L, 4L, 7L);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT, column), TypeSystem.asTypedObject(4L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT_DISTINCT, column), TypeSystem.asTypedObject(3L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.SUM, column), TypeSystem.asTypedObject(13L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MIN, column), TypeSystem.asTypedObject(-2L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MAX, column), TypeSystem.asTypedObject(7L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.AVG, column), TypeSystem.asTypedObject(3.25)));
+        // The column is not changed by counting distinct values
+        Assert.assertTrue(isEqual(column, asColumn(Type.LONG, 4L, null, -2L, 4L, 7L)));
+    }
+
+    @Test
+    public void testDoubles() {
+        Column column = asColumn(Type.DOUBLE, 1.5, 2.5, 1.5, null, -1.0);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT, column), TypeSystem.asTypedObject(4L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT_DISTINCT, column), TypeSystem.asTypedObject(3L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.SUM, column), TypeSystem.asTypedObject(4.5)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MIN, column), TypeSystem.asTypedObject(-1.0)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MAX, column), TypeSystem.asTypedObject(2.5)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.AVG, column), TypeSystem.asTypedObject(1.125)));
+    }
+
+    @Test
+    public void testOtherTypes() {
+        Column strings = asColumn(Type.STRING, "b", "a", null, "b", "c");
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT, strings), TypeSystem.asTypedObject(4L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT_DISTINCT, strings), TypeSystem.asTypedObject(3L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MIN, strings), TypeSystem.asTypedObject("a")));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MAX, strings), TypeSystem.asTypedObject("c")));
+
+        Column decimals = asColumn(Type.DECIMAL, new BigDecimal("1"), new BigDecimal("1"), new BigDecimal("2"));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.SUM, decimals), TypeSystem.asTypedObject(new BigDecimal("4"))));
+        Assert.assertEquals(((BigDecimal) aggregate(AggregateOperation.AVG, decimals).data).compareTo(
+                            new BigDecimal("4").divide(new BigDecimal("3"), java.math.MathContext.DECIMAL128)), 0);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT_DISTINCT, decimals), TypeSystem.asTypedObject(2L)));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testUnsupportedSum() {
+        aggregate(AggregateOperation.SUM, asColumn(Type.BOOLEAN, true, false));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class,
+          expectedExceptionsMessageRegExp = "Unable to perform: SUM on STRING values")
+    public void testSumOfStrings() {
+        aggregate(AggregateOperation.SUM, asColumn(Type.STRING, "a", "b"));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class,
+          expectedExceptionsMessageRegExp = "Unable to perform: AVG on STRING values")
+    public void testAverageOfMixedValues() {
+        Column column = asColumn(Type.DECIMAL, new BigDecimal("1"));
+        column.add("1");
+        aggregate(AggregateOperation.AVG, column);
+    }
+
+    @Test
+    public void testOnlyNulls() {
+        Column column = asColumn(Type.LONG, null, null);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT, column), TypeSystem.asTypedObject(0L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT_DISTINCT, column), TypeSystem.asTypedObject(0L)));
+        Assert.assertNull(aggregate(AggregateOperation.SUM, column));
+        Assert.assertNull(aggregate(AggregateOperation.MAX, new Column()));
+    }
+
+    @Test
+    public void testConstantsAndSelections() {
+        Column constant = new ConstantColumn(TypeSystem.asTypedObject(3L), 4);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.SUM, constant), TypeSystem.asTypedObject(12L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT_DISTINCT, constant), TypeSystem.asTypedObject(1L)));
+
+        Column selected = asColumn(Type.LONG, 1L, null, 5L, 10L).select(new int[] {1, 3});
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.COUNT, selected), TypeSystem.asTypedObject(1L)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.MAX, selected), TypeSystem.asTypedObject(10L)));
+
+        Column result = TypeSystem.aggregate(AggregateOperation.MIN, asColumn(Type.LONG, 2L, 1L));
+        Assert.assertTrue(result.isScalar());
+        Assert.assertTrue(isEqual(result.first(), TypeSystem.asTypedObject(1L)));
+    }
+
+    @Test
+    public void testExists() {
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.EXISTS, asColumn(Type.BOOLEAN, false, null, true)),
+                                  TypeSystem.asTypedObject(true)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.EXISTS, asColumn(Type.BOOLEAN, false, null, false)),
+                                  TypeSystem.asTypedObject(false)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.EXISTS, asColumn(Type.BOOLEAN, (Object) null)),
+                                  TypeSystem.asTypedObject(false)));
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.EXISTS, new Column()), TypeSystem.asTypedObject(false)));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testExistsOfLongs() {
+        aggregate(AggregateOperation.EXISTS, asColumn(Type.LONG, 1L));
+    }
+
+    @Test
+    public void testApproxCountDistinct() {
+        Column longs = asColumn(Type.LONG, 4L, null, -2L, 4L, 7L);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.APPROX_COUNT_DISTINCT, longs), TypeSystem.asTypedObject(3L)));
+        Column doubles = asColumn(Type.DOUBLE, 1.5, 2.5, 1.5, null);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.APPROX_COUNT_DISTINCT, doubles), TypeSystem.asTypedObject(2L)));
+        Column strings = asColumn(Type.STRING, "b", "a", null, "b", "c");
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.APPROX_COUNT_DISTINCT, strings), TypeSystem.asTypedObject(3L)));
+        Column nulls = asColumn(Type.STRING, null, null);
+        Assert.assertTrue(isEqual(aggregate(AggregateOperation.APPROX_COUNT_DISTINCT, nulls), TypeSystem.asTypedObject(0L)));
+    }
+
+    @Test
+    public void testQuantile() {
+        Column longs = asColumn(Type.LONG, 40L, null, 10L, 30L, 20L);
+        Assert.assertTrue(isEqual(Aggregates.quantile(longs, 0.5), TypeSystem.asTypedObject(20.0)));
+        Assert.assertTrue(isEqual(Aggregates.quantile(longs, 0.75), TypeSystem.asTypedObject(30.0)));
+        Assert.assertTrue(isEqual(Aggregates.quantile(longs, 1.0), TypeSystem.asTypedObject(40.0)));
+        Column doubles = asColumn(Type.DOUBLE, 1.5, Double.NaN, 0.5);
+        Assert.assertTrue(isEqual(Aggregates.quantile(doubles, 0.0), TypeSystem.asTypedObject(0.5)));
+        Column decimals = asColumn(Type.DECIMAL, new BigDecimal("2.5"), new BigDecimal("1.5"));
+        Assert.assertTrue(isEqual(Aggregates.quantile(decimals, 1.0), TypeSystem.asTypedObject(2.5)));
+        Assert.assertNull(Aggregates.quantile(asColumn(Type.LONG, null, null), 0.5));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testQuantileOfStrings() {
+        Aggregates.quantile(asColumn(Type.STRING, "a"), 0.5);
+    }
+
+    @Test
+    public void testQuantileFraction() {
+        Column longs = asColumn(Type.LONG, 1L, 2L, 3L);
+        Assert.assertTrue(isEqual(TypeSystem.quantile(longs, asColumn(Type.LONG, 1L)).first(), TypeSystem.asTypedObject(3.0)));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testQuantileFractionOutOfRange() {
+        TypeSystem.quantile(asColumn(Type.LONG, 1L), asColumn(Type.DOUBLE, 1.5));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testQuantileFractionNotNumeric() {
+        TypeSystem.quantile(asColumn(Type.LONG, 1L), asColumn(Type.STRING, "0.5"));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testQuantileFractionNotScalar() {
+        TypeSystem.quantile(asColumn(Type.LONG, 1L, 2L), asColumn(Type.DOUBLE, 0.5, 0.5));
+    }
+}
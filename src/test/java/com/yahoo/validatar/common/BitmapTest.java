@@ -0,0 +1,60 @@
+package com.yahoo.validatar.common;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BitmapTest {
+    @Test
+    public void testEmpty() {
+        Bitmap bitmap = new Bitmap();
+        Assert.assertFalse(bitmap.get(0));
+        Assert.assertFalse(bitmap.get(63));
+        Assert.assertFalse(bitmap.get(1000));
+    }
+
+    @Test
+    public void testSettingAndGrowing() {
+        Bitmap bitmap = new Bitmap();
+        bitmap.set(0);
+        bitmap.set(63);
+        bitmap.set(64);
+        bitmap.set(1000);
+        Assert.assertTrue(bitmap.get(0));
+        Assert.assertFalse(bitmap.get(1));
+        Assert.assertTrue(bitmap.get(63));
+        Assert.assertTrue(bitmap.get(64));
+        Assert.assertFalse(bitmap.get(65));
+        Assert.assertFalse(bitmap.get(999));
+        Assert.assertTrue(bitmap.get(1000));
+    }
+
+    @Test
+    public void testCopy() {
+        Bitmap bitmap = new Bitmap();
+        bitmap.set(42);
+        Bitmap copy = bitmap.copy();
+        copy.set(84);
+        Assert.assertTrue(copy.get(42));
+        Assert.assertTrue(copy.get(84));
+        Assert.assertTrue(bitmap.get(42));
+        Assert.assertFalse(bitmap.get(84));
+    }
+
+    @Test
+    public void testWords() {
+        Assert.assertEquals(Bitmap.words(0), 0);
+        Assert.assertEquals(Bitmap.words(1), 1);
+        Assert.assertEquals(Bitmap.words(64), 1);
+        Assert.assertEquals(Bitmap.words(65), 2);
+
+        Bitmap bitmap = new Bitmap(new long[] {5L, 1L});
+        Assert.assertEquals(bitmap.wordCount(), 2);
+        Assert.assertEquals(bitmap.getWord(0), 5L);
+        Assert.assertEquals(bitmap.getWord(1), 1L);
+        Assert.assertEquals(bitmap.getWord(2), 0L);
+        Assert.assertTrue(bitmap.get(0));
+        Assert.assertTrue(bitmap.get(2));
+        Assert.assertTrue(bitmap.get(64));
+        Assert.assertEquals(bitmap.cardinality(), 3);
+    }
+}
@@ -4,6 +4,8 @@ import com.yahoo.validatar.common.TypeSystem.Type;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.Iterator;
 
 import static java.util.Arrays.asList;
@@ -119,4 +121,291 @@ public class ColumnTest {
 
         Assert.assertEquals(column.toString(), "[<42, LONG>, <84, LONG>]");
     }
+
+    @Test
+    public void testTypedAdditions() {
+        Column longs = new Column();
+        longs.add(42L);
+        longs.add(new TypedObject(84L, Type.LONG));
+        Assert.assertEquals(longs.getType(), Type.LONG);
+        Assert.assertEquals(longs.getLong(0), 42L);
+        Assert.assertEquals(longs.getLong(1), 84L);
+        Assert.assertEquals(longs.getData(1), 84L);
+        Assert.assertEquals(longs.get(0).type, Type.LONG);
+        Assert.assertEquals(longs.get(0).data, 42L);
+
+        Column doubles = new Column(Type.DOUBLE);
+        doubles.add(4.2);
+        doubles.add(new TypedObject(8.4, Type.DOUBLE));
+        Assert.assertEquals(doubles.getType(), Type.DOUBLE);
+        Assert.assertEquals(doubles.getDouble(0), 4.2);
+        Assert.assertEquals(doubles.getDouble(1), 8.4);
+        Assert.assertEquals(doubles.getData(0), 4.2);
+        Assert.assertEquals(doubles.get(1).type, Type.DOUBLE);
+        Assert.assertEquals(doubles.get(1).data, 8.4);
+
+        Column booleans = new Column();
+        booleans.add(true);
+        booleans.add(new TypedObject(false, Type.BOOLEAN));
+        Assert.assertEquals(booleans.getType(), Type.BOOLEAN);
+        Assert.assertTrue(booleans.getBoolean(0));
+        Assert.assertFalse(booleans.getBoolean(1));
+        Assert.assertEquals(booleans.getData(0), true);
+        Assert.assertEquals(booleans.get(1).type, Type.BOOLEAN);
+        Assert.assertEquals(booleans.get(1).data, false);
+
+        Column strings = new Column();
+        strings.add("foo");
+        strings.add(new TypedObject("bar", Type.STRING));
+        Assert.assertEquals(strings.getType(), Type.STRING);
+        Assert.assertEquals(strings.getData(0), "foo");
+        Assert.assertEquals(strings.get(1).type, Type.STRING);
+        Assert.assertEquals(strings.get(1).data, "bar");
+
+        Column decimals = new Column();
+        decimals.add(new BigDecimal("4.2"));
+        Assert.assertEquals(decimals.getType(), Type.DECIMAL);
+        Assert.assertEquals(decimals.get(0).type, Type.DECIMAL);
+        Assert.assertEquals(decimals.get(0).data, new BigDecimal("4.2"));
+
+        Column timestamps = new Column();
+        timestamps.add(new Timestamp(42L));
+        Assert.assertEquals(timestamps.getType(), Type.TIMESTAMP);
+        Assert.assertEquals(timestamps.get(0).type, Type.TIMESTAMP);
+        Assert.assertEquals(timestamps.get(0).data, new Timestamp(42L));
+    }
+
+    @Test
+    public void testManyValues() {
+        Column longs = new Column();
+        Column doubles = new Column();
+        Column booleans = new Column();
+        Column strings = new Column();
+        for (int i = 0; i < 200; ++i) {
+            longs.add((long) i);
+            doubles.add((double) i);
+            booleans.add(i % 3 == 0);
+            strings.add(String.valueOf(i));
+        }
+        for (int i = 0; i < 200; ++i) {
+            Assert.assertEquals(longs.getLong(i), (long) i);
+            Assert.assertEquals(doubles.getDouble(i), (double) i);
+            Assert.assertEquals(booleans.getBoolean(i), i % 3 == 0);
+            Assert.assertEquals(strings.getData(i), String.valueOf(i));
+        }
+        Assert.assertEquals(longs.getValues().size(), 200);
+    }
+
+    @Test
+    public void testMixedTypes() {
+        Column column = new Column(Type.LONG);
+        column.add(42L);
+        column.add((TypedObject) null);
+        Assert.assertEquals(column.getType(), Type.LONG);
+        column.add(true);
+        column.add(4.2);
+        column.add("foo");
+        Assert.assertNull(column.getType());
+        Assert.assertEquals(column.size(), 5);
+        Assert.assertEquals(column.getLong(0), 42L);
+        Assert.assertTrue(column.getBoolean(2));
+        Assert.assertNull(column.get(1));
+        Assert.assertNull(column.getData(1));
+        Assert.assertTrue(column.isNull(1));
+        Assert.assertEquals(column.nullCount(), 1);
+        Assert.assertEquals(column.getDouble(3), 4.2);
+        Assert.assertEquals(column.getData(4), "foo");
+    }
+
+    @Test
+    public void testEmptyTypedColumnSwitchesType() {
+        Column column = new Column(Type.LONG);
+        Assert.assertEquals(column.getType(), Type.LONG);
+        column.add(true);
+        Assert.assertEquals(column.getType(), Type.BOOLEAN);
+        column.add(false);
+        Assert.assertEquals(column.getType(), Type.BOOLEAN);
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testGettingWrongType() {
+        Column column = new Column();
+        column.add("foo");
+        column.getLong(0);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testGettingTypedOutOfRange() {
+        Column column = new Column();
+        column.add(42L);
+        column.getLong(1);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testAddingNullString() {
+        Column column = new Column();
+        column.add((String) null);
+    }
+
+    @Test
+    public void testTypedCopy() {
+        Column longs = new Column();
+        Column doubles = new Column();
+        Column booleans = new Column();
+        Column strings = new Column();
+        for (int i = 0; i < 100; ++i) {
+            longs.add((long) i);
+            doubles.add((double) i);
+            booleans.add(true);
+            strings.add("foo");
+        }
+        Column longsCopy = longs.copy();
+        Column doublesCopy = doubles.copy();
+        Column booleansCopy = booleans.copy();
+        Column stringsCopy = strings.copy();
+
+        longsCopy.add(-1L);
+        doublesCopy.add(-1.0);
+        booleansCopy.add(false);
+        stringsCopy.add("bar");
+
+        Assert.assertEquals(longs.size(), 100);
+        Assert.assertEquals(doubles.size(), 100);
+        Assert.assertEquals(booleans.size(), 100);
+        Assert.assertEquals(strings.size(), 100);
+        Assert.assertEquals(longsCopy.getLong(100), -1L);
+        Assert.assertEquals(doublesCopy.getDouble(100), -1.0);
+        Assert.assertFalse(booleansCopy.getBoolean(100));
+        Assert.assertEquals(stringsCopy.getData(100), "bar");
+        Assert.assertEquals(longsCopy.getType(), Type.LONG);
+    }
+
+    @Test
+    public void testNulls() {
+        Column column = new Column(Type.DOUBLE);
+        column.add(4.2);
+        column.add((TypedObject) null);
+        column.add(8.4);
+        Assert.assertEquals(column.getType(), Type.DOUBLE);
+        Assert.assertEquals(column.size(), 3);
+        Assert.assertEquals(column.nullCount(), 1);
+        Assert.assertFalse(column.isNull(0));
+        Assert.assertTrue(column.isNull(1));
+        Assert.assertNull(column.get(1));
+        Assert.assertEquals(column.getDouble(2), 8.4);
+        Assert.assertEquals(column.toString(), "[<4.2, DOUBLE>, null, <8.4, DOUBLE>]");
+    }
+
+    @Test
+    public void testLeadingNullsUseTypedStorage() {
+        Column column = new Column();
+        column.add((TypedObject) null);
+        column.add((TypedObject) null);
+        Assert.assertNull(column.getType());
+        column.add(42L);
+        Assert.assertEquals(column.getType(), Type.LONG);
+        Assert.assertEquals(column.nullCount(), 2);
+        Assert.assertTrue(column.isNull(0));
+        Assert.assertTrue(column.isNull(1));
+        Assert.assertEquals(column.getLong(2), 42L);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testCheckingNullOutOfRange() {
+        new Column().isNull(0);
+    }
+
+    @Test
+    public void testNullMask() {
+        Column column = new Column();
+        column.add("foo");
+        column.add((TypedObject) null);
+        column.add("bar");
+        Column mask = column.nullMask();
+        Assert.assertEquals(mask.getType(), Type.BOOLEAN);
+        Assert.assertEquals(mask.nullCount(), 0);
+        Assert.assertEquals(mask.toString(), "[<false, BOOLEAN>, <true, BOOLEAN>, <false, BOOLEAN>]");
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        Column column = new Column();
+        column.add(1L);
+        column.add(2L);
+
+        Column copy = column.copy();
+        Column another = column.copy();
+        Assert.assertTrue(copy.getStorage() == column.getStorage());
+        Assert.assertTrue(another.getStorage() == column.getStorage());
+
+        copy.add(3L);
+        Assert.assertFalse(copy.getStorage() == column.getStorage());
+        Assert.assertEquals(copy.size(), 3);
+        Assert.assertEquals(column.size(), 2);
+        Assert.assertEquals(another.size(), 2);
+
+        column.add(4L);
+        Assert.assertFalse(another.getStorage() == column.getStorage());
+        Assert.assertEquals(column.getLong(2), 4L);
+        Assert.assertEquals(copy.getLong(2), 3L);
+        Assert.assertEquals(another.size(), 2);
+
+        // Not shared anymore, so no more copies
+        Storage storage = column.getStorage();
+        column.add(5L);
+        Assert.assertTrue(column.getStorage() == storage);
+    }
+
+    @Test
+    public void testSelecting() {
+        Column column = new Column();
+        column.add(1L);
+        column.add(2L);
+        column.add((TypedObject) null);
+        Column selected = column.select(new int[] {2, 0, 0});
+        Assert.assertEquals(selected.size(), 3);
+        Assert.assertEquals(selected.getType(), Type.LONG);
+        Assert.assertEquals(selected.nullCount(), 1);
+        Assert.assertTrue(selected.isNull(0));
+        Assert.assertEquals(selected.getLong(2), 1L);
+        Assert.assertEquals(selected.toString(), "[null, <1, LONG>, <1, LONG>]");
+        // Views of views work too
+        Assert.assertEquals(selected.select(new int[] {1}).toString(), "[<1, LONG>]");
+
+        // Changes to either do not affect the other
+        column.add(4L);
+        selected.add(5L);
+        Assert.assertEquals(column.toString(), "[<1, LONG>, <2, LONG>, null, <4, LONG>]");
+        Assert.assertEquals(selected.toString(), "[null, <1, LONG>, <1, LONG>, <5, LONG>]");
+        Assert.assertEquals(selected.getType(), Type.LONG);
+
+        Assert.assertTrue(column.select(new int[0]).isEmpty());
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        long[] longs = {1L, 2L, 3L};
+        Column column = Column.ofLongs(longs, 3);
+        Assert.assertEquals(column.getType(), Type.LONG);
+        Assert.assertEquals(column.toString(), "[<1, LONG>, <2, LONG>, <3, LONG>]");
+        // The values are not copied either way
+        Assert.assertTrue(column.getLongs() == longs);
+
+        double[] doubles = {1.5, 2.5};
+        column = Column.ofDoubles(doubles, 2);
+        Assert.assertEquals(column.toString(), "[<1.5, DOUBLE>, <2.5, DOUBLE>]");
+        Assert.assertTrue(column.getDoubles() == doubles);
+
+        column = Column.ofBooleans(new long[] {5L}, 3);
+        Assert.assertEquals(column.toString(), "[<true, BOOLEAN>, <false, BOOLEAN>, <true, BOOLEAN>]");
+        Assert.assertTrue(column.getBooleans().test(2));
+        Assert.assertFalse(column.getBooleans().test(1));
+
+        // Other storage is read into a new array
+        column = new Column();
+        column.add(1L);
+        column.add("a");
+        Column selected = column.select(new int[] {0, 0});
+        Assert.assertEquals(selected.getLongs(), new long[] {1L, 1L});
+    }
 }
@@ -0,0 +1,84 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static com.yahoo.validatar.common.TypeSystem.asTypedObject;
+
+public class ConstantColumnTest {
+    @Test
+    public void testRepeatsValue() {
+        TypedObject value = asTypedObject(42L);
+        Column column = new ConstantColumn(value, 1000);
+        Assert.assertTrue(column.isConstant());
+        Assert.assertTrue(column.isVector());
+        Assert.assertEquals(column.size(), 1000);
+        Assert.assertEquals(column.getType(), Type.LONG);
+        Assert.assertEquals(column.nullCount(), 0);
+        Assert.assertFalse(column.isNull(999));
+        Assert.assertTrue(column.get(0) == value);
+        Assert.assertTrue(column.get(999) == value);
+        Assert.assertEquals(column.getLong(500), 42L);
+        Assert.assertEquals(column.getData(1), 42L);
+        Assert.assertEquals(column.getValues().size(), 1000);
+    }
+
+    @Test
+    public void testRepeatsNull() {
+        Column column = new ConstantColumn(null, 3);
+        Assert.assertTrue(column.isConstant());
+        Assert.assertNull(column.getType());
+        Assert.assertEquals(column.nullCount(), 3);
+        Assert.assertTrue(column.isNull(2));
+        Assert.assertNull(column.get(2));
+        Assert.assertEquals(column.nullMask().toString(), "[<true, BOOLEAN>, <true, BOOLEAN>, <true, BOOLEAN>]");
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testOutOfRangePosition() {
+        new ConstantColumn(asTypedObject(42L), 2).get(2);
+    }
+
+    @Test
+    public void testAddingStoresValues() {
+        Column column = new ConstantColumn(asTypedObject(4.2), 2);
+        column.add(8.4);
+        Assert.assertFalse(column.isConstant());
+        Assert.assertEquals(column.getType(), Type.DOUBLE);
+        Assert.assertEquals(column.size(), 3);
+        Assert.assertEquals(column.getDouble(1), 4.2);
+        Assert.assertEquals(column.getDouble(2), 8.4);
+
+        column = new ConstantColumn(null, 2);
+        column.add("foo");
+        Assert.assertEquals(column.getType(), Type.STRING);
+        Assert.assertTrue(column.isNull(1));
+        Assert.assertEquals(column.get(2).data, "foo");
+    }
+
+    @Test
+    public void testCopying() {
+        Column column = new ConstantColumn(asTypedObject(true), 2);
+        Column copy = column.copy();
+        Assert.assertTrue(copy.isConstant());
+        copy.add(false);
+        Assert.assertEquals(copy.toString(), "[<true, BOOLEAN>, <true, BOOLEAN>, <false, BOOLEAN>]");
+        Assert.assertTrue(column.isConstant());
+        Assert.assertEquals(column.size(), 2);
+    }
+
+    @Test
+    public void testBroadcasting() {
+        Column column = new Column(asTypedObject("foo"));
+        Assert.assertFalse(column.isConstant());
+        column.broadcast(4);
+        Assert.assertTrue(column.isConstant());
+        Assert.assertEquals(column.size(), 4);
+        Assert.assertEquals(column.get(3).data, "foo");
+        column.add("bar");
+        Assert.assertFalse(column.isConstant());
+        Assert.assertEquals(column.size(), 5);
+        Assert.assertEquals(column.get(4).data, "bar");
+    }
+}
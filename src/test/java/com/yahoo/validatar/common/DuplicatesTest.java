@@ -0,0 +1,58 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class DuplicatesTest {
+    private static Column booleans(Object... values) {
+        return asColumn(Type.BOOLEAN, values);
+    }
+
+    private static Column duplicates(Column... keys) {
+        return TypeSystem.duplicates(Arrays.asList(keys));
+    }
+
+    @Test
+    public void testLongs() {
+        Column column = asColumn(Type.LONG, 4L, null, 0L, 4L, null, 7L, 0L, 4L);
+        Assert.assertTrue(isEqual(duplicates(column), booleans(true, false, true, true, false, false, true, true)));
+        Assert.assertTrue(isEqual(duplicates(asColumn(Type.LONG, 1L, 2L, 3L)), booleans(false, false, false)));
+    }
+
+    @Test
+    public void testDoubles() {
+        Column column = asColumn(Type.DOUBLE, 1.5, 2.5, Double.NaN, 1.5, Double.NaN, -1.0);
+        Assert.assertTrue(isEqual(duplicates(column), booleans(true, false, true, true, true, false)));
+    }
+
+    @Test
+    public void testObjects() {
+        Column strings = asColumn(Type.STRING, "a", "b", null, "a", null);
+        Assert.assertTrue(isEqual(duplicates(strings), booleans(true, false, false, true, false)));
+        Column decimals = asColumn(Type.DECIMAL, new BigDecimal("1.0"), new BigDecimal("1.00"), new BigDecimal("10"));
+        Assert.assertTrue(isEqual(duplicates(decimals), booleans(true, true, false)));
+    }
+
+    @Test
+    public void testCompositeKeys() {
+        Column dates = asColumn(Type.STRING, "d1", "d1", "d2", "d2", "d1", null);
+        Column ids = asColumn(Type.LONG, 1L, 2L, 1L, 1L, 1L, 2L);
+        Assert.assertTrue(isEqual(duplicates(dates, ids), booleans(true, false, true, true, true, false)));
+        // A scalar key is the same for all the rows
+        Column constant = new ConstantColumn(TypeSystem.asTypedObject(1L), 1);
+        Assert.assertTrue(isEqual(duplicates(ids, constant), duplicates(ids)));
+        Assert.assertTrue(isEqual(duplicates(constant), booleans(false)));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testKeysOfDifferentSizes() {
+        duplicates(asColumn(Type.LONG, 1L, 2L, 3L), asColumn(Type.LONG, 1L, 2L));
+    }
+}
@@ -7,6 +7,9 @@ package com.yahoo.validatar.common;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.HashSet;
+import java.util.stream.IntStream;
+
 public class ExecutableTest {
     private class Annotated extends Executable {
     }
@@ -43,4 +46,13 @@ public class ExecutableTest {
         Assert.assertEquals(sample.getMessages().get(0), "Test 1");
         Assert.assertEquals(sample.getMessages().get(1), "Test 2");
     }
+
+    @Test
+    public void testConcurrentMessages() {
+        Annotated sample = new Annotated();
+
+        IntStream.range(0, 10000).parallel().forEach(i -> sample.addMessage("Test " + i));
+        Assert.assertEquals(sample.getMessages().size(), 10000);
+        Assert.assertEquals(new HashSet<>(sample.getMessages()).size(), 10000);
+    }
 }
@@ -0,0 +1,54 @@
+package com.yahoo.validatar.common;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+public class HyperLogLogTest {
+    @Test
+    public void testEmpty() {
+        Assert.assertEquals(new HyperLogLog().estimate(), 0L);
+    }
+
+    @Test
+    public void testSmallCountsAreClose() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; ++i) {
+            sketch.update(HyperLogLog.hash((long) i));
+            sketch.update(HyperLogLog.hash((long) i));
+        }
+        Assert.assertTrue(Math.abs(sketch.estimate() - 100) <= 2);
+    }
+
+    @Test
+    public void testLargeCounts() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 1000000; ++i) {
+            sketch.update(HyperLogLog.hash(i * 31));
+        }
+        // Four times the standard error
+        Assert.assertEquals(sketch.estimate(), 1000000.0, 1000000 * 0.065);
+    }
+
+    @Test
+    public void testStrings() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 50000; ++i) {
+            sketch.update(HyperLogLog.hash(TypeSystem.asTypedObject("user-" + i)));
+        }
+        Assert.assertEquals(sketch.estimate(), 50000.0, 50000 * 0.065);
+    }
+
+    @Test
+    public void testEqualValuesHaveEqualHashes() {
+        Assert.assertEquals(HyperLogLog.hash(TypeSystem.asTypedObject(42L)), HyperLogLog.hash(42L));
+        Assert.assertEquals(HyperLogLog.hash(TypeSystem.asTypedObject(4.2)), HyperLogLog.hash(4.2));
+        Assert.assertEquals(HyperLogLog.hash(Double.NaN), HyperLogLog.hash(0.0 / 0.0));
+        Assert.assertEquals(HyperLogLog.hash(TypeSystem.asTypedObject("foo")),
+                            HyperLogLog.hash(TypeSystem.asTypedObject(new String("foo"))));
+        Assert.assertEquals(HyperLogLog.hash(TypeSystem.asTypedObject(new BigDecimal("1.0"))),
+                            HyperLogLog.hash(TypeSystem.asTypedObject(new BigDecimal("1.00"))));
+        Assert.assertNotEquals(HyperLogLog.hash(1L), HyperLogLog.hash(2L));
+    }
+}
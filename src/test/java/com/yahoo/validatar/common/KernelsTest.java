@@ -0,0 +1,226 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.Operations.BinaryOperation;
+import com.yahoo.validatar.common.Operations.UnaryOperation;
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class KernelsTest {
+    private static Column longs(Object... values) {
+        return asColumn(Type.LONG, values);
+    }
+
+    private static Column doubles(Object... values) {
+        return asColumn(Type.DOUBLE, values);
+    }
+
+    private static Column booleans(Object... values) {
+        return asColumn(Type.BOOLEAN, values);
+    }
+
+    // A broadcast scalar that counts how many times its value is read
+    private static class CountingStorage extends Storages.ConstantStorage {
+        private int reads = 0;
+
+        CountingStorage(TypedObject value, int size) {
+            super(value, size);
+        }
+
+        @Override
+        public TypedObject get(int position) {
+            reads++;
+            return super.get(position);
+        }
+    }
+
+    private static void assertScalar(Column result, Column expected, CountingStorage scalar) {
+        Assert.assertTrue(isEqual(result, expected));
+        // The value is read once and not for every row
+        Assert.assertEquals(scalar.reads, 1);
+        scalar.reads = 0;
+    }
+
+    @Test
+    public void testLongArithmetic() {
+        Column a = longs(1L, 2L, null, 10L);
+        Column b = longs(3L, 0L, 4L, 3L);
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.ADD, a, b), longs(4L, 2L, null, 13L)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.SUBTRACT, a, b), longs(-2L, 2L, null, 7L)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.MULTIPLY, a, b), longs(3L, 0L, null, 30L)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.DIVIDE, b, a), longs(3L, 0L, null, 0L)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.MODULUS, b, a), longs(0L, 0L, null, 3L)));
+        Assert.assertNull(Kernels.longs(BinaryOperation.AND, a, b));
+        // The inputs are not changed
+        Assert.assertTrue(isEqual(a, longs(1L, 2L, null, 10L)));
+    }
+
+    @Test
+    public void testLongDivisionByNull() {
+        // The value stored for the null is never divided by
+        Column a = longs(1L, 2L);
+        Column b = longs(1L, null);
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.DIVIDE, a, b), longs(1L, null)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.MODULUS, a, b), longs(0L, null)));
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testLongDivisionByZero() {
+        Kernels.longs(BinaryOperation.DIVIDE, longs(1L, 2L), longs(1L, 0L));
+    }
+
+    @Test
+    public void testLongComparisons() {
+        Column a = longs(1L, 2L, null, 3L);
+        Column b = new ConstantColumn(TypeSystem.asTypedObject(2L), 4);
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.EQUAL, a, b), booleans(false, true, null, false)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.NOT_EQUAL, a, b), booleans(true, false, null, true)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.GREATER, a, b), booleans(false, false, null, true)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.LESS, a, b), booleans(true, false, null, false)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.GREATER_EQUAL, a, b), booleans(false, true, null, true)));
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.LESS_EQUAL, a, b), booleans(true, true, null, false)));
+    }
+
+    @Test
+    public void testDoubleOperations() {
+        Column a = doubles(1.5, 2.0, null, Double.NaN);
+        Column b = doubles(0.5, 2.0, 1.0, Double.NaN);
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.ADD, a, b), doubles(2.0, 4.0, null, Double.NaN)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.SUBTRACT, a, b), doubles(1.0, 0.0, null, Double.NaN)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.MULTIPLY, a, b), doubles(0.75, 4.0, null, Double.NaN)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.DIVIDE, a, b), doubles(3.0, 1.0, null, Double.NaN)));
+        // NaN is equal to itself, just like with Double#compareTo
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.EQUAL, a, b), booleans(false, true, null, true)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.NOT_EQUAL, a, b), booleans(true, false, null, false)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.GREATER, a, b), booleans(true, false, null, false)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.LESS, a, b), booleans(false, false, null, false)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.GREATER_EQUAL, a, b), booleans(true, true, null, true)));
+        Assert.assertTrue(isEqual(Kernels.doubles(BinaryOperation.LESS_EQUAL, a, b), booleans(false, true, null, true)));
+        Assert.assertNull(Kernels.doubles(BinaryOperation.MODULUS, a, b));
+    }
+
+    @Test
+    public void testBooleanOperations() {
+        Column a = booleans(true, true, true, false, false, false, null, null, null);
+        Column b = booleans(true, false, null, true, false, null, true, false, null);
+        Assert.assertTrue(isEqual(Kernels.booleans(BinaryOperation.AND, a, b),
+                                  booleans(true, false, null, false, false, false, null, false, null)));
+        Assert.assertTrue(isEqual(Kernels.booleans(BinaryOperation.OR, a, b),
+                                  booleans(true, true, true, true, false, null, true, null, null)));
+        Assert.assertTrue(isEqual(Kernels.booleans(BinaryOperation.EQUAL, a, b),
+                                  booleans(true, false, null, false, true, null, null, null, null)));
+        Assert.assertTrue(isEqual(Kernels.booleans(BinaryOperation.NOT_EQUAL, a, b),
+                                  booleans(false, true, null, true, false, null, null, null, null)));
+        Assert.assertNull(Kernels.booleans(BinaryOperation.GREATER, a, b));
+        Assert.assertTrue(isEqual(Kernels.not(a), booleans(false, false, false, true, true, true, null, null, null)));
+    }
+
+    @Test
+    public void testManyBooleans() {
+        Column a = new Column();
+        Column b = new Column();
+        for (int i = 0; i < 130; ++i) {
+            a.add(i % 2 == 0);
+            b.add(i % 3 == 0);
+        }
+        Column and = Kernels.booleans(BinaryOperation.AND, a, b);
+        Column or = Kernels.booleans(BinaryOperation.OR, a, b);
+        Column not = Kernels.not(a);
+        Assert.assertEquals(and.size(), 130);
+        Assert.assertEquals(and.nullCount(), 0);
+        for (int i = 0; i < 130; ++i) {
+            Assert.assertEquals(and.getBoolean(i), i % 6 == 0);
+            Assert.assertEquals(or.getBoolean(i), i % 2 == 0 || i % 3 == 0);
+            Assert.assertEquals(not.getBoolean(i), i % 2 != 0);
+        }
+        // The results can be added to like any other Column
+        not.add(true);
+        Assert.assertEquals(not.size(), 131);
+        Assert.assertTrue(not.getBoolean(130));
+    }
+
+    @Test
+    public void testResultsDoNotShareNulls() {
+        Column a = longs(1L, null);
+        Column sum = Kernels.longs(BinaryOperation.ADD, a, longs(1L, 1L));
+        sum.add((TypedObject) null);
+        sum.add(3L);
+        Assert.assertTrue(isEqual(sum, longs(2L, null, null, 3L)));
+        Assert.assertTrue(isEqual(a, longs(1L, null)));
+        Assert.assertEquals(a.nullCount(), 1);
+    }
+
+    @Test
+    public void testSelectedInputs() {
+        Column a = longs(1L, 2L, 3L, 4L).select(new int[] {3, 1});
+        Column b = booleans(true, null, false).select(new int[] {1, 0});
+        Assert.assertTrue(isEqual(Kernels.longs(BinaryOperation.MULTIPLY, a, a), longs(16L, 4L)));
+        Assert.assertTrue(isEqual(Kernels.not(b), booleans(null, false)));
+    }
+
+    @Test
+    public void testAsDoubles() {
+        Assert.assertTrue(isEqual(Kernels.asDoubles(longs(1L, null, 3L)), doubles(1.0, null, 3.0)));
+        Column constant = Kernels.asDoubles(new ConstantColumn(TypeSystem.asTypedObject(2L), 3));
+        Assert.assertTrue(constant.isConstant());
+        Assert.assertTrue(isEqual(constant, doubles(2.0, 2.0, 2.0)));
+    }
+
+    @Test
+    public void testTypeSystemUsesKernels() {
+        Column result = TypeSystem.perform(BinaryOperation.ADD, longs(1L, 2L), doubles(0.5, 0.5));
+        Assert.assertEquals(result.getType(), Type.DOUBLE);
+        Assert.assertTrue(isEqual(result, doubles(1.5, 2.5)));
+
+        result = TypeSystem.perform(BinaryOperation.LESS, doubles(0.5, 3.0), new Column(TypeSystem.asTypedObject(2L)));
+        Assert.assertTrue(isEqual(result, booleans(true, false)));
+
+        result = TypeSystem.perform(UnaryOperation.NOT, booleans(true, null));
+        Assert.assertTrue(isEqual(result, booleans(false, null)));
+    }
+
+    @Test
+    public void testScalarsAreNotExpanded() {
+        Column a = longs(1L, 6L, null, 10L);
+        CountingStorage storage = new CountingStorage(TypeSystem.asTypedObject(4L), 4);
+        Column scalar = new Column(storage);
+        assertScalar(Kernels.longs(BinaryOperation.ADD, a, scalar), longs(5L, 10L, null, 14L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.SUBTRACT, a, scalar), longs(-3L, 2L, null, 6L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.SUBTRACT, scalar, a), longs(3L, -2L, null, -6L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.MULTIPLY, scalar, a), longs(4L, 24L, null, 40L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.DIVIDE, a, scalar), longs(0L, 1L, null, 2L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.DIVIDE, scalar, a), longs(4L, 0L, null, 0L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.MODULUS, a, scalar), longs(1L, 2L, null, 2L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.MODULUS, scalar, a), longs(0L, 4L, null, 4L), storage);
+        assertScalar(Kernels.longs(BinaryOperation.LESS, a, scalar), booleans(true, false, null, false), storage);
+        assertScalar(Kernels.longs(BinaryOperation.LESS, scalar, a), booleans(false, true, null, true), storage);
+        assertScalar(Kernels.longs(BinaryOperation.GREATER_EQUAL, scalar, a), booleans(true, false, null, false),
+                     storage);
+        assertScalar(Kernels.longs(BinaryOperation.EQUAL, scalar, a), booleans(false, false, null, false), storage);
+
+        Column b = doubles(1.0, 8.0, null);
+        storage = new CountingStorage(TypeSystem.asTypedObject(2.0), 3);
+        scalar = new Column(storage);
+        assertScalar(Kernels.doubles(BinaryOperation.SUBTRACT, scalar, b), doubles(1.0, -6.0, null), storage);
+        assertScalar(Kernels.doubles(BinaryOperation.DIVIDE, b, scalar), doubles(0.5, 4.0, null), storage);
+        assertScalar(Kernels.doubles(BinaryOperation.DIVIDE, scalar, b), doubles(2.0, 0.25, null), storage);
+        assertScalar(Kernels.doubles(BinaryOperation.ADD, b, scalar), doubles(3.0, 10.0, null), storage);
+        assertScalar(Kernels.doubles(BinaryOperation.GREATER, scalar, b), booleans(true, false, null), storage);
+        assertScalar(Kernels.doubles(BinaryOperation.NOT_EQUAL, b, scalar), booleans(true, true, null), storage);
+
+        Column c = booleans(true, false, null);
+        storage = new CountingStorage(TypeSystem.asTypedObject(false), 3);
+        scalar = new Column(storage);
+        assertScalar(Kernels.booleans(BinaryOperation.AND, c, scalar), booleans(false, false, false), storage);
+        assertScalar(Kernels.booleans(BinaryOperation.OR, scalar, c), booleans(true, false, null), storage);
+        assertScalar(Kernels.booleans(BinaryOperation.EQUAL, scalar, c), booleans(false, true, null), storage);
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testLongDivisionByZeroScalar() {
+        Kernels.longs(BinaryOperation.DIVIDE, longs(1L, 2L), new ConstantColumn(TypeSystem.asTypedObject(0L), 2));
+    }
+}
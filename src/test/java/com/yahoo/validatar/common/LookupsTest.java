@@ -0,0 +1,74 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class LookupsTest {
+    private static Column booleans(Object... values) {
+        return asColumn(Type.BOOLEAN, values);
+    }
+
+    @Test
+    public void testLongSet() {
+        Lookups.LongSet set = new Lookups.LongSet(0);
+        for (long i = -1000; i < 1000; i += 2) {
+            set.add(i);
+            set.add(i);
+        }
+        for (long i = -1000; i < 1000; ++i) {
+            Assert.assertEquals(set.contains(i), i % 2 == 0);
+        }
+        Assert.assertFalse(set.contains(Long.MIN_VALUE));
+        set.add(Long.MIN_VALUE);
+        Assert.assertTrue(set.contains(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testLongs() {
+        Column values = asColumn(Type.LONG, 1L, 0L, null, 4L, 5L);
+        Column lookup = asColumn(Type.LONG, 5L, null, 0L, 3L, 5L);
+        Assert.assertTrue(isEqual(Lookups.in(values, lookup), booleans(false, true, null, false, true)));
+        // A constant is looked in like any other column
+        Assert.assertTrue(isEqual(Lookups.in(values, new ConstantColumn(TypeSystem.asTypedObject(4L), 2)),
+                                  booleans(false, false, null, true, false)));
+    }
+
+    @Test
+    public void testDoubles() {
+        Column values = asColumn(Type.DOUBLE, 1.0, 1.5, -0.0, Double.NaN);
+        Column lookup = asColumn(Type.DOUBLE, 1.5, 0.0, Double.NaN);
+        Assert.assertTrue(isEqual(Lookups.in(values, lookup), booleans(false, true, false, true)));
+        // Longs are widened to doubles
+        Assert.assertTrue(isEqual(Lookups.in(asColumn(Type.LONG, 1L, 2L), asColumn(Type.DOUBLE, 2.0)),
+                                  booleans(false, true)));
+        Assert.assertTrue(isEqual(Lookups.in(asColumn(Type.DOUBLE, 1.0, 2.5), asColumn(Type.LONG, 1L)),
+                                  booleans(true, false)));
+    }
+
+    @Test
+    public void testObjects() {
+        Column values = asColumn(Type.STRING, "a", null, "c");
+        Assert.assertTrue(isEqual(Lookups.in(values, asColumn(Type.STRING, "c", "b")), booleans(false, null, true)));
+
+        Column decimals = asColumn(Type.DECIMAL, new BigDecimal("1.0"), new BigDecimal("2"));
+        Assert.assertTrue(isEqual(Lookups.in(decimals, asColumn(Type.DECIMAL, new BigDecimal("1.00"))),
+                                  booleans(true, false)));
+        // Different types are unified
+        Assert.assertTrue(isEqual(Lookups.in(decimals, asColumn(Type.LONG, 2L)), booleans(false, true)));
+        Assert.assertTrue(isEqual(Lookups.in(asColumn(Type.STRING, "1", "x"), asColumn(Type.LONG, 1L)),
+                                  booleans(true, false)));
+    }
+
+    @Test
+    public void testEmptyLookup() {
+        Assert.assertTrue(isEqual(Lookups.in(asColumn(Type.LONG, 1L, 2L), new Column()), booleans(false, false)));
+        Assert.assertTrue(isEqual(Lookups.in(asColumn(Type.STRING, "a"), asColumn(Type.STRING, (Object) null)),
+                                  booleans(false)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.yahoo.validatar.common;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class QuantileSketchTest {
+    @Test
+    public void testEmpty() {
+        Assert.assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    @Test
+    public void testExactForFewValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 10; i >= 1; --i) {
+            sketch.update(i);
+        }
+        Assert.assertEquals(sketch.quantile(0.0), 1.0);
+        Assert.assertEquals(sketch.quantile(0.1), 1.0);
+        Assert.assertEquals(sketch.quantile(0.15), 2.0);
+        Assert.assertEquals(sketch.quantile(0.5), 5.0);
+        Assert.assertEquals(sketch.quantile(0.99), 10.0);
+        Assert.assertEquals(sketch.quantile(1.0), 10.0);
+    }
+
+    @Test
+    public void testManyValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        int count = 1000000;
+        for (int i = 0; i < count; ++i) {
+            // Shuffles 0 to count - 1 since 7919 is a prime that does not divide count
+            sketch.update(i * 7919L % count);
+        }
+        for (double fraction : new double[] {0.01, 0.25, 0.5, 0.9, 0.99}) {
+            // The rank is off by at most a few percent
+            Assert.assertEquals(sketch.quantile(fraction), fraction * count, 0.02 * count);
+        }
+        Assert.assertEquals(sketch.quantile(0.0), 0.0);
+        Assert.assertEquals(sketch.quantile(1.0), count - 1.0);
+    }
+
+    @Test
+    public void testDeterministic() {
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = 0; i < 10000; ++i) {
+            first.update(i % 977);
+            second.update(i % 977);
+        }
+        Assert.assertEquals(first.quantile(0.37), second.quantile(0.37));
+    }
+}
@@ -8,6 +8,8 @@ import com.yahoo.validatar.common.TypeSystem.Type;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -256,4 +258,356 @@ public class ResultTest {
         Assert.assertEquals(rowTen.get("A.a").data, Result.EMPTY_RESULT);
         Assert.assertEquals(rowTen.get("A.b").data, Result.EMPTY_RESULT);
     }
+
+    @Test
+    public void testCartesianProductWithNulls() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L, null));
+
+        Result second = new Result("B");
+        second.addColumn("c", asColumn(Type.STRING, null, "foo"));
+
+        Result actual = Result.cartesianProduct(asList(first, second));
+
+        Result expected = new Result();
+        expected.addColumn("A.a", asColumn(Type.LONG, 1L, 1L, null, null));
+        expected.addColumn("B.c", asColumn(Type.STRING, null, "foo", null, "foo"));
+
+        Assert.assertTrue(isEqual(actual, expected));
+        Assert.assertEquals(actual.getColumn("A.a").getType(), Type.LONG);
+        Assert.assertEquals(actual.getColumn("B.c").nullCount(), 2);
+    }
+
+    @Test
+    public void testJoinTreatsNullsAsFalse() {
+        Result result = new Result("A");
+        result.addColumn("a", asColumn(Type.LONG, 1L, 2L, 3L));
+
+        Result actual = Result.join(result, asColumn(Type.BOOLEAN, true, null, false));
+
+        Result expected = new Result();
+        expected.addColumn("A.a", asColumn(Type.LONG, 1L));
+        Assert.assertTrue(isEqual(actual, expected));
+    }
+
+    @Test
+    public void testJoinOnProduct() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L, 2L, 3L));
+        Result second = new Result("B");
+        second.addColumn("b", asColumn(Type.STRING, "foo", "bar"));
+        second.addColumn("c", asColumn(Type.LONG, 3L, 1L));
+
+        Result product = Result.cartesianProduct(asList(first, second));
+        Assert.assertEquals(product.numberOfRows(), 6);
+        Result actual = Result.join(product, asColumn(Type.BOOLEAN, false, true, false, false, true, null));
+
+        Result expected = new Result();
+        expected.addColumn("A.a", asColumn(Type.LONG, 1L, 3L));
+        expected.addColumn("B.b", asColumn(Type.STRING, "bar", "foo"));
+        expected.addColumn("B.c", asColumn(Type.LONG, 1L, 3L));
+        Assert.assertTrue(isEqual(actual, expected));
+        Assert.assertEquals(actual.getColumn("B.b").getType(), Type.STRING);
+
+        // The joined result can still be changed without affecting the original
+        actual.addColumnRow("A.a", new TypedObject(4L, Type.LONG));
+        Assert.assertEquals(actual.getColumn("A.a").size(), 3);
+        Assert.assertEquals(product.getColumn("A.a").size(), 6);
+        Assert.assertEquals(first.getColumn("a").size(), 3);
+    }
+
+    @Test
+    public void testCartesianProductWithEmptyInput() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L, 2L));
+        Result second = new Result("B");
+        second.addColumn("b");
+
+        Result actual = Result.cartesianProduct(asList(first, second));
+        Assert.assertEquals(actual.numberOfRows(), 0);
+        Assert.assertTrue(actual.hasColumn("A.a"));
+        Assert.assertTrue(actual.hasColumn("B.b"));
+    }
+
+    @Test
+    public void testHashJoin() {
+        Result first = new Result("A");
+        first.addColumn("id", asColumn(Type.LONG, 1L, 2L, 3L, null, 2L));
+        first.addColumn("name", asColumn(Type.STRING, "a", "b", "c", "d", "e"));
+        Result second = new Result("B");
+        second.addColumn("id", asColumn(Type.LONG, 2L, 4L, 1L, null, 2L, 2L));
+        second.addColumn("value", asColumn(Type.DOUBLE, 0.0, 1.0, 2.0, 3.0, 4.0, 5.0));
+
+        Result expected = new Result();
+        expected.addColumn("A.id", asColumn(Type.LONG, 1L, 2L, 2L, 2L, 2L, 2L, 2L));
+        expected.addColumn("A.name", asColumn(Type.STRING, "a", "b", "b", "b", "e", "e", "e"));
+        expected.addColumn("B.id", asColumn(Type.LONG, 1L, 2L, 2L, 2L, 2L, 2L, 2L));
+        expected.addColumn("B.value", asColumn(Type.DOUBLE, 2.0, 0.0, 4.0, 5.0, 0.0, 4.0, 5.0));
+
+        // Same rows in the same order no matter which side is hashed
+        Result actual = Result.hashJoin(first, singletonList(first.getColumn("id")),
+                                        second, singletonList(second.getColumn("id")));
+        Assert.assertTrue(isEqual(actual, expected));
+        Result product = Result.cartesianProduct(asList(first, second));
+        Result filtered = Result.join(product, TypeSystem.perform(Operations.BinaryOperation.EQUAL,
+                                                                  product.getColumn("A.id"), product.getColumn("B.id")));
+        Assert.assertTrue(isEqual(filtered, expected));
+
+        first.addColumnRow("id", new TypedObject(5L, Type.LONG));
+        first.addColumnRow("name", new TypedObject("f", Type.STRING));
+        first.addColumnRow("id", new TypedObject(6L, Type.LONG));
+        first.addColumnRow("name", new TypedObject("g", Type.STRING));
+        actual = Result.hashJoin(first, singletonList(first.getColumn("id")),
+                                 second, singletonList(second.getColumn("id")));
+        Assert.assertTrue(isEqual(actual, expected));
+    }
+
+    @Test
+    public void testHashJoinMultipleKeys() {
+        Result first = new Result("A");
+        first.addColumn("x", asColumn(Type.STRING, "a", "a", "b", null));
+        first.addColumn("y", asColumn(Type.DECIMAL, new BigDecimal("1.0"), new BigDecimal("2"), new BigDecimal("1"),
+                                      new BigDecimal("1")));
+        Result second = new Result("B");
+        second.addColumn("x", asColumn(Type.STRING, "a", "b", "a"));
+        second.addColumn("y", asColumn(Type.DECIMAL, new BigDecimal("1.00"), new BigDecimal("2"), null));
+
+        Result actual = Result.hashJoin(first, asList(first.getColumn("x"), first.getColumn("y")),
+                                        second, asList(second.getColumn("x"), second.getColumn("y")));
+        Result expected = new Result();
+        expected.addColumn("A.x", asColumn(Type.STRING, "a"));
+        expected.addColumn("A.y", asColumn(Type.DECIMAL, new BigDecimal("1.0")));
+        expected.addColumn("B.x", asColumn(Type.STRING, "a"));
+        expected.addColumn("B.y", asColumn(Type.DECIMAL, new BigDecimal("1.00")));
+        Assert.assertTrue(isEqual(actual, expected));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*different size.*")
+    public void testHashJoinWrongKeySize() {
+        Result first = new Result("A");
+        first.addColumn("id", asColumn(Type.LONG, 1L, 2L));
+        Result.hashJoin(first, singletonList(asColumn(Type.LONG, 1L)), first, singletonList(first.getColumn("id")));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*same non-zero number.*")
+    public void testHashJoinNoKeys() {
+        Result first = new Result("A");
+        first.addColumn("id", asColumn(Type.LONG, 1L, 2L));
+        Result.hashJoin(first, emptyList(), first, emptyList());
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*same non-zero number.*")
+    public void testHashJoinDifferentNumberOfKeys() {
+        Result first = new Result("A");
+        first.addColumn("id", asColumn(Type.LONG, 1L, 2L));
+        Result.hashJoin(first, singletonList(first.getColumn("id")), first, emptyList());
+    }
+
+    @Test
+    public void testJoinWithCondition() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L, 2L, 3L, null));
+        Result second = new Result("B");
+        second.addColumn("b", asColumn(Type.LONG, 3L, 1L, 2L));
+
+        Result actual = Result.join(first, second, r -> TypeSystem.perform(Operations.BinaryOperation.LESS,
+                                                                           r.getColumn("A.a"), r.getColumn("B.b")));
+        Result expected = new Result();
+        expected.addColumn("A.a", asColumn(Type.LONG, 1L, 1L, 2L));
+        expected.addColumn("B.b", asColumn(Type.LONG, 3L, 2L, 3L));
+        Assert.assertTrue(isEqual(actual, expected));
+
+        Result all = Result.join(first, second, null);
+        Assert.assertTrue(isEqual(all, Result.cartesianProduct(asList(first, second))));
+        Result none = Result.join(first, second, r -> new Column(new TypedObject(false, Type.BOOLEAN)));
+        Assert.assertEquals(none.numberOfRows(), 0);
+        Assert.assertTrue(none.hasColumn("A.a"));
+        Assert.assertTrue(none.hasColumn("B.b"));
+    }
+
+    @Test
+    public void testJoinWithConditionInPartitions() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 4L, 0L, 2L));
+        Result second = new Result("B");
+        Column b = new Column();
+        for (long i = 0; i < Result.PARTITION_SIZE; ++i) {
+            b.add(i);
+        }
+        second.addColumn("b", b);
+
+        // Each row of the first result is in a partition of its own
+        Result actual = Result.join(first, second, r -> TypeSystem.perform(Operations.BinaryOperation.EQUAL,
+                                                                           r.getColumn("A.a"), r.getColumn("B.b")));
+        Result expected = new Result();
+        expected.addColumn("A.a", asColumn(Type.LONG, 4L, 0L, 2L));
+        expected.addColumn("B.b", asColumn(Type.LONG, 4L, 0L, 2L));
+        Assert.assertTrue(isEqual(actual, expected));
+    }
+
+    @Test
+    public void testJoinWithEmptyInput() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L));
+        Result second = new Result("B");
+        second.addColumn("b", new Column());
+
+        Result actual = Result.join(first, second, r -> new Column(new TypedObject(true, Type.BOOLEAN)));
+        Assert.assertEquals(actual.numberOfRows(), 0);
+        Assert.assertTrue(actual.hasColumn("A.a"));
+        Assert.assertTrue(actual.hasColumn("B.b"));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*each joined row.*")
+    public void testJoinWithWrongSizeCondition() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L, 2L));
+        Result second = new Result("B");
+        second.addColumn("b", asColumn(Type.LONG, 1L, 2L));
+        Result.join(first, second, r -> asColumn(Type.BOOLEAN, true, false));
+    }
+
+    @Test
+    public void testRangeJoin() {
+        Result first = new Result("A");
+        first.addColumn("ts", asColumn(Type.LONG, 5L, 1L, null, 3L, 3L, 9L));
+        Result second = new Result("B");
+        second.addColumn("start", asColumn(Type.LONG, 3L, 0L, 1L, null, 9L));
+        second.addColumn("end", asColumn(Type.LONG, 9L, 3L, 1L, 4L, 5L));
+
+        Result actual = Result.rangeJoin(first, first.getColumn("ts"), second, second.getColumn("start"), true,
+                                         second.getColumn("end"), false);
+        // Same as filtering the product
+        Result product = Result.cartesianProduct(asList(first, second));
+        Column afterStart = TypeSystem.perform(Operations.BinaryOperation.GREATER_EQUAL, product.getColumn("A.ts"),
+                                               product.getColumn("B.start"));
+        Column beforeEnd = TypeSystem.perform(Operations.BinaryOperation.LESS, product.getColumn("A.ts"),
+                                              product.getColumn("B.end"));
+        Result expected = Result.join(product, TypeSystem.perform(Operations.BinaryOperation.AND, afterStart, beforeEnd));
+        Assert.assertEquals(expected.numberOfRows(), 4);
+        Assert.assertTrue(isEqual(actual, expected));
+
+        actual = Result.rangeJoin(first, first.getColumn("ts"), second, second.getColumn("start"), false,
+                                  second.getColumn("end"), true);
+        Assert.assertEquals(actual.getColumn("A.ts").toString(),
+                            "[<5, LONG>, <1, LONG>, <3, LONG>, <3, LONG>, <9, LONG>]");
+        Assert.assertEquals(actual.getColumn("B.start").toString(),
+                            "[<3, LONG>, <0, LONG>, <0, LONG>, <0, LONG>, <3, LONG>]");
+    }
+
+    @Test
+    public void testRangeJoinWithOneBound() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.STRING, "b", "a", "c"));
+        Result second = new Result("B");
+        second.addColumn("b", asColumn(Type.STRING, "b", "z"));
+
+        Result actual = Result.rangeJoin(first, first.getColumn("a"), second, null, false, second.getColumn("b"), true);
+        Assert.assertEquals(actual.getColumn("A.a").toString(),
+                            "[<b, STRING>, <b, STRING>, <a, STRING>, <a, STRING>, <c, STRING>]");
+        Assert.assertEquals(actual.getColumn("B.b").toString(),
+                            "[<b, STRING>, <z, STRING>, <b, STRING>, <z, STRING>, <z, STRING>]");
+
+        actual = Result.rangeJoin(first, first.getColumn("a"), second, second.getColumn("b"), false, null, false);
+        Assert.assertEquals(actual.getColumn("A.a").toString(), "[<c, STRING>]");
+        Assert.assertEquals(actual.getColumn("B.b").toString(), "[<b, STRING>]");
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*at least one bound.*")
+    public void testRangeJoinWithoutBounds() {
+        Result first = new Result("A");
+        first.addColumn("a", asColumn(Type.LONG, 1L));
+        Result.rangeJoin(first, first.getColumn("a"), first, null, true, null, true);
+    }
+
+    @Test
+    public void testGroupBy() {
+        Result result = new Result("A");
+        result.addColumn("country", asColumn(Type.STRING, "us", "uk", null, "us", "uk", null));
+        result.addColumn("day", asColumn(Type.LONG, 1L, 1L, 1L, 2L, 1L, 1L));
+        result.addColumn("value", asColumn(Type.LONG, 1L, 2L, 3L, 4L, 5L, 6L));
+
+        List<Integer> sizes = new ArrayList<>();
+        Column actual = Result.groupBy(result, singletonList(result.getColumn("country")), group -> {
+            sizes.add(group.numberOfRows());
+            Column values = group.getColumn("A.value");
+            return asColumn(Type.BOOLEAN, values.getLong(0) < values.getLong(values.size() - 1));
+        });
+        // The groups are in the order of their first rows and nulls are a group
+        Assert.assertEquals(sizes, asList(2, 2, 2));
+        Assert.assertTrue(isEqual(actual, asColumn(Type.BOOLEAN, true, true, true, true, true, true)));
+
+        actual = Result.groupBy(result, asList(result.getColumn("country"), result.getColumn("day")), group -> {
+            Column values = group.getColumn("A.value");
+            Column checked = new Column();
+            for (int i = 0; i < values.size(); ++i) {
+                checked.add(i == 0 ? null : TypeSystem.asTypedObject(values.getLong(i) > 4L));
+            }
+            return checked;
+        });
+        Assert.assertTrue(isEqual(actual, asColumn(Type.BOOLEAN, null, null, null, null, true, true)));
+    }
+
+    @Test
+    public void testGroupByNoRows() {
+        Result result = new Result("A");
+        result.addColumn("a", new Column());
+        Column actual = Result.groupBy(result, singletonList(result.getColumn("a")), group -> {
+            throw new AssertionError("There are no groups to check");
+        });
+        Assert.assertEquals(actual.size(), 0);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*keys of a different size")
+    public void testGroupByWithKeysOfDifferentSizes() {
+        Result result = new Result("A");
+        result.addColumn("a", asColumn(Type.LONG, 1L, 2L));
+        Result.groupBy(result, singletonList(asColumn(Type.LONG, 1L)), group -> asColumn(Type.BOOLEAN, true));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testGroupByWithConditionThatIsNotBoolean() {
+        Result result = new Result("A");
+        result.addColumn("a", asColumn(Type.LONG, 1L, 2L));
+        Result.groupBy(result, singletonList(result.getColumn("a")), group -> group.getColumn("A.a"));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*each of its rows")
+    public void testGroupByWithConditionOfTheWrongSize() {
+        Result result = new Result("A");
+        result.addColumn("a", asColumn(Type.LONG, 1L, 1L, 1L));
+        Result.groupBy(result, singletonList(result.getColumn("a")), group -> asColumn(Type.BOOLEAN, true, false));
+    }
+
+    @Test
+    public void testOrderBy() {
+        Result result = new Result("A");
+        result.addColumn("dt", asColumn(Type.STRING, "d3", null, "d1", "d2", "d1"));
+        result.addColumn("hour", asColumn(Type.LONG, 1L, 1L, 2L, 1L, 1L));
+
+        List<String> order = new ArrayList<>();
+        Column actual = Result.orderBy(result, asList(result.getColumn("dt"), result.getColumn("hour")), sorted -> {
+            Column hours = sorted.getColumn("A.hour");
+            Column checked = new Column();
+            for (int i = 0; i < hours.size(); ++i) {
+                order.add(sorted.getColumn("A.dt").get(i) + ":" + hours.getLong(i));
+                checked.add(i % 2 == 0);
+            }
+            return checked;
+        });
+        // Nulls are first and the values are put back in the positions of the rows
+        Assert.assertEquals(order, asList("null:1", "<d1, STRING>:1", "<d1, STRING>:2", "<d2, STRING>:1",
+                                          "<d3, STRING>:1"));
+        Assert.assertTrue(isEqual(actual, asColumn(Type.BOOLEAN, true, true, true, false, false)));
+
+        actual = Result.orderBy(result, singletonList(result.getColumn("dt")), sorted -> asColumn(Type.BOOLEAN, true));
+        Assert.assertTrue(isEqual(actual, asColumn(Type.BOOLEAN, true)));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*keys of a different size")
+    public void testOrderByWithKeysOfDifferentSizes() {
+        Result result = new Result("A");
+        result.addColumn("a", asColumn(Type.LONG, 1L, 2L));
+        Result.orderBy(result, singletonList(asColumn(Type.LONG, 1L, 2L, 3L)), sorted -> asColumn(Type.BOOLEAN, true));
+    }
 }
@@ -0,0 +1,301 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+public class StoragesTest {
+    @Test
+    public void testCreation() {
+        Assert.assertTrue(Storages.create(Type.LONG) instanceof Storages.LongStorage);
+        Assert.assertTrue(Storages.create(Type.DOUBLE) instanceof Storages.DoubleStorage);
+        Assert.assertTrue(Storages.create(Type.BOOLEAN) instanceof Storages.BooleanStorage);
+        Assert.assertTrue(Storages.create(Type.STRING) instanceof Storages.DictionaryStorage);
+        Assert.assertTrue(Storages.create(Type.DECIMAL) instanceof Storages.ObjectStorage);
+        Assert.assertTrue(Storages.create(Type.TIMESTAMP) instanceof Storages.ObjectStorage);
+        Assert.assertTrue(Storages.create(null) instanceof Storages.MixedStorage);
+        Assert.assertNotNull(new Storages());
+    }
+
+    @Test
+    public void testAccepts() {
+        Assert.assertTrue(Storages.create(Type.LONG).accepts(Type.LONG));
+        Assert.assertFalse(Storages.create(Type.LONG).accepts(Type.DOUBLE));
+        Assert.assertTrue(Storages.create(Type.DOUBLE).accepts(Type.DOUBLE));
+        Assert.assertFalse(Storages.create(Type.DOUBLE).accepts(Type.LONG));
+        Assert.assertTrue(Storages.create(Type.BOOLEAN).accepts(Type.BOOLEAN));
+        Assert.assertFalse(Storages.create(Type.BOOLEAN).accepts(Type.STRING));
+        Assert.assertTrue(Storages.create(Type.STRING).accepts(Type.STRING));
+        Assert.assertFalse(Storages.create(Type.STRING).accepts(Type.DECIMAL));
+        Assert.assertTrue(Storages.create(null).accepts(null));
+        Assert.assertTrue(Storages.create(null).accepts(Type.TIMESTAMP));
+    }
+
+    @Test
+    public void testMixedStorage() {
+        Storage storage = Storages.create(null);
+        storage.add(42L);
+        storage.add(4.2);
+        storage.add(true);
+        storage.add(new BigDecimal("4.2"), Type.DECIMAL);
+        storage.add((TypedObject) null);
+
+        Assert.assertNull(storage.getType());
+        Assert.assertEquals(storage.size(), 5);
+        Assert.assertEquals(storage.getLong(0), 42L);
+        Assert.assertEquals(storage.getDouble(1), 4.2);
+        Assert.assertTrue(storage.getBoolean(2));
+        Assert.assertEquals(storage.getData(3), new BigDecimal("4.2"));
+        Assert.assertEquals(storage.get(3).type, Type.DECIMAL);
+        Assert.assertNull(storage.getData(4));
+
+        Storage copy = storage.copy();
+        Assert.assertEquals(copy.size(), 5);
+        // TypedObjects are immutable and are shared
+        Assert.assertTrue(copy.get(0) == storage.get(0));
+        Assert.assertNull(copy.get(4));
+        copy.add(1L);
+        Assert.assertEquals(copy.size(), 6);
+        Assert.assertEquals(storage.size(), 5);
+    }
+
+    @Test
+    public void testDemotion() {
+        Storage storage = Storages.create(Type.DOUBLE);
+        storage.add(4.2);
+        storage.add(new TypedObject(8.4, Type.DOUBLE));
+
+        Storage demoted = Storages.demote(storage);
+        Assert.assertNull(demoted.getType());
+        Assert.assertEquals(demoted.size(), 2);
+        Assert.assertEquals(demoted.getDouble(0), 4.2);
+        Assert.assertEquals(demoted.getDouble(1), 8.4);
+    }
+
+    @Test
+    public void testNullsInTypedStorages() {
+        for (Type type : Type.values()) {
+            Storage storage = Storages.create(type, 2);
+            Assert.assertTrue(storage.accepts(null));
+            Assert.assertEquals(storage.size(), 2);
+            Assert.assertEquals(storage.nullCount(), 2);
+            Assert.assertTrue(storage.isNull(0));
+            Assert.assertTrue(storage.isNull(1));
+            Assert.assertNull(storage.get(0));
+            Assert.assertNull(storage.getData(1));
+        }
+    }
+
+    @Test
+    public void testNullsAmongValues() {
+        Storage longs = Storages.create(Type.LONG);
+        longs.add(1L);
+        longs.add((TypedObject) null);
+        longs.add(3L);
+        Storage doubles = Storages.create(Type.DOUBLE);
+        doubles.add(1.0);
+        doubles.add((TypedObject) null);
+        doubles.add(3.0);
+        Storage booleans = Storages.create(Type.BOOLEAN);
+        booleans.add(true);
+        booleans.add((TypedObject) null);
+        booleans.add(true);
+        Storage strings = Storages.create(Type.STRING);
+        strings.add("1", Type.STRING);
+        strings.add((TypedObject) null);
+        strings.add("3", Type.STRING);
+
+        for (Storage storage : new Storage[] {longs, doubles, booleans, strings}) {
+            Assert.assertEquals(storage.size(), 3);
+            Assert.assertEquals(storage.nullCount(), 1);
+            Assert.assertFalse(storage.isNull(0));
+            Assert.assertTrue(storage.isNull(1));
+            Assert.assertFalse(storage.isNull(2));
+            Assert.assertNotNull(storage.get(2));
+            Assert.assertNull(storage.get(1));
+
+            Storage copy = storage.copy();
+            copy.add((TypedObject) null);
+            Assert.assertEquals(copy.nullCount(), 2);
+            Assert.assertTrue(copy.isNull(1));
+            Assert.assertTrue(copy.isNull(3));
+            Assert.assertEquals(storage.nullCount(), 1);
+            Assert.assertEquals(storage.size(), 3);
+        }
+        Assert.assertEquals(longs.getLong(2), 3L);
+        Assert.assertEquals(doubles.getDouble(2), 3.0);
+        Assert.assertTrue(booleans.getBoolean(2));
+        Assert.assertFalse(booleans.getBoolean(1));
+        Assert.assertEquals(strings.getData(2), "3");
+    }
+
+    @Test
+    public void testNullMasks() {
+        Storage longs = Storages.create(Type.LONG);
+        longs.add(1L);
+        longs.add((TypedObject) null);
+        Storage mask = Storages.nulls(longs);
+        Assert.assertEquals(mask.getType(), Type.BOOLEAN);
+        Assert.assertEquals(mask.size(), 2);
+        Assert.assertEquals(mask.nullCount(), 0);
+        Assert.assertFalse(mask.getBoolean(0));
+        Assert.assertTrue(mask.getBoolean(1));
+
+        Storage noNulls = Storages.create(Type.STRING);
+        noNulls.add("foo", Type.STRING);
+        mask = Storages.nulls(noNulls);
+        Assert.assertEquals(mask.size(), 1);
+        Assert.assertFalse(mask.getBoolean(0));
+
+        Storage mixed = Storages.create(null);
+        mixed.add((TypedObject) null);
+        mixed.add(true);
+        mixed.add(1L);
+        Assert.assertEquals(mixed.nullCount(), 1);
+        mask = Storages.nulls(mixed);
+        Assert.assertEquals(mask.size(), 3);
+        Assert.assertTrue(mask.getBoolean(0));
+        Assert.assertFalse(mask.getBoolean(1));
+        Assert.assertFalse(mask.getBoolean(2));
+    }
+
+    @Test
+    public void testDictionaryEncoding() {
+        Storages.DictionaryStorage storage = new Storages.DictionaryStorage();
+        for (int i = 0; i < 1000; ++i) {
+            storage.add(i % 3 == 0 ? "foo" : "bar", Type.STRING);
+        }
+        storage.add((TypedObject) null);
+        Assert.assertTrue(storage.isEncoded());
+        Assert.assertEquals(storage.size(), 1001);
+        Assert.assertEquals(storage.dictionarySize(), 2);
+        Assert.assertEquals(storage.getData(0), "foo");
+        Assert.assertEquals(storage.getData(1), "bar");
+        Assert.assertEquals(storage.get(3).data, "foo");
+        Assert.assertEquals(storage.get(3).type, Type.STRING);
+        Assert.assertNull(storage.get(1000));
+        Assert.assertNull(storage.getData(1000));
+        Assert.assertEquals(storage.getCode(0), 0);
+        Assert.assertEquals(storage.getCode(1), 1);
+        Assert.assertEquals(storage.encode("bar"), 1);
+        Assert.assertEquals(storage.encode("baz"), -1);
+        Assert.assertEquals(storage.decode(0), "foo");
+
+        Storage copy = storage.copy();
+        copy.add("baz", Type.STRING);
+        Assert.assertEquals(((Storages.DictionaryStorage) copy).dictionarySize(), 3);
+        Assert.assertEquals(storage.dictionarySize(), 2);
+        Assert.assertTrue(copy.isNull(1000));
+        Assert.assertEquals(copy.getData(1001), "baz");
+    }
+
+    @Test
+    public void testDictionaryFallback() {
+        Storages.DictionaryStorage storage = new Storages.DictionaryStorage();
+        storage.add((TypedObject) null);
+        int count = Storages.DictionaryStorage.MIN_DICTIONARY_SIZE * 2;
+        for (int i = 0; i < count; ++i) {
+            storage.add(String.valueOf(i), Type.STRING);
+        }
+        storage.add((TypedObject) null);
+        Assert.assertFalse(storage.isEncoded());
+        Assert.assertEquals(storage.size(), count + 2);
+        Assert.assertEquals(storage.nullCount(), 2);
+        Assert.assertTrue(storage.isNull(0));
+        Assert.assertNull(storage.get(0));
+        Assert.assertEquals(storage.getData(1), "0");
+        Assert.assertEquals(storage.get(count).data, String.valueOf(count - 1));
+        Assert.assertTrue(storage.isNull(count + 1));
+
+        Storage copy = storage.copy();
+        copy.add("foo", Type.STRING);
+        Assert.assertFalse(((Storages.DictionaryStorage) copy).isEncoded());
+        Assert.assertEquals(copy.getData(count + 2), "foo");
+        Assert.assertEquals(storage.size(), count + 2);
+    }
+
+    @Test
+    public void testConstantStorage() {
+        TypedObject value = new TypedObject(42L, Type.LONG);
+        Storage storage = new Storages.ConstantStorage(value, 3);
+        Assert.assertEquals(storage.getType(), Type.LONG);
+        Assert.assertEquals(storage.size(), 3);
+        Assert.assertEquals(storage.nullCount(), 0);
+        Assert.assertFalse(storage.accepts(Type.LONG));
+        Assert.assertFalse(storage.accepts(null));
+        Assert.assertTrue(storage.get(2) == value);
+
+        Storage copy = storage.copy();
+        Assert.assertTrue(copy instanceof Storages.LongStorage);
+        Assert.assertEquals(copy.size(), 3);
+        Assert.assertEquals(copy.getLong(2), 42L);
+
+        copy = new Storages.ConstantStorage(null, 2).copy();
+        Assert.assertEquals(copy.size(), 2);
+        Assert.assertEquals(copy.nullCount(), 2);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testAddingToConstantStorage() {
+        new Storages.ConstantStorage(null, 2).add((TypedObject) null);
+    }
+
+    @Test
+    public void testSelectedStorage() {
+        Storage longs = Storages.create(Type.LONG);
+        longs.add(1L);
+        longs.add((TypedObject) null);
+        longs.add(3L);
+        Storage storage = Storages.select(longs, new int[] {2, 1, 2, 0});
+        Assert.assertTrue(storage instanceof Storages.SelectedStorage);
+        Assert.assertTrue(storage.isView());
+        Assert.assertFalse(longs.isView());
+        Assert.assertEquals(storage.getType(), Type.LONG);
+        Assert.assertEquals(storage.size(), 4);
+        Assert.assertEquals(storage.nullCount(), 1);
+        Assert.assertFalse(storage.accepts(Type.LONG));
+        Assert.assertTrue(storage.isNull(1));
+        Assert.assertNull(storage.get(1));
+        Assert.assertEquals(storage.getLong(0), 3L);
+        Assert.assertEquals(storage.get(3).data, 1L);
+        Assert.assertEquals(storage.getData(2), 3L);
+
+        Storage copy = storage.copy();
+        Assert.assertTrue(copy instanceof Storages.LongStorage);
+        Assert.assertEquals(copy.size(), 4);
+        Assert.assertTrue(copy.isNull(1));
+        Assert.assertEquals(copy.getLong(3), 1L);
+
+        Storage doubles = Storages.create(Type.DOUBLE);
+        doubles.add(4.2);
+        Storage booleans = Storages.create(Type.BOOLEAN);
+        booleans.add(true);
+        Assert.assertEquals(Storages.select(doubles, new int[] {0, 0}).getDouble(1), 4.2);
+        Assert.assertTrue(Storages.select(booleans, new int[] {0, 0}).getBoolean(1));
+        Assert.assertEquals(Storages.select(booleans, new int[] {0}).nullCount(), 0);
+
+        Storage constant = Storages.select(new Storages.ConstantStorage(null, 2), new int[] {1, 1, 0});
+        Assert.assertTrue(constant instanceof Storages.ConstantStorage);
+        Assert.assertEquals(constant.size(), 3);
+        Assert.assertEquals(constant.nullCount(), 3);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testAddingToSelectedStorage() {
+        Storages.select(Storages.create(Type.LONG), new int[0]).add((TypedObject) null);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testSelectingMissingPosition() {
+        Storage longs = Storages.create(Type.LONG);
+        longs.add(TypeSystem.asTypedObject(1L));
+        Storages.select(longs, new int[] {0, 1});
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testSelectingMissingConstantPosition() {
+        Storages.select(new Storages.ConstantStorage(TypeSystem.asTypedObject(1L), 2), new int[] {-1});
+    }
+}
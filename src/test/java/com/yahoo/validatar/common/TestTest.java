@@ -7,6 +7,9 @@ package com.yahoo.validatar.common;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static com.yahoo.validatar.TestHelpers.getTestSuiteFrom;
 
@@ -33,6 +36,19 @@ public class TestTest {
         Assert.assertTrue(test.passed());
     }
 
+    @Test
+    public void testMessagesAreCopied() {
+        com.yahoo.validatar.common.Test test = new com.yahoo.validatar.common.Test();
+        Assert.assertNull(test.getMessages());
+
+        test.addMessage("first");
+        List<String> messages = test.getMessages();
+        test.addMessage("second");
+        // Adding a message does not change what was read before
+        Assert.assertEquals(messages, Collections.singletonList("first"));
+        Assert.assertEquals(test.getMessages(), Arrays.asList("first", "second"));
+    }
+
     @Test
     public void testLoadingWithWarnOnly() throws FileNotFoundException {
         TestSuite suite = getTestSuiteFrom("sample-tests/tests.yaml");
@@ -157,19 +157,19 @@ public class TypeSystemTest {
     public void testCastingToString() {
         TypedObject stringedObject = asTypedObject("");
 
-        stringedObject.data = "123";
+        stringedObject = asTypedObject("123");
         TypedObject longSample = asTypedObject(123L);
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(stringedObject, longSample)));
 
-        stringedObject.data = "1.23";
+        stringedObject = asTypedObject("1.23");
         TypedObject doubleSample = asTypedObject(1.23);
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(stringedObject, doubleSample)));
 
-        stringedObject.data = "12312312.2312412431321314123123123124123123123";
+        stringedObject = asTypedObject("12312312.2312412431321314123123123124123123123");
         TypedObject decimalSample = asTypedObject(new BigDecimal("12312312.2312412431321314123123123124123123123"));
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(stringedObject, decimalSample)));
 
-        stringedObject.data = "false";
+        stringedObject = asTypedObject("false");
         TypedObject booleanSample = asTypedObject(false);
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(stringedObject, booleanSample)));
     }
@@ -233,11 +233,11 @@ public class TypeSystemTest {
     public void testCastingToLong() {
         TypedObject longedObject = asTypedObject(0L);
 
-        longedObject.data = 123235L;
+        longedObject = asTypedObject(123235L);
         TypedObject stringSample = asTypedObject("123235");
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(longedObject, stringSample)));
 
-        longedObject.data = 1435553876000L;
+        longedObject = asTypedObject(1435553876000L);
         TypedObject timestampSample = asTypedObject(new Timestamp(1435553876000L));
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(longedObject, timestampSample)));
     }
@@ -299,11 +299,11 @@ public class TypeSystemTest {
     public void testCastingToDouble() {
         TypedObject doubledObject = new TypedObject(0.0, Type.DOUBLE);
 
-        doubledObject.data = 123.0;
+        doubledObject = asTypedObject(123.0);
         TypedObject longSample = asTypedObject(123L);
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(doubledObject, longSample)));
 
-        doubledObject.data = 3.14159265;
+        doubledObject = asTypedObject(3.14159265);
         TypedObject stringSample = asTypedObject("3.14159265");
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(doubledObject, stringSample)));
     }
@@ -369,19 +369,19 @@ public class TypeSystemTest {
     public void testCastingToDecimal() {
         TypedObject decimaledObject = asTypedObject(new BigDecimal("0"));
 
-        decimaledObject.data = new BigDecimal("0.01");
+        decimaledObject = asTypedObject(new BigDecimal("0.01"));
         TypedObject stringSample = asTypedObject("0.01");
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(decimaledObject, stringSample)));
 
-        decimaledObject.data = new BigDecimal("123");
+        decimaledObject = asTypedObject(new BigDecimal("123"));
         TypedObject longSample = asTypedObject(123L);
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(decimaledObject, longSample)));
 
-        decimaledObject.data = new BigDecimal("1.23");
+        decimaledObject = asTypedObject(new BigDecimal("1.23"));
         TypedObject doubleSample = asTypedObject(1.23);
         Assert.assertTrue(TestHelpers.boolify(isEqualTo(decimaledObject, doubleSample)));
 
-        decimaledObject.data = new BigDecimal("1435553876000");
+        decimaledObject = asTypedObject(new BigDecimal("1435553876000"));
         TypedObject timestampSample = asTypedObject(new Timestamp(1435553876000L));
         isEqualTo(decimaledObject, timestampSample);
     }
@@ -839,5 +839,232 @@ public class TypeSystemTest {
         approx(asColumn(Type.LONG, 100L, 100L, 100L), asColumn(Type.LONG, 98L, 97L, 96L),
                asColumn(Type.DOUBLE, 0.03, 0.04));
     }
-}
 
+    @Test
+    public void testColumnarNullPropagation() {
+        Column result = TypeSystem.perform(Operations.BinaryOperation.ADD, asColumn(Type.LONG, 1L, null, 3L),
+                                           asColumn(Type.LONG, 1L, 2L, null));
+        Assert.assertEquals(result.size(), 3);
+        Assert.assertEquals(result.get(0).data, 2L);
+        Assert.assertTrue(result.isNull(1));
+        Assert.assertTrue(result.isNull(2));
+        Assert.assertEquals(result.getType(), Type.LONG);
+
+        result = TypeSystem.perform(Operations.BinaryOperation.GREATER, asColumn(Type.LONG, 1L, null),
+                                    asColumn(Type.LONG, 0L));
+        Assert.assertEquals(result.get(0).data, true);
+        Assert.assertTrue(result.isNull(1));
+
+        result = TypeSystem.perform(Operations.UnaryOperation.NOT, asColumn(Type.BOOLEAN, null, true));
+        Assert.assertTrue(result.isNull(0));
+        Assert.assertEquals(result.get(1).data, false);
+    }
+
+    @Test
+    public void testColumnarNullLogic() {
+        Column left = asColumn(Type.BOOLEAN, true, false, null, null, null, true, false);
+        Column right = asColumn(Type.BOOLEAN, null, null, true, false, null, true, false);
+
+        Column and = TypeSystem.perform(Operations.BinaryOperation.AND, left, right);
+        Assert.assertTrue(and.isNull(0));
+        Assert.assertEquals(and.get(1).data, false);
+        Assert.assertTrue(and.isNull(2));
+        Assert.assertEquals(and.get(3).data, false);
+        Assert.assertTrue(and.isNull(4));
+        Assert.assertEquals(and.get(5).data, true);
+        Assert.assertEquals(and.get(6).data, false);
+
+        Column or = TypeSystem.perform(Operations.BinaryOperation.OR, left, right);
+        Assert.assertEquals(or.get(0).data, true);
+        Assert.assertTrue(or.isNull(1));
+        Assert.assertEquals(or.get(2).data, true);
+        Assert.assertTrue(or.isNull(3));
+        Assert.assertTrue(or.isNull(4));
+        Assert.assertEquals(or.get(5).data, true);
+        Assert.assertEquals(or.get(6).data, false);
+
+        Column mixed = TypeSystem.perform(Operations.BinaryOperation.AND, asColumn(Type.LONG, 1L, null),
+                                          asColumn(Type.BOOLEAN, null, true));
+        Assert.assertTrue(mixed.isNull(0));
+        Assert.assertTrue(mixed.isNull(1));
+    }
+
+    @Test
+    public void testSizeUnificationNullScalar() {
+        Column a = asColumn(Type.LONG, 1L, 2L, 3L);
+        Column b = asColumn(Type.LONG, (Object) null);
+        unifySize(a, b);
+        Assert.assertEquals(b.size(), 3);
+        Assert.assertEquals(b.nullCount(), 3);
+    }
+
+    @Test
+    public void testApproxColumnarNulls() {
+        Column result = approx(asColumn(Type.LONG, 100L, null, 100L, 100L), asColumn(Type.LONG, 98L, 98L, null, 98L),
+                               asColumn(Type.DOUBLE, 0.03, 0.03, 0.03, null));
+        Assert.assertEquals(result.get(0).data, true);
+        Assert.assertTrue(result.isNull(1));
+        Assert.assertTrue(result.isNull(2));
+        Assert.assertTrue(result.isNull(3));
+    }
+
+    @Test
+    public void testColumnarDictionaryEquality() {
+        Column first = asColumn(Type.STRING, "us", "uk", null, "fr", "us");
+        Column second = asColumn(Type.STRING, "us", "us", "us", "de", null);
+
+        Column equal = TypeSystem.perform(Operations.BinaryOperation.EQUAL, first, second);
+        Assert.assertEquals(equal.getType(), Type.BOOLEAN);
+        Assert.assertEquals(equal.get(0).data, true);
+        Assert.assertEquals(equal.get(1).data, false);
+        Assert.assertTrue(equal.isNull(2));
+        Assert.assertEquals(equal.get(3).data, false);
+        Assert.assertTrue(equal.isNull(4));
+
+        Column notEqual = TypeSystem.perform(Operations.BinaryOperation.NOT_EQUAL, first, second);
+        Assert.assertEquals(notEqual.get(0).data, false);
+        Assert.assertEquals(notEqual.get(1).data, true);
+        Assert.assertTrue(notEqual.isNull(2));
+        Assert.assertEquals(notEqual.get(3).data, true);
+        Assert.assertTrue(notEqual.isNull(4));
+
+        // A scalar is broadcast to the same size and compared on codes as well
+        Column scalar = TypeSystem.perform(Operations.BinaryOperation.EQUAL, asColumn(Type.STRING, "us", "uk", "us"),
+                                           asColumn(Type.STRING, "us"));
+        Assert.assertEquals(scalar.toString(), "[<true, BOOLEAN>, <false, BOOLEAN>, <true, BOOLEAN>]");
+    }
+
+    @Test
+    public void testColumnarStringOperationsWithoutCodes() {
+        Column first = new Column();
+        Column second = new Column();
+        int count = 1000;
+        for (int i = 0; i < count; ++i) {
+            first.add(String.valueOf(i));
+            second.add(String.valueOf(i % 2 == 0 ? i : -i));
+        }
+        Column equal = TypeSystem.perform(Operations.BinaryOperation.EQUAL, first, second);
+        Column notEqual = TypeSystem.perform(Operations.BinaryOperation.NOT_EQUAL, first, asColumn(Type.STRING, "0"));
+        Column less = TypeSystem.perform(Operations.BinaryOperation.LESS, asColumn(Type.STRING, "a", "c"),
+                                         asColumn(Type.STRING, "b"));
+        Column added = TypeSystem.perform(Operations.BinaryOperation.ADD, asColumn(Type.STRING, "a", "c"),
+                                          asColumn(Type.STRING, "b"));
+        for (int i = 0; i < count; ++i) {
+            Assert.assertEquals(equal.getBoolean(i), i % 2 == 0);
+            Assert.assertEquals(notEqual.getBoolean(i), i != 0);
+        }
+        Assert.assertEquals(less.toString(), "[<true, BOOLEAN>, <false, BOOLEAN>]");
+        Assert.assertEquals(added.toString(), "[<ab, STRING>, <cb, STRING>]");
+    }
+
+    @Test
+    public void testUnificationDoesNotChangeObjects() {
+        TypedObject longSample = asTypedObject(42L);
+        TypedObject stringSample = asTypedObject("42");
+        TypedObject doubleSample = asTypedObject(42.0);
+
+        TypedObject[] unified = TypeSystem.unifyType(longSample, stringSample);
+        Assert.assertTrue(unified[0] == longSample);
+        Assert.assertEquals(unified[1].type, Type.LONG);
+        Assert.assertEquals(unified[1].data, 42L);
+        Assert.assertEquals(stringSample.type, Type.STRING);
+        Assert.assertEquals(stringSample.data, "42");
+
+        unified = TypeSystem.unifyType(longSample, doubleSample);
+        Assert.assertEquals(unified[0].type, Type.DOUBLE);
+        Assert.assertEquals(unified[0].data, 42.0);
+        Assert.assertTrue(unified[1] == doubleSample);
+        Assert.assertEquals(longSample.type, Type.LONG);
+
+        unified = TypeSystem.unifyType(longSample, longSample);
+        Assert.assertTrue(unified[0] == longSample);
+        Assert.assertTrue(unified[1] == longSample);
+    }
+
+    @Test
+    public void testCastingCreatesNewObjects() {
+        TypedObject longSample = asTypedObject(42L);
+        TypedObject casted = TypeSystem.cast(Type.STRING, longSample);
+        Assert.assertEquals(casted.type, Type.STRING);
+        Assert.assertEquals(casted.data, "42");
+        Assert.assertEquals(longSample.type, Type.LONG);
+        Assert.assertEquals(longSample.data, 42L);
+        Assert.assertTrue(TypeSystem.cast(Type.LONG, longSample) == longSample);
+    }
+
+    @Test
+    public void testColumnarBroadcasting() {
+        Column vector = asColumn(Type.LONG, 1L, 200L, 3L);
+        Column scalar = asColumn(Type.LONG, 100L);
+        Column result = TypeSystem.perform(Operations.BinaryOperation.GREATER, vector, scalar);
+        Assert.assertEquals(result.toString(), "[<false, BOOLEAN>, <true, BOOLEAN>, <false, BOOLEAN>]");
+        // The scalar is not extended
+        Assert.assertEquals(scalar.size(), 1);
+        Assert.assertFalse(scalar.isConstant());
+
+        result = TypeSystem.perform(Operations.BinaryOperation.SUBTRACT, scalar, vector);
+        Assert.assertEquals(result.toString(), "[<99, LONG>, <-100, LONG>, <97, LONG>]");
+        Assert.assertEquals(scalar.size(), 1);
+
+        result = TypeSystem.perform(Operations.BinaryOperation.AND, asColumn(Type.BOOLEAN, true, null),
+                                    new Column(asTypedObject(false)));
+        Assert.assertEquals(result.toString(), "[<false, BOOLEAN>, <false, BOOLEAN>]");
+    }
+
+    @Test
+    public void testColumnarConstants() {
+        Column first = new ConstantColumn(asTypedObject(2L), 1000);
+        Column second = new ConstantColumn(asTypedObject(3L), 1000);
+        Column result = TypeSystem.perform(Operations.BinaryOperation.MULTIPLY, first, second);
+        Assert.assertTrue(result.isConstant());
+        Assert.assertEquals(result.size(), 1000);
+        Assert.assertEquals(result.get(999).data, 6L);
+
+        result = TypeSystem.perform(Operations.BinaryOperation.ADD, first, asColumn(Type.LONG, 10L));
+        Assert.assertTrue(result.isConstant());
+        Assert.assertEquals(result.size(), 1000);
+        Assert.assertEquals(result.get(0).data, 12L);
+
+        result = TypeSystem.perform(Operations.BinaryOperation.OR, new ConstantColumn(null, 2),
+                                    new ConstantColumn(asTypedObject(true), 2));
+        Assert.assertTrue(result.isConstant());
+        Assert.assertEquals(result.toString(), "[<true, BOOLEAN>, <true, BOOLEAN>]");
+
+        result = TypeSystem.perform(Operations.BinaryOperation.ADD, new ConstantColumn(null, 1), first.copy());
+        Assert.assertTrue(result.isConstant());
+        Assert.assertEquals(result.size(), 1000);
+        Assert.assertEquals(result.nullCount(), 1000);
+
+        result = TypeSystem.perform(Operations.UnaryOperation.NOT, new ConstantColumn(asTypedObject(true), 5));
+        Assert.assertTrue(result.isConstant());
+        Assert.assertEquals(result.size(), 5);
+        Assert.assertEquals(result.get(4).data, false);
+
+        result = TypeSystem.perform(Operations.UnaryOperation.NOT, new ConstantColumn(null, 5));
+        Assert.assertTrue(result.isConstant());
+        Assert.assertEquals(result.nullCount(), 5);
+
+        result = TypeSystem.perform(Operations.UnaryOperation.NOT, new ConstantColumn(asTypedObject(true), 0));
+        Assert.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testColumnarDictionaryEqualityWithConstant() {
+        Column strings = asColumn(Type.STRING, "us", "uk", null, "us");
+        Column equal = TypeSystem.perform(Operations.BinaryOperation.EQUAL, strings, new ConstantColumn(asTypedObject("us"), 4));
+        Assert.assertEquals(equal.toString(), "[<true, BOOLEAN>, <false, BOOLEAN>, null, <true, BOOLEAN>]");
+
+        Column notEqual = TypeSystem.perform(Operations.BinaryOperation.NOT_EQUAL, asColumn(Type.STRING, "uk"), strings);
+        Assert.assertEquals(notEqual.toString(), "[<true, BOOLEAN>, <false, BOOLEAN>, null, <true, BOOLEAN>]");
+
+        Column missing = TypeSystem.perform(Operations.BinaryOperation.EQUAL, strings, asColumn(Type.STRING, "fr"));
+        Assert.assertEquals(missing.toString(), "[<false, BOOLEAN>, <false, BOOLEAN>, null, <false, BOOLEAN>]");
+    }
+
+    @Test
+    public void testRepeatingAsColumn() {
+        Column column = TypeSystem.asColumn(asTypedObject(4.2), 3);
+        Assert.assertTrue(column.isConstant());
+        Assert.assertEquals(column.toString(), "[<4.2, DOUBLE>, <4.2, DOUBLE>, <4.2, DOUBLE>]");
+    }
+}
@@ -0,0 +1,72 @@
+package com.yahoo.validatar.common;
+
+import com.yahoo.validatar.common.Operations.WindowOperation;
+import com.yahoo.validatar.common.TypeSystem.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+import static com.yahoo.validatar.TestHelpers.asColumn;
+import static com.yahoo.validatar.TestHelpers.isEqual;
+
+public class WindowsTest {
+    private static Column window(WindowOperation operation, Column column, long offset) {
+        return TypeSystem.window(operation, column, asColumn(Type.LONG, offset));
+    }
+
+    @Test
+    public void testLag() {
+        Column longs = asColumn(Type.LONG, 1L, null, 3L, 4L);
+        Assert.assertTrue(isEqual(window(WindowOperation.LAG, longs, 1), asColumn(Type.LONG, null, 1L, null, 3L)));
+        Assert.assertTrue(isEqual(window(WindowOperation.LAG, longs, 0), longs));
+        Assert.assertTrue(isEqual(window(WindowOperation.LAG, longs, 4), asColumn(Type.LONG, null, null, null, null)));
+        Column doubles = asColumn(Type.DOUBLE, 1.5, 2.5, 3.5);
+        Assert.assertTrue(isEqual(window(WindowOperation.LAG, doubles, 2), asColumn(Type.DOUBLE, null, null, 1.5)));
+        Column strings = asColumn(Type.STRING, "a", "b", "c");
+        Assert.assertTrue(isEqual(window(WindowOperation.LAG, strings, 1), asColumn(Type.STRING, null, "a", "b")));
+    }
+
+    @Test
+    public void testLead() {
+        Column longs = asColumn(Type.LONG, 1L, null, 3L, 4L);
+        Assert.assertTrue(isEqual(window(WindowOperation.LEAD, longs, 1), asColumn(Type.LONG, null, 3L, 4L, null)));
+        Assert.assertTrue(isEqual(window(WindowOperation.LEAD, longs, 10), asColumn(Type.LONG, null, null, null, null)));
+        Column strings = asColumn(Type.STRING, "a", "b", "c");
+        Assert.assertTrue(isEqual(window(WindowOperation.LEAD, strings, 2), asColumn(Type.STRING, "c", null, null)));
+    }
+
+    @Test
+    public void testDelta() {
+        Column longs = asColumn(Type.LONG, 10L, 12L, 9L);
+        Assert.assertTrue(isEqual(window(WindowOperation.DELTA, longs, 1), asColumn(Type.LONG, null, 2L, -3L)));
+        Column decimals = asColumn(Type.DECIMAL, new BigDecimal("1.5"), new BigDecimal("2.0"));
+        Assert.assertTrue(isEqual(window(WindowOperation.DELTA, decimals, 1),
+                                  asColumn(Type.DECIMAL, null, new BigDecimal("0.5"))));
+    }
+
+    @Test
+    public void testRatio() {
+        // Whole numbers are not truncated
+        Column longs = asColumn(Type.LONG, 10L, 12L, null, 6L);
+        Assert.assertTrue(isEqual(window(WindowOperation.RATIO, longs, 1), asColumn(Type.DOUBLE, null, 1.2, null, null)));
+        Assert.assertTrue(isEqual(window(WindowOperation.RATIO, longs, 3), asColumn(Type.DOUBLE, null, null, null, 0.6)));
+        Column decimals = asColumn(Type.DECIMAL, new BigDecimal("2"), new BigDecimal("1"));
+        Assert.assertTrue(isEqual(window(WindowOperation.RATIO, decimals, 1), asColumn(Type.DOUBLE, null, 0.5)));
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testRatioOfStrings() {
+        window(WindowOperation.RATIO, asColumn(Type.STRING, "a", "b"), 1);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*non-negative.*")
+    public void testNegativeOffset() {
+        window(WindowOperation.LAG, asColumn(Type.LONG, 1L), -1);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*whole number.*")
+    public void testOffsetNotWhole() {
+        TypeSystem.window(WindowOperation.LAG, asColumn(Type.LONG, 1L), asColumn(Type.DOUBLE, 1.5));
+    }
+}
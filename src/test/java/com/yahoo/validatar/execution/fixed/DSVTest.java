@@ -152,6 +152,22 @@ public class DSVTest {
         Assert.assertTrue(isEqual(actual, expected));
     }
 
+    @Test
+    public void testTypedLoading() throws IOException {
+        Query query = getQueryFrom("csv-tests/sample.yaml", "TypedTest");
+        dsv.execute(query);
+
+        Result actual = query.getResult();
+        Result expected = new Result("TypedTest");
+        expected.addColumn("A", asColumn(Type.STRING, "foo", "baz", "foo"));
+        expected.addColumn("B", asColumn(Type.DOUBLE, 234.3, 9.0, null));
+        expected.addColumn("C", asColumn(Type.BOOLEAN, true, false, true));
+
+        Assert.assertTrue(isEqual(actual, expected));
+        Assert.assertEquals(actual.getColumn("C").getType(), Type.BOOLEAN);
+        Assert.assertTrue(actual.getColumn("C").getBoolean(2));
+    }
+
     @Test
     public void testFileLoading() throws IOException {
         Query query = getQueryFrom("csv-tests/sample.yaml", "FileLoadingTest");
@@ -7,6 +7,7 @@ package com.yahoo.validatar.execution.rest;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.yahoo.validatar.common.Column;
 import com.yahoo.validatar.common.Metadata;
 import com.yahoo.validatar.common.Query;
 import com.yahoo.validatar.common.TypeSystem;
@@ -88,7 +89,7 @@ public class JSONTest {
     @Test
     public void testJSONMapConversionNull() {
         Query query = new Query();
-        Map<String, List<TypedObject>> actual = json.convertToMap(null, evaluator, query);
+        Map<String, Column> actual = json.convertToMap(null, evaluator, query);
         Assert.assertFalse(query.failed());
         Assert.assertTrue(actual.isEmpty());
     }
@@ -96,7 +97,7 @@ public class JSONTest {
     @Test
     public void testJSONMapConversionEmpty() {
         Query query = new Query();
-        Map<String, List<TypedObject>> actual = json.convertToMap("", evaluator, query);
+        Map<String, Column> actual = json.convertToMap("", evaluator, query);
         Assert.assertFalse(query.failed());
         Assert.assertTrue(actual.isEmpty());
     }
@@ -106,53 +107,91 @@ public class JSONTest {
         Query query = new Query();
         String jsonData = "{'users' : ['user1', 'user2'], 'count': [10], 'ratio': [0.14], 'numbers': [123123123123, 1.23143]," +
                           " 'booleans': [true, false], 'mixed': [[1, 2], {'a': 1}, null, 2], 'nulled': null }";
-        Map<String, List<TypedObject>> actual = json.convertToMap(jsonData, evaluator, query);
+        Map<String, Column> actual = json.convertToMap(jsonData, evaluator, query);
 
         Assert.assertEquals(actual.size(), 7);
 
-        List<TypedObject> users = actual.get("users");
+        List<TypedObject> users = actual.get("users").getValues();
         Assert.assertEquals(users.get(0).type, TypeSystem.Type.STRING);
         Assert.assertEquals(users.get(0).data, "user1");
         Assert.assertEquals(users.get(1).type, TypeSystem.Type.STRING);
         Assert.assertEquals(users.get(1).data, "user2");
 
         // Internally should be an Integer when converting
-        List<TypedObject> counts = actual.get("count");
+        List<TypedObject> counts = actual.get("count").getValues();
         Assert.assertEquals(counts.get(0).type, TypeSystem.Type.LONG);
         Assert.assertEquals(counts.get(0).data, 10L);
 
-        List<TypedObject> ratios = actual.get("ratio");
+        List<TypedObject> ratios = actual.get("ratio").getValues();
         Assert.assertEquals(ratios.get(0).type, TypeSystem.Type.DOUBLE);
         Assert.assertEquals(ratios.get(0).data, 0.14);
 
-        List<TypedObject> longs = actual.get("numbers");
+        List<TypedObject> longs = actual.get("numbers").getValues();
         Assert.assertEquals(longs.get(0).type, TypeSystem.Type.DOUBLE);
         Assert.assertEquals(longs.get(0).data, 123123123123.0);
         Assert.assertEquals(longs.get(1).type, TypeSystem.Type.DOUBLE);
         Assert.assertEquals(longs.get(1).data, 1.23143);
 
-        List<TypedObject> booleans = actual.get("booleans");
+        List<TypedObject> booleans = actual.get("booleans").getValues();
         Assert.assertEquals(booleans.get(0).type, TypeSystem.Type.BOOLEAN);
         Assert.assertEquals(booleans.get(0).data, true);
         Assert.assertEquals(booleans.get(1).type, TypeSystem.Type.BOOLEAN);
         Assert.assertEquals(booleans.get(1).data, false);
 
-        List<TypedObject> mixeds = actual.get("mixed");
+        List<TypedObject> mixeds = actual.get("mixed").getValues();
         Assert.assertNull(mixeds.get(0));
         Assert.assertNull(mixeds.get(1));
         Assert.assertNull(mixeds.get(2));
         Assert.assertEquals(mixeds.get(3).type, TypeSystem.Type.LONG);
         Assert.assertEquals(mixeds.get(3).data, 2L);
 
-        List<TypedObject> nulled = actual.get("nulled");
+        List<TypedObject> nulled = actual.get("nulled").getValues();
         Assert.assertEquals(nulled, Collections.emptyList());
     }
 
+    @Test
+    public void testJSONMapColumnTypes() {
+        Query query = new Query();
+        String jsonData = "{'users': ['user1', null], 'count': [10, null, 2], 'ratio': [0.14, null], " +
+                          "'booleans': [null, true, false], 'mixed': [1, 'a'] }";
+        Map<String, Column> actual = json.convertToMap(jsonData, evaluator, query);
+        Assert.assertFalse(query.failed());
+
+        Column users = actual.get("users");
+        Assert.assertEquals(users.getType(), TypeSystem.Type.STRING);
+        Assert.assertEquals(users.nullCount(), 1);
+        Assert.assertTrue(users.isNull(1));
+
+        Column counts = actual.get("count");
+        Assert.assertEquals(counts.getType(), TypeSystem.Type.LONG);
+        Assert.assertEquals(counts.nullCount(), 1);
+        Assert.assertEquals(counts.getLong(0), 10L);
+        Assert.assertTrue(counts.isNull(1));
+        Assert.assertEquals(counts.getLong(2), 2L);
+
+        Column ratios = actual.get("ratio");
+        Assert.assertEquals(ratios.getType(), TypeSystem.Type.DOUBLE);
+        Assert.assertEquals(ratios.getDouble(0), 0.14);
+        Assert.assertTrue(ratios.isNull(1));
+
+        Column booleans = actual.get("booleans");
+        Assert.assertEquals(booleans.getType(), TypeSystem.Type.BOOLEAN);
+        Assert.assertTrue(booleans.isNull(0));
+        Assert.assertTrue(booleans.getBoolean(1));
+        Assert.assertFalse(booleans.getBoolean(2));
+
+        // Values of different types can still be put in one column
+        Column mixed = actual.get("mixed");
+        Assert.assertNull(mixed.getType());
+        Assert.assertEquals(mixed.get(0).data, 1L);
+        Assert.assertEquals(mixed.get(1).data, "a");
+    }
+
     @Test
     public void testJSONMapConversionBadJSON() {
         Query query = new Query();
         String jsonData = "{'a' : ";
-        Map<String, List<TypedObject>> actual = json.convertToMap(jsonData, evaluator, query);
+        Map<String, Column> actual = json.convertToMap(jsonData, evaluator, query);
         Assert.assertNull(actual);
         Assert.assertTrue(query.getMessages().stream().anyMatch(s -> s.contains("Invalid JSON")));
     }
@@ -161,7 +200,7 @@ public class JSONTest {
     public void testJSONMapConversionWrongFormat() {
         Query query;
         String jsonData;
-        Map<String, List<TypedObject>> actual;
+        Map<String, Column> actual;
 
         query = new Query();
         jsonData = "'a'";